@@ -0,0 +1,142 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.CheckForNull;
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AsyncRequestReader} collects the request body whenever the {@link ServletInputStream} has data available, so
+ * no thread waits for slow clients. Small bodies are kept in memory, larger ones are spooled to a temporary file. Once
+ * the body is complete it is passed to the {@link Handler}, bodies exceeding the limit are answered with 413 as soon
+ * as the limit has been passed.
+ */
+final class AsyncRequestReader implements ReadListener {
+
+    interface Handler {
+
+        void handle(InputStream body) throws IOException;
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRequestReader.class);
+
+    private static final String SPOOL_PREFIX = "webdav-request-";
+
+    private static final int SPOOL_THRESHOLD = 64 * 1024;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final AsyncContext context;
+
+    private final Handler handler;
+
+    private final ServletInputStream input;
+
+    private final long limit;
+
+    private boolean rejected = false;
+
+    private final DeferredFileOutputStream spool;
+
+    /**
+     * @param limit the maximal number of bytes of the request body, a value {@code <= 0} disables the limit
+     */
+    AsyncRequestReader(final AsyncContext context, final ServletInputStream input, @CheckForNull final File directory, final long limit, final Handler handler) {
+        this.context = context;
+        this.input = input;
+        this.limit = limit;
+        this.handler = handler;
+        this.spool = new DeferredFileOutputStream(SPOOL_THRESHOLD, SPOOL_PREFIX, null, directory);
+    }
+
+    private void delete() {
+        final File file = spool.getFile();
+        if (file != null) {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    @Override
+    public void onAllDataRead() throws IOException {
+        if (rejected) {
+            return;
+        }
+
+        spool.close();
+        try (final InputStream body = spool.isInMemory() ? new ByteArrayInputStream(spool.getData()) : new FileInputStream(spool.getFile())) {
+            handler.handle(body);
+        } finally {
+            delete();
+        }
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+        // container calls again as soon as the client has sent more data
+        while (!rejected && input.isReady()) {
+            final int read = input.read(buffer);
+            if (read < 0) {
+                return;
+            }
+            spool.write(buffer, 0, read);
+
+            if ((limit > 0L) && (spool.getByteCount() > limit)) {
+                reject();
+            }
+        }
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+        LOGGER.warn("asynchronous request failed", t);
+        IOUtils.closeQuietly(spool);
+        delete();
+        context.complete();
+    }
+
+    // the remaining body is discarded by the container once the request has been completed
+    private void reject() throws IOException {
+        rejected = true;
+        IOUtils.closeQuietly(spool);
+        delete();
+
+        LOGGER.debug("request body exceeds {} bytes", limit);
+        final HttpServletResponse response = (HttpServletResponse) context.getResponse();
+        try {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        } finally {
+            context.complete();
+        }
+    }
+}
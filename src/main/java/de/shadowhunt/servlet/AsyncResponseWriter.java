@@ -0,0 +1,77 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AsyncResponseWriter} copies the content to the client whenever the {@link ServletOutputStream} can accept
+ * more data, so no thread waits for slow clients. The {@link AsyncContext} is completed after the last byte.
+ */
+final class AsyncResponseWriter implements WriteListener {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncResponseWriter.class);
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final InputStream content;
+
+    private final AsyncContext context;
+
+    private final ServletOutputStream output;
+
+    AsyncResponseWriter(final AsyncContext context, final ServletOutputStream output, final InputStream content) {
+        this.context = context;
+        this.output = output;
+        this.content = content;
+    }
+
+    private void complete() {
+        IOUtils.closeQuietly(content);
+        context.complete();
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+        LOGGER.warn("asynchronous response failed", t);
+        complete();
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        // container calls again as soon as the client has consumed the pending data
+        while (output.isReady()) {
+            final int read = content.read(buffer);
+            if (read < 0) {
+                complete();
+                return;
+            }
+            output.write(buffer, 0, read);
+        }
+    }
+}
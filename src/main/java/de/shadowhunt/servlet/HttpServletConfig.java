@@ -22,10 +22,14 @@ import de.shadowhunt.webdav.WebDavConfig;
 
 class HttpServletConfig implements WebDavConfig {
 
+    static final long DEFAULT_MAX_REQUEST_BODY_SIZE = 1024 * 1024;
+
     private volatile boolean allowInfiniteDepthRequests = false;
 
     private volatile String cssForCollectionListings = null;
 
+    private volatile long maxRequestBodySize = DEFAULT_MAX_REQUEST_BODY_SIZE;
+
     private volatile boolean readOnly = true;
 
     private volatile boolean showCollectionListings = false;
@@ -35,6 +39,11 @@ class HttpServletConfig implements WebDavConfig {
         return Optional.ofNullable(cssForCollectionListings);
     }
 
+    @Override
+    public long getMaxRequestBodySize() {
+        return maxRequestBodySize;
+    }
+
     @Override
     public boolean isAllowInfiniteDepthRequests() {
         return allowInfiniteDepthRequests;
@@ -58,6 +67,10 @@ class HttpServletConfig implements WebDavConfig {
         this.cssForCollectionListings = cssForCollectionListings;
     }
 
+    public void setMaxRequestBodySize(final long maxRequestBodySize) {
+        this.maxRequestBodySize = maxRequestBodySize;
+    }
+
     public void setReadOnly(final boolean readOnly) {
         this.readOnly = readOnly;
     }
@@ -23,7 +23,6 @@ import java.net.URISyntaxException;
 import java.security.Principal;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -43,14 +42,14 @@ class HttpServletRequestWrapper implements WebDavRequest {
 
     private final WebDavConfig config;
 
-    private final UUID id;
+    private final String id;
 
     private final HttpServletRequest request;
 
-    HttpServletRequestWrapper(final HttpServletRequest request, final WebDavConfig config) {
+    HttpServletRequestWrapper(final HttpServletRequest request, final WebDavConfig config, final String id) {
         this.request = request;
         this.config = config;
-        this.id = UUID.randomUUID();
+        this.id = id;
     }
 
     @Override
@@ -73,7 +72,7 @@ class HttpServletRequestWrapper implements WebDavRequest {
     }
 
     @Override
-    public UUID getId() {
+    public String getId() {
         return id;
     }
 
@@ -17,8 +17,12 @@
 package de.shadowhunt.servlet;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import de.shadowhunt.webdav.WebDavConstant.Header;
@@ -27,13 +31,28 @@ import de.shadowhunt.webdav.WebDavException;
 import de.shadowhunt.webdav.WebDavRequest;
 import de.shadowhunt.webdav.WebDavResponse;
 
+import org.apache.commons.io.IOUtils;
+
 class HttpServletResponseWrapper implements WebDavResponse {
 
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
     private final WebDavRequest request;
 
     private final HttpServletResponse response;
 
-    HttpServletResponseWrapper(final HttpServletResponse response, final WebDavRequest request) {
+    private final HttpServletRequest servletRequest;
+
+    private boolean transferring = false;
+
+    HttpServletResponseWrapper(final HttpServletRequest servletRequest, final HttpServletResponse response, final WebDavRequest request) {
+        this.servletRequest = servletRequest;
         this.response = response;
         this.request = request;
     }
@@ -53,6 +72,41 @@ class HttpServletResponseWrapper implements WebDavResponse {
         return request;
     }
 
+    boolean isTransferring() {
+        return transferring;
+    }
+
+    @Override
+    public boolean sendContent(final InputStream content) {
+        if (!servletRequest.isAsyncStarted()) {
+            return false;
+        }
+
+        try {
+            final ServletOutputStream output = response.getOutputStream();
+            output.setWriteListener(new AsyncResponseWriter(servletRequest.getAsyncContext(), output, content));
+        } catch (final IOException | RuntimeException e) {
+            IOUtils.closeQuietly(content);
+            throw new WebDavException("can not start asynchronous transfer", e);
+        }
+        transferring = true;
+        return true;
+    }
+
+    @Override
+    public boolean sendFile(final Path file, final long offset, final long length) {
+        // asynchronous transfers read the already opened content handed to sendContent
+        if (servletRequest.isAsyncStarted() || !Boolean.TRUE.equals(servletRequest.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+
+        // the container transfers the content after the servlet returns
+        servletRequest.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+        servletRequest.setAttribute(SENDFILE_START, Long.valueOf(offset));
+        servletRequest.setAttribute(SENDFILE_END, Long.valueOf(offset + length));
+        return true;
+    }
+
     @Override
     public void setCharacterEncoding(final String charset) {
         response.setCharacterEncoding(charset);
@@ -66,7 +120,7 @@ class HttpServletResponseWrapper implements WebDavResponse {
     @Override
     public void setStatus(final Status status) {
         final int statusCode = status.value;
-        if ((statusCode >= 200) && (statusCode < 300)) {
+        if (((statusCode >= 200) && (statusCode < 300)) || (statusCode == Status.NOT_MODIFIED.value)) {
             response.setStatus(statusCode);
         } else {
             try {
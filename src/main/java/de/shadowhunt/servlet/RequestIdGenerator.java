@@ -14,14 +14,16 @@
  * You should have received a copy of the GNU General Public License
  * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
  */
-package de.shadowhunt.webdav.precondition;
+package de.shadowhunt.servlet;
 
-import java.util.Optional;
+import javax.annotation.concurrent.ThreadSafe;
 
-import de.shadowhunt.webdav.precondition.PreconditionParser.PreconditionContext;
-
-public abstract class AbstractAggregator<R> extends PreconditionBaseListener {
-
-    abstract Optional<R> getResult(final PreconditionContext context);
+/**
+ * {@link RequestIdGenerator} creates the ids that identify a request in the dispatcher and in the
+ * {@code X-Request-Id} response header. Ids only have to be unique, they must not be guessable.
+ */
+@ThreadSafe
+public interface RequestIdGenerator {
 
+    String next();
 }
@@ -0,0 +1,63 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link SequentialRequestIdGenerator} creates ids from a node prefix and a counter. Each thread reserves a block of
+ * counter values at once and hands them out without any synchronization, so threads only meet once per block.
+ */
+@ThreadSafe
+public final class SequentialRequestIdGenerator implements RequestIdGenerator {
+
+    private static final class Block {
+
+        private long end = 0L;
+
+        private long next = 0L;
+    }
+
+    static final int BLOCK_SIZE = 1024;
+
+    private final AtomicLong blocks = new AtomicLong();
+
+    private final ThreadLocal<Block> current = ThreadLocal.withInitial(Block::new);
+
+    private final String prefix;
+
+    public SequentialRequestIdGenerator() {
+        this(String.format("%08x", ThreadLocalRandom.current().nextInt()));
+    }
+
+    public SequentialRequestIdGenerator(final String node) {
+        this.prefix = node + "-";
+    }
+
+    @Override
+    public String next() {
+        final Block block = current.get();
+        if (block.next == block.end) {
+            block.next = blocks.getAndIncrement() * BLOCK_SIZE;
+            block.end = block.next + BLOCK_SIZE;
+        }
+        return prefix + Long.toHexString(block.next++);
+    }
+}
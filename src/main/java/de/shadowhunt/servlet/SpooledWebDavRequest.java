@@ -0,0 +1,88 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.io.InputStream;
+import java.security.Principal;
+import java.util.Optional;
+
+import de.shadowhunt.webdav.WebDavConfig;
+import de.shadowhunt.webdav.WebDavConstant.Header;
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.WebDavRequest;
+import de.shadowhunt.webdav.method.WebDavMethod.Method;
+
+/**
+ * {@link SpooledWebDavRequest} replaces the body of a {@link WebDavRequest} by the one collected from the client
+ * beforehand.
+ */
+final class SpooledWebDavRequest implements WebDavRequest {
+
+    private final InputStream body;
+
+    private final WebDavRequest delegate;
+
+    SpooledWebDavRequest(final WebDavRequest delegate, final InputStream body) {
+        this.delegate = delegate;
+        this.body = body;
+    }
+
+    @Override
+    public String getBase() {
+        return delegate.getBase();
+    }
+
+    @Override
+    public WebDavConfig getConfig() {
+        return delegate.getConfig();
+    }
+
+    @Override
+    public String getHeader(final Header header, final String defaultValue) {
+        return delegate.getHeader(header, defaultValue);
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return body;
+    }
+
+    @Override
+    public Method getMethod() {
+        return delegate.getMethod();
+    }
+
+    @Override
+    public WebDavPath getPath() {
+        return delegate.getPath();
+    }
+
+    @Override
+    public Optional<Principal> getPrincipal() {
+        return delegate.getPrincipal();
+    }
+
+    @Override
+    public Optional<WebDavPath> toPath(final String resource) {
+        return delegate.toPath(resource);
+    }
+}
@@ -16,42 +16,86 @@
  */
 package de.shadowhunt.servlet;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
+import javax.annotation.CheckForNull;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import de.shadowhunt.webdav.WebDavConfig;
+import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavDispatcher;
 import de.shadowhunt.webdav.WebDavRequest;
 import de.shadowhunt.webdav.WebDavResponse;
+import de.shadowhunt.webdav.method.WebDavMethod;
 import de.shadowhunt.webdav.store.WebDavStore;
 import de.shadowhunt.webdav.store.memory.MemoryStore;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class WebDavServlet extends HttpServlet {
 
+    public static final String ASYNC = "async";
+
     public static final String INFINITE = "infinite";
 
     public static final String LISTING = "listing";
 
     public static final String LISTING_CSS = "listingCss";
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebDavServlet.class);
+
+    public static final String MAX_REQUEST_BODY_SIZE = "maxRequestBodySize";
+
     private static final long serialVersionUID = 1L;
 
+    private static final String TRANSFER_ENCODING = "Transfer-Encoding";
+
+    public static final String VIRTUAL_THREADS = "virtualThreads";
+
     public static final String WRITEABLE = "writeable";
 
+    private static final WebDavStore store = new MemoryStore();
+
+    private transient boolean async;
+
     private transient WebDavConfig config;
 
-    private static final WebDavStore store = new MemoryStore();
+    @CheckForNull
+    private transient ExecutorService executor;
+
+    private transient RequestIdGenerator requestIdGenerator;
+
+    protected RequestIdGenerator createRequestIdGenerator() {
+        return new SequentialRequestIdGenerator();
+    }
+
+    // virtual threads are only available on java 21 and newer
+    protected Optional<ExecutorService> createVirtualThreadExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (final ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
 
     protected HttpServletConfig createWebDavConfig(final ServletConfig servletConfig) throws ServletException {
         final HttpServletConfig webdavConfig = new HttpServletConfig();
@@ -85,6 +129,15 @@ public class WebDavServlet extends HttpServlet {
             }
         }
 
+        final String maxRequestBodySizeParameter = servletConfig.getInitParameter(MAX_REQUEST_BODY_SIZE);
+        if (StringUtils.isNotEmpty(maxRequestBodySizeParameter)) {
+            try {
+                webdavConfig.setMaxRequestBodySize(Long.parseLong(maxRequestBodySizeParameter.trim()));
+            } catch (final NumberFormatException e) {
+                throw new ServletException("invalid request body size: " + maxRequestBodySizeParameter, e);
+            }
+        }
+
         final String writeableParameter = servletConfig.getInitParameter(WRITEABLE);
         final boolean writeable = Boolean.parseBoolean(writeableParameter);
         webdavConfig.setReadOnly(!writeable);
@@ -93,11 +146,49 @@ public class WebDavServlet extends HttpServlet {
     }
 
     protected WebDavRequest createWebDavRequestWrapper(final HttpServletRequest request) throws IOException {
-        return new HttpServletRequestWrapper(request, getWebDavConfig());
+        return new HttpServletRequestWrapper(request, getWebDavConfig(), requestIdGenerator.next());
     }
 
-    protected WebDavResponse createWebDavResponseWrapper(final HttpServletResponse response, final WebDavRequest webDavRequest) throws IOException {
-        return new HttpServletResponseWrapper(response, webDavRequest);
+    protected WebDavResponse createWebDavResponseWrapper(final HttpServletRequest request, final HttpServletResponse response, final WebDavRequest webDavRequest) throws IOException {
+        return new HttpServletResponseWrapper(request, response, webDavRequest);
+    }
+
+    private void dispatch(final HttpServletRequest request, final HttpServletResponse response, final WebDavRequest webDavRequest) throws IOException {
+        final WebDavResponse webDavResponse = createWebDavResponseWrapper(request, response, webDavRequest);
+        webDavResponse.addHeader(Header.REQUEST_ID, webDavRequest.getId());
+
+        final WebDavDispatcher dispatcher = WebDavDispatcher.getInstance();
+        dispatcher.service(getWebDavStore(), webDavRequest, webDavResponse);
+
+        if (request.isAsyncStarted() && !isTransferring(webDavResponse)) {
+            request.getAsyncContext().complete();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        super.destroy();
+    }
+
+    private void execute(final AsyncContext context, final HttpServletRequest request, final HttpServletResponse response, final WebDavRequest webDavRequest) throws IOException {
+        try {
+            executor.execute(() -> {
+                try {
+                    dispatch(request, response, webDavRequest);
+                } catch (final IOException | RuntimeException e) {
+                    LOGGER.warn("request failed", e);
+                    sendInternalServerError(response);
+                    context.complete();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            LOGGER.warn("servlet is shutting down", e);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            context.complete();
+        }
     }
 
     protected WebDavConfig getWebDavConfig() {
@@ -108,19 +199,74 @@ public class WebDavServlet extends HttpServlet {
         return store;
     }
 
+    private boolean hasBody(final HttpServletRequest request) {
+        return (request.getContentLengthLong() > 0L) || (request.getHeader(TRANSFER_ENCODING) != null);
+    }
+
     @Override
     public void init(final ServletConfig servletConfig) throws ServletException {
         super.init(servletConfig);
 
         config = createWebDavConfig(servletConfig);
+        requestIdGenerator = createRequestIdGenerator();
+
+        final String asyncParameter = servletConfig.getInitParameter(ASYNC);
+        async = Boolean.parseBoolean(asyncParameter);
+
+        final String virtualThreadsParameter = servletConfig.getInitParameter(VIRTUAL_THREADS);
+        if (Boolean.parseBoolean(virtualThreadsParameter)) {
+            executor = createVirtualThreadExecutor().orElseThrow(() -> new ServletException("virtual threads require java 21 or newer"));
+        }
+    }
+
+    // only bodies parsed as xml are collected asynchronously, the store reads uploads from the request itself
+    private boolean isBlockingUpload(final WebDavRequest webDavRequest) {
+        return (executor == null) && (webDavRequest.getMethod() == WebDavMethod.Method.PUT);
+    }
+
+    // the response writer completes the asynchronous request once the content has been transferred
+    private boolean isTransferring(final WebDavResponse webDavResponse) {
+        return (webDavResponse instanceof HttpServletResponseWrapper) && ((HttpServletResponseWrapper) webDavResponse).isTransferring();
+    }
+
+    // the container answers 500 in blocking mode, but it never sees exceptions thrown on the executor
+    private void sendInternalServerError(final HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+
+        try {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.warn("could not send error", e);
+        }
     }
 
     @Override
     protected void service(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
         final WebDavRequest webDavRequest = createWebDavRequestWrapper(request);
-        final WebDavResponse webDavResponse = createWebDavResponseWrapper(response, webDavRequest);
+        if ((!async && (executor == null)) || !request.isAsyncSupported() || isBlockingUpload(webDavRequest)) {
+            dispatch(request, response, webDavRequest);
+            return;
+        }
 
-        final WebDavDispatcher dispatcher = WebDavDispatcher.getInstance();
-        dispatcher.service(getWebDavStore(), webDavRequest, webDavResponse);
+        final AsyncContext context = request.startAsync();
+        context.setTimeout(0L); // transfers of any duration, dead clients are detected by the connection
+        if (executor != null) {
+            // blocking io is cheap on a virtual thread, so it reads the request body itself
+            execute(context, request, response, webDavRequest);
+            return;
+        }
+
+        if (!hasBody(request)) {
+            dispatch(request, response, webDavRequest);
+            return;
+        }
+
+        // the method is dispatched once the complete body has been received
+        final File directory = (File) getServletContext().getAttribute(ServletContext.TEMPDIR);
+        final long limit = webDavRequest.getConfig().getMaxRequestBodySize();
+        final ServletInputStream input = request.getInputStream();
+        input.setReadListener(new AsyncRequestReader(context, input, directory, limit, body -> dispatch(request, response, new SpooledWebDavRequest(webDavRequest, body))));
     }
 }
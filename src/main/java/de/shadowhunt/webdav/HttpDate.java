@@ -0,0 +1,58 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.TimeZone;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.time.FastDateFormat;
+
+public final class HttpDate {
+
+    // IMF-fixdate (RFC 7231) must not depend on the default time zone or locale of the JVM
+    private static final FastDateFormat FORMAT = FastDateFormat.getInstance("EEE, dd MMM yyyy HH:mm:ss zzz", TimeZone.getTimeZone("GMT"), Locale.US);
+
+    public static String format(final Date date) {
+        return FORMAT.format(date);
+    }
+
+    public static Optional<Date> parse(@Nullable final String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(FORMAT.parse(value.trim()));
+        } catch (final ParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    // http dates only have a resolution of seconds
+    public static long toSeconds(final Date date) {
+        return date.getTime() / 1000L;
+    }
+
+    private HttpDate() {
+        // prevent instantiation
+    }
+}
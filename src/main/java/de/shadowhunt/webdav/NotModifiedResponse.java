@@ -0,0 +1,42 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import de.shadowhunt.webdav.WebDavConstant.Header;
+import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.store.WebDavEntity;
+
+class NotModifiedResponse implements WebDavResponseWriter {
+
+    private final WebDavEntity entity;
+
+    NotModifiedResponse(final WebDavEntity entity) {
+        this.entity = entity;
+    }
+
+    @Override
+    public void write(final WebDavResponse response) throws IOException {
+        // validators must be repeated, so caches can update their stored response
+        final Optional<String> etag = entity.getEtag();
+        etag.ifPresent(x -> response.addHeader(Header.ETAG, x));
+        response.addHeader(Header.LAST_MODIFIED, HttpDate.format(entity.getLastModified()));
+        response.setStatus(Status.NOT_MODIFIED);
+    }
+}
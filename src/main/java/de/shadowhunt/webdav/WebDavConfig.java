@@ -25,6 +25,12 @@ public interface WebDavConfig {
 
     Optional<String> getCssForCollectionListings();
 
+    /**
+     * @return the maximal number of bytes of a request body that is parsed as xml, a value {@code <= 0} disables the
+     *         limit
+     */
+    long getMaxRequestBodySize();
+
     boolean isAllowInfiniteDepthRequests();
 
     boolean isReadOnly();
@@ -62,17 +62,25 @@ public final class WebDavConstant {
 
     public enum Header {
 
+        ACCEPT_RANGES("Accept-Ranges"), //
         ALLOW("Allow"), //
         CACHE_CONTROL("Cache-Control"), //
+        CONTENT_LENGTH("Content-Length"), //
+        CONTENT_RANGE("Content-Range"), //
         DAV("DAV"), //
         DEPTH("Depth"), //
         DESTINATION("Destination"), //
         ETAG("ETag"), //
+        IF_MODIFIED_SINCE("If-Modified-Since"), //
+        IF_NONE_MATCH("If-None-Match"), //
+        IF_RANGE("If-Range"), //
         LAST_MODIFIED("Last-Modified"), //
         LOCK_TOKEN("Lock-Token"), //
         MS_AUTHOR("MS-Author-Via"), //
         OVERRIDE("Overwrite"), //
         PRECONDITION("If"), //
+        RANGE("Range"), //
+        REQUEST_ID("X-Request-Id"), //
         TIMEOUT("Timeout");
 
         public final String value;
@@ -95,8 +103,13 @@ public final class WebDavConstant {
         NO_CONTENT(204), //
         NOT_FOUND(404), //
         NOT_IMPLEMENTED(501), //
+        NOT_MODIFIED(304), //
         OK(200), //
+        PARTIAL_CONTENT(206), //
         PRECONDITION_FAILED(412), //
+        REQUEST_ENTITY_TOO_LARGE(413), //
+        REQUESTED_RANGE_NOT_SATISFIABLE(416), //
+        SERVICE_UNAVAILABLE(503), //
         UNAUTHORIZED(401), //
         UNSUPPORTED_MEDIA_TYPE(415);
 
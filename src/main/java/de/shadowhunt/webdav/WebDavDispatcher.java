@@ -17,18 +17,22 @@
 package de.shadowhunt.webdav;
 
 import java.io.IOException;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.ServiceLoader;
-import java.util.UUID;
 
+import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavConstant.Status;
 import de.shadowhunt.webdav.method.WebDavMethod;
 import de.shadowhunt.webdav.method.WebDavMethod.Method;
 import de.shadowhunt.webdav.precondition.Precondition;
+import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavStore;
 import de.shadowhunt.webdav.store.WebDavStore.Access;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,8 +40,12 @@ public final class WebDavDispatcher {
 
     private static final WebDavDispatcher INSTANCE = new WebDavDispatcher();
 
+    private static final String ANY_ETAG = "*";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(WebDavDispatcher.class);
 
+    private static final String WEAK_ETAG_PREFIX = "W/";
+
     public static WebDavDispatcher getInstance() {
         return INSTANCE;
     }
@@ -61,11 +69,69 @@ public final class WebDavDispatcher {
         }
     }
 
+    // only uses entity meta data, the content is never touched
+    Optional<WebDavResponseWriter> checkNotModified(final WebDavMethod method, final WebDavStore store, final WebDavRequest request) {
+        final Method type = method.getMethod();
+        if ((type != Method.GET) && (type != Method.HEAD)) {
+            return Optional.empty();
+        }
+
+        final String ifNoneMatch = request.getHeader(Header.IF_NONE_MATCH, null);
+        final String ifModifiedSince = request.getHeader(Header.IF_MODIFIED_SINCE, null);
+        if ((ifNoneMatch == null) && (ifModifiedSince == null)) {
+            return Optional.empty();
+        }
+
+        final WebDavPath path = request.getPath();
+        if (!store.exists(path)) {
+            return Optional.empty();
+        }
+
+        final WebDavEntity entity = store.getEntity(path);
+        if (entity.getType() != WebDavEntity.Type.ITEM) {
+            return Optional.empty(); // listings depend on the children
+        }
+
+        // If-Modified-Since must be ignored if If-None-Match is present
+        if (ifNoneMatch != null) {
+            if (matchesEtag(ifNoneMatch, entity)) {
+                return Optional.of(new NotModifiedResponse(entity));
+            }
+            return Optional.empty();
+        }
+
+        final Optional<Date> since = HttpDate.parse(ifModifiedSince);
+        if (since.isPresent() && (HttpDate.toSeconds(entity.getLastModified()) <= HttpDate.toSeconds(since.get()))) {
+            return Optional.of(new NotModifiedResponse(entity));
+        }
+        return Optional.empty();
+    }
+
     WebDavMethod determineWebDavMethod(final WebDavRequest request) {
         final Method method = request.getMethod();
         return dispatcher.get(method);
     }
 
+    // If-None-Match uses the weak comparison
+    private boolean matchesEtag(final String ifNoneMatch, final WebDavEntity entity) {
+        if (ANY_ETAG.equals(ifNoneMatch.trim())) {
+            return true;
+        }
+
+        final Optional<String> etag = entity.getEtag();
+        if (!etag.isPresent()) {
+            return false;
+        }
+
+        for (final String candidate : StringUtils.split(ifNoneMatch, ',')) {
+            final String opaque = StringUtils.removeStart(candidate.trim(), WEAK_ETAG_PREFIX);
+            if (etag.get().equals(StringUtils.strip(opaque, "\""))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void service(final WebDavStore store, final WebDavRequest request, final WebDavResponse response) throws IOException {
         try {
             final WebDavMethod method = determineWebDavMethod(request);
@@ -78,7 +144,8 @@ public final class WebDavDispatcher {
 
             verifyConsistency(request, response);
 
-            final WebDavResponseWriter webDavResponse = method.service(store, request);
+            final Optional<WebDavResponseWriter> notModified = checkNotModified(method, store, request);
+            final WebDavResponseWriter webDavResponse = notModified.isPresent() ? notModified.get() : method.service(store, request);
             webDavResponse.write(response);
         } catch (final WebDavException e) {
             LOGGER.warn("request failed", e);
@@ -90,7 +157,7 @@ public final class WebDavDispatcher {
     }
 
     void verifyConsistency(final WebDavRequest request, final WebDavResponse response) {
-        final UUID requestId = response.getRequest().getId();
+        final String requestId = response.getRequest().getId();
         if (!request.getId().equals(requestId)) {
             throw new WebDavException("response does not belong to the request", Status.INTERNAL_SERVER_ERROR);
         }
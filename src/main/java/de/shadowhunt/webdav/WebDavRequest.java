@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.Principal;
 import java.util.Optional;
-import java.util.UUID;
 
 import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.method.WebDavMethod.Method;
@@ -33,7 +32,7 @@ public interface WebDavRequest {
 
     String getHeader(Header header, String defaultValue);
 
-    UUID getId();
+    String getId();
 
     InputStream getInputStream() throws IOException;
 
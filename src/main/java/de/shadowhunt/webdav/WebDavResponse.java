@@ -17,7 +17,9 @@
 package de.shadowhunt.webdav;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 
 import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavConstant.Status;
@@ -30,6 +32,25 @@ public interface WebDavResponse {
 
     WebDavRequest getRequest();
 
+    /**
+     * Hand the given content over to be transferred without blocking the calling thread.
+     *
+     * @param content
+     *            the content to transfer, on success the {@link WebDavResponse} becomes responsible for closing it
+     *
+     * @return {@code true} if the content will be transferred, {@code false} if the caller must write it to the
+     *         {@link OutputStream} itself
+     */
+    boolean sendContent(InputStream content);
+
+    /**
+     * Let the container transfer the given part of the file after the request has been handled. The container opens
+     * the file by name, content that has already been opened must be handed to {@link #sendContent(InputStream)}.
+     *
+     * @return {@code true} if the container transfers the file, {@code false} if the caller must transfer it itself
+     */
+    boolean sendFile(Path file, long offset, long length);
+
     void setCharacterEncoding(String charset);
 
     void setContentType(String contentType);
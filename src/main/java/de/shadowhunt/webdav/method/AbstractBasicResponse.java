@@ -26,6 +26,7 @@ import java.util.TreeSet;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
+import de.shadowhunt.webdav.HttpDate;
 import de.shadowhunt.webdav.WebDavConfig;
 import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavConstant.Status;
@@ -36,7 +37,6 @@ import de.shadowhunt.webdav.method.WebDavMethod.Method;
 import de.shadowhunt.webdav.store.WebDavEntity;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.FastDateFormat;
 
 abstract class AbstractBasicResponse implements WebDavResponseWriter {
 
@@ -48,8 +48,6 @@ abstract class AbstractBasicResponse implements WebDavResponseWriter {
 
     public static final String DEFAULT_ENCODING = DEFAULT_CHARSET.name();
 
-    private static final FastDateFormat HTTP_DATE_FORMATTER = FastDateFormat.getInstance("EEE, dd MMM yyyy HH:mm:ss zzz");
-
     private static final String ITEM;
 
     private static final String ITEM_READ_ONLY;
@@ -58,6 +56,10 @@ abstract class AbstractBasicResponse implements WebDavResponseWriter {
 
     private static final String NON_EXISTING_READ_ONLY;
 
+    static final byte[] STATUS_NOT_FOUND = Utf8XmlWriter.encode("HTTP/1.1 404 Not Found");
+
+    static final byte[] STATUS_OK = Utf8XmlWriter.encode("HTTP/1.1 200 OK");
+
     static {
         final Set<Method> nonExistingOperations = new TreeSet<>();
         nonExistingOperations.add(Method.OPTIONS);
@@ -207,6 +209,17 @@ abstract class AbstractBasicResponse implements WebDavResponseWriter {
         };
     }
 
+    public static final WebDavResponseWriter createRequestedRangeNotSatisfiable(final WebDavEntity entity) {
+        return new AbstractBasicResponse(entity) {
+
+            @Override
+            protected void write0(final WebDavResponse response) throws IOException {
+                response.addHeader(Header.CONTENT_RANGE, ByteRange.UNIT + " */" + entity.getSize());
+                response.setStatus(Status.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+        };
+    }
+
     public static final WebDavResponseWriter createUnsupportedMediaType(@Nullable final WebDavEntity entity) {
         return new AbstractBasicResponse(entity) {
 
@@ -245,7 +258,7 @@ abstract class AbstractBasicResponse implements WebDavResponseWriter {
             final Optional<String> etag = entity.getEtag();
             etag.ifPresent(x -> response.addHeader(Header.ETAG, x));
 
-            response.addHeader(Header.LAST_MODIFIED, HTTP_DATE_FORMATTER.format(entity.getLastModified()));
+            response.addHeader(Header.LAST_MODIFIED, HttpDate.format(entity.getLastModified()));
         }
         write0(response);
     }
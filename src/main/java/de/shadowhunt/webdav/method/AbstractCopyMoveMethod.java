@@ -112,10 +112,17 @@ public abstract class AbstractCopyMoveMethod extends AbstractWebDavMethod {
         }
 
         checkUp(store, source.getParent(), tokens);
-        copy(store, source, target, depth.value);
 
-        if (deleteSource) {
-            DeleteMethod.delete(store, source, Depth.INFINITY.value, tokens);
+        // copy and delete every single resource only if the store can not move or copy the whole tree at once
+        final boolean moved = deleteSource && (Depth.INFINITY == depth) && store.move(source, target);
+        if (!moved) {
+            if (!store.copy(source, target, depth.value)) {
+                copy(store, source, target, depth.value);
+            }
+
+            if (deleteSource) {
+                DeleteMethod.delete(store, source, Depth.INFINITY.value, tokens);
+            }
         }
 
         if (targetExistsBefore) {
@@ -38,37 +38,43 @@ abstract class AbstractWebDavMethod implements WebDavMethod {
             throw new WebDavException("no depth left to check child: " + path);
         }
 
-        final WebDavEntity entity = store.getEntity(path);
-        checkLockTokenOnEntity(entity, tokens);
-
-        for (final WebDavPath child : store.list(path)) {
-            checkDown(store, child, depth - 1, tokens);
+        final int maxSegments = path.getSegments().length + depth;
+        for (final Map.Entry<WebDavPath, WebDavLock> entry : store.getLocks(path).entrySet()) {
+            final WebDavPath locked = entry.getKey();
+            if (locked.getSegments().length <= maxSegments) {
+                checkLockToken(locked, entry.getValue(), tokens);
+            }
         }
     }
 
-    protected static void checkLockTokenOnEntity(final WebDavEntity entity, final Map<WebDavPath, UUID> tokens) {
-        final Optional<WebDavLock> lock = entity.getLock();
-        if (!lock.isPresent()) {
+    private static void checkLockToken(final WebDavPath path, final WebDavLock lock, final Map<WebDavPath, UUID> tokens) {
+        final UUID lockToken = lock.getToken();
+        if (lockToken.equals(tokens.get(path))) {
             return;
         }
+        throw new WebDavException("no suitable lock token provided", Status.LOCKED);
+    }
 
-        final UUID entityLockToken = lock.get().getToken();
-        if (entityLockToken.equals(tokens.get(entity.getPath()))) {
-            return;
+    protected static void checkLockTokenOnEntity(final WebDavEntity entity, final Map<WebDavPath, UUID> tokens) {
+        final Optional<WebDavLock> lock = entity.getLock();
+        if (lock.isPresent()) {
+            checkLockToken(entity.getPath(), lock.get(), tokens);
         }
-        throw new WebDavException("no suitable lock token provided", Status.LOCKED);
     }
 
     protected static void checkUp(final WebDavStore store, final WebDavPath path, final Map<WebDavPath, UUID> tokens) {
-        final WebDavEntity entity = store.getEntity(path);
-        checkLockTokenOnEntity(entity, tokens);
+        WebDavPath current = path;
+        while (true) {
+            final Optional<WebDavLock> lock = store.getLock(current);
+            if (lock.isPresent()) {
+                checkLockToken(current, lock.get(), tokens);
+            }
 
-        if (WebDavPath.ROOT.equals(path)) {
-            return;
+            if (WebDavPath.ROOT.equals(current)) {
+                return;
+            }
+            current = current.getParent();
         }
-
-        final WebDavPath parent = path.getParent();
-        checkUp(store, parent, tokens);
     }
 
     protected Depth determineDepth(final WebDavRequest request, final Depth... allowed) {
@@ -0,0 +1,145 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.apache.commons.lang3.StringUtils;
+
+@Immutable
+final class ByteRange {
+
+    static final int MAX_RANGES = 32;
+
+    private static final String PREFIX = "bytes=";
+
+    static final String UNIT = "bytes";
+
+    // overlapping or adjacent ranges are merged (RFC 7233 section 4.1), so no byte is transferred twice
+    private static List<ByteRange> coalesce(final List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+
+        final List<ByteRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(x -> x.first));
+
+        final List<ByteRange> coalesced = new ArrayList<>(sorted.size());
+        ByteRange current = sorted.get(0);
+        for (final ByteRange next : sorted.subList(1, sorted.size())) {
+            if (next.first <= (current.last + 1L)) {
+                current = new ByteRange(current.first, Math.max(current.last, next.last));
+            } else {
+                coalesced.add(current);
+                current = next;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+
+    private static boolean isEmptyOrNumeric(final String value) {
+        return value.isEmpty() || StringUtils.isNumeric(value);
+    }
+
+    /**
+     * Parses the value of a {@code Range} header for an entity with the given size.
+     *
+     * @return {@link Optional#empty()} if the header must be ignored (syntax error, unsupported unit, too many ranges),
+     *         an empty {@link List} if none of the ranges can be satisfied, otherwise the satisfiable ranges in
+     *         ascending order with overlapping and adjacent ranges merged
+     */
+    static Optional<List<ByteRange>> parse(final String header, final long size) {
+        if (!header.toLowerCase(Locale.US).startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+
+        final String[] specs = StringUtils.split(header.substring(PREFIX.length()), ',');
+        if ((specs.length == 0) || (specs.length > MAX_RANGES)) {
+            return Optional.empty();
+        }
+
+        final List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (final String spec : specs) {
+            final String trimmed = spec.trim();
+            final int dash = trimmed.indexOf('-');
+            if (dash < 0) {
+                return Optional.empty();
+            }
+
+            final String firstValue = trimmed.substring(0, dash).trim();
+            final String lastValue = trimmed.substring(dash + 1).trim();
+            if (!isEmptyOrNumeric(firstValue) || !isEmptyOrNumeric(lastValue)) {
+                return Optional.empty();
+            }
+
+            try {
+                if (firstValue.isEmpty()) {
+                    if (lastValue.isEmpty()) {
+                        return Optional.empty();
+                    }
+                    // suffix range: last n bytes
+                    final long suffix = Long.parseLong(lastValue);
+                    if ((suffix > 0L) && (size > 0L)) {
+                        ranges.add(new ByteRange(Math.max(0L, size - suffix), size - 1L));
+                    }
+                    continue;
+                }
+
+                final long first = Long.parseLong(firstValue);
+                final long last = lastValue.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastValue);
+                if (last < first) {
+                    return Optional.empty();
+                }
+                if (first < size) {
+                    ranges.add(new ByteRange(first, Math.min(last, size - 1L)));
+                }
+            } catch (final NumberFormatException e) {
+                return Optional.empty(); // values exceed long
+            }
+        }
+        return Optional.of(coalesce(ranges));
+    }
+
+    final long first;
+
+    final long last;
+
+    ByteRange(final long first, final long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    long getLength() {
+        return (last - first) + 1L;
+    }
+
+    String toContentRange(final long size) {
+        return UNIT + " " + first + "-" + last + "/" + size;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteRange [first=" + first + ", last=" + last + "]";
+    }
+}
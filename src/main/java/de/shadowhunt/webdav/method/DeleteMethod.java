@@ -26,28 +26,32 @@ import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.WebDavRequest;
 import de.shadowhunt.webdav.WebDavResponseWriter;
 import de.shadowhunt.webdav.store.WebDavEntity;
+import de.shadowhunt.webdav.store.WebDavEntity.Type;
 import de.shadowhunt.webdav.store.WebDavStore;
 
 public class DeleteMethod extends AbstractWebDavMethod {
 
     static void delete(final WebDavStore store, final WebDavPath path, final int depth, final Map<WebDavPath, UUID> tokens) {
         checkUp(store, path, tokens);
-        for (final WebDavPath child : store.list(path)) {
+        for (final WebDavEntity child : store.listEntities(path)) {
             delete0(store, child, depth - 1, tokens);
         }
         store.delete(path);
     }
 
-    static void delete0(final WebDavStore store, final WebDavPath path, final int depth, final Map<WebDavPath, UUID> tokens) {
+    static void delete0(final WebDavStore store, final WebDavEntity entity, final int depth, final Map<WebDavPath, UUID> tokens) {
+        final WebDavPath path = entity.getPath();
         if (depth < 0) {
             throw new WebDavException("no depth left to delete child: " + path);
         }
 
-        final WebDavEntity entity = store.getEntity(path);
+        // all ancestors have already been checked, only the entity itself is left
         checkLockTokenOnEntity(entity, tokens);
 
-        for (final WebDavPath child : store.list(path)) {
-            delete(store, child, depth - 1, tokens);
+        if (Type.COLLECTION == entity.getType()) {
+            for (final WebDavEntity child : store.listEntities(path)) {
+                delete0(store, child, depth - 1, tokens);
+            }
         }
         store.delete(path);
     }
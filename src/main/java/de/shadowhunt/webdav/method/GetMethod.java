@@ -16,26 +16,53 @@
  */
 package de.shadowhunt.webdav.method;
 
-import java.io.InputStream;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
+import de.shadowhunt.webdav.HttpDate;
 import de.shadowhunt.webdav.WebDavConfig;
+import de.shadowhunt.webdav.WebDavConstant.Header;
+import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.WebDavException;
 import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.WebDavRequest;
 import de.shadowhunt.webdav.WebDavResponseWriter;
 import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavStore;
 
+import org.apache.commons.lang3.StringUtils;
+
 public class GetMethod extends AbstractWebDavMethod {
 
-    protected List<WebDavEntity> getEntities(final WebDavStore store, final WebDavPath path) {
-        final List<WebDavPath> children = store.list(path);
-        final List<WebDavEntity> result = new ArrayList<>(children.size());
-        for (final WebDavPath child : children) {
-            result.add(store.getEntity(child));
+    private static final int MAX_ATTEMPTS = 8;
+
+    private static final String WEAK_ETAG_PREFIX = "W/";
+
+    private static boolean isSameVersion(final WebDavEntity entity, final WebDavEntity current) {
+        return (entity.getType() == current.getType()) //
+                && (entity.getSize() == current.getSize()) //
+                && entity.getLastModified().equals(current.getLastModified()) //
+                && entity.getEtag().equals(current.getEtag());
+    }
+
+    // empty: serve complete entity, empty list: no range can be satisfied
+    private Optional<List<ByteRange>> determineRanges(final WebDavRequest request, final WebDavEntity entity) {
+        final String range = request.getHeader(Header.RANGE, null);
+        if (range == null) {
+            return Optional.empty();
         }
-        return result;
+
+        final String ifRange = request.getHeader(Header.IF_RANGE, null);
+        if ((ifRange != null) && !isUnchanged(ifRange.trim(), entity)) {
+            return Optional.empty();
+        }
+        return ByteRange.parse(range, entity.getSize());
+    }
+
+    protected List<WebDavEntity> getEntities(final WebDavStore store, final WebDavPath path) {
+        return store.listEntities(path);
     }
 
     @Override
@@ -43,6 +70,24 @@ public class GetMethod extends AbstractWebDavMethod {
         return Method.GET;
     }
 
+    // If-Range only allows strong validators
+    private boolean isUnchanged(final String ifRange, final WebDavEntity entity) {
+        if (ifRange.startsWith(WEAK_ETAG_PREFIX)) {
+            return false;
+        }
+
+        final Optional<String> etag = entity.getEtag();
+        if (etag.isPresent() && etag.get().equals(StringUtils.strip(ifRange, "\""))) {
+            return true;
+        }
+
+        final Optional<Date> date = HttpDate.parse(ifRange);
+        if (date.isPresent()) {
+            return HttpDate.toSeconds(entity.getLastModified()) == HttpDate.toSeconds(date.get());
+        }
+        return false;
+    }
+
     @Override
     public WebDavResponseWriter service(final WebDavStore store, final WebDavRequest request) {
         final WebDavPath target = request.getPath();
@@ -50,11 +95,26 @@ public class GetMethod extends AbstractWebDavMethod {
             return AbstractBasicResponse.createNotFound();
         }
 
-        final WebDavEntity entity = store.getEntity(target);
-        final WebDavEntity.Type type = entity.getType();
-        if (type == WebDavEntity.Type.ITEM) {
-            final InputStream content = store.getContent(target);
-            return new StreamingResponse(entity, content);
+        // the entity is loaded again once the content has been opened, headers and content must describe one version
+        WebDavEntity entity = store.getEntity(target);
+        for (int attempt = 0; (attempt < MAX_ATTEMPTS) && (entity.getType() == WebDavEntity.Type.ITEM); attempt++) {
+            final Optional<List<ByteRange>> ranges = determineRanges(request, entity);
+            if (ranges.isPresent() && ranges.get().isEmpty()) {
+                return AbstractBasicResponse.createRequestedRangeNotSatisfiable(entity);
+            }
+
+            final List<ByteRange> requested = ranges.orElse(Collections.emptyList());
+            final Optional<StreamingResponse> response = StreamingResponse.open(store, entity, requested);
+            final WebDavEntity current = store.getEntity(target);
+            if (response.isPresent() && isSameVersion(entity, current)) {
+                return response.get();
+            }
+            response.ifPresent(StreamingResponse::close);
+            entity = current;
+        }
+
+        if (entity.getType() == WebDavEntity.Type.ITEM) {
+            throw new WebDavException("content of " + target + " keeps changing", Status.SERVICE_UNAVAILABLE);
         }
 
         final WebDavConfig config = request.getConfig();
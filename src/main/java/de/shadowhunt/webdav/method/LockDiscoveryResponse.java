@@ -21,9 +21,7 @@ import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 
 import de.shadowhunt.webdav.WebDavConstant.Depth;
 import de.shadowhunt.webdav.WebDavConstant.Header;
@@ -57,9 +55,7 @@ class LockDiscoveryResponse extends AbstractBasicResponse {
         response.setStatus(status);
 
         try {
-            final XMLOutputFactory factory = XMLOutputFactory.newFactory();
-
-            final XMLStreamWriter writer = factory.createXMLStreamWriter(response.getOutputStream(), DEFAULT_ENCODING);
+            final Utf8XmlWriter writer = new Utf8XmlWriter(response.getOutputStream());
             writer.writeStartDocument(DEFAULT_ENCODING, "1.0");
             writer.setPrefix(PropertyIdentifier.DEFAULT_DAV_PREFIX, PropertyIdentifier.DAV_NAMESPACE);
             writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "prop");
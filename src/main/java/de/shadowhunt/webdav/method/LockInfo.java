@@ -0,0 +1,101 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.Immutable;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+import de.shadowhunt.webdav.store.WebDavLock.LockScope;
+import de.shadowhunt.webdav.store.WebDavLock.LockType;
+
+/**
+ * {@link LockInfo} holds the content of a {@code <D:lockinfo>} request body.
+ */
+@Immutable
+final class LockInfo {
+
+    /**
+     * A request without body refreshes the existing lock.
+     */
+    static final LockInfo REFRESH = new LockInfo(Optional.empty(), Optional.empty(), Optional.empty());
+
+    private static <T> Optional<T> firstChild(final XMLStreamReader reader, final Function<String, T> converter) throws XMLStreamException {
+        Optional<T> result = Optional.empty();
+        while (PropertiesMessageHelper.nextChild(reader)) {
+            if (!result.isPresent() && PropertyIdentifier.DAV_NAMESPACE.equals(reader.getNamespaceURI())) {
+                final String name = reader.getLocalName().toUpperCase(Locale.US);
+                try {
+                    result = Optional.of(converter.apply(name));
+                } catch (final IllegalArgumentException e) {
+                    result = Optional.empty(); // unknown value, use default
+                }
+            }
+            PropertiesMessageHelper.skip(reader);
+        }
+        return result;
+    }
+
+    static LockInfo parse(final XMLStreamReader reader) throws XMLStreamException {
+        PropertiesMessageHelper.requireDavElement(reader, "lockinfo");
+
+        Optional<String> owner = Optional.empty();
+        Optional<LockScope> scope = Optional.empty();
+        Optional<LockType> type = Optional.empty();
+        while (PropertiesMessageHelper.nextChild(reader)) {
+            if (PropertiesMessageHelper.isDavElement(reader, "owner") && !owner.isPresent()) {
+                owner = Optional.of(PropertiesMessageHelper.getText(reader));
+            } else if (PropertiesMessageHelper.isDavElement(reader, "lockscope") && !scope.isPresent()) {
+                scope = firstChild(reader, LockScope::valueOf);
+            } else if (PropertiesMessageHelper.isDavElement(reader, "locktype") && !type.isPresent()) {
+                type = firstChild(reader, LockType::valueOf);
+            } else {
+                PropertiesMessageHelper.skip(reader);
+            }
+        }
+        return new LockInfo(owner, scope, type);
+    }
+
+    private final Optional<String> owner;
+
+    private final Optional<LockScope> scope;
+
+    private final Optional<LockType> type;
+
+    private LockInfo(final Optional<String> owner, final Optional<LockScope> scope, final Optional<LockType> type) {
+        this.owner = owner;
+        this.scope = scope;
+        this.type = type;
+    }
+
+    public Optional<String> getOwner() {
+        return owner;
+    }
+
+    public Optional<LockScope> getScope() {
+        return scope;
+    }
+
+    public Optional<LockType> getType() {
+        return type;
+    }
+}
@@ -18,24 +18,16 @@ package de.shadowhunt.webdav.method;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
 import de.shadowhunt.webdav.WebDavConstant.Depth;
 import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavConstant.Status;
 import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.WebDavRequest;
 import de.shadowhunt.webdav.WebDavResponseWriter;
-import de.shadowhunt.webdav.property.PropertyIdentifier;
 import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavLock;
 import de.shadowhunt.webdav.store.WebDavLock.LockScope;
@@ -45,32 +37,10 @@ import de.shadowhunt.webdav.store.WebDavLockBuilder;
 import de.shadowhunt.webdav.store.WebDavStore;
 
 import org.apache.commons.lang3.StringUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 public class LockMethod extends AbstractWebDavMethod {
 
-    private static final XPathExpression LOCK_OWNER;
-
-    private static final XPathExpression LOCK_SCOPE;
-
-    private static final XPathExpression LOCK_TYPE;
-
-    static {
-        final XPathFactory factory = XPathFactory.newInstance();
-        final XPath xpath = factory.newXPath();
-        xpath.setNamespaceContext(PropertyIdentifier.DAV_NS_CONTEXT);
-        try {
-            LOCK_OWNER = xpath.compile("/D:lockinfo/D:owner");
-            LOCK_SCOPE = xpath.compile("/D:lockinfo/D:lockscope/*");
-            LOCK_TYPE = xpath.compile("/D:lockinfo/D:locktype/*");
-        } catch (final XPathExpressionException e) {
-            throw new ExceptionInInitializerError(e);
-        }
-    }
-
-    private WebDavLock determineLock(final WebDavStore store, final WebDavRequest request) throws IOException {
+    private WebDavLock determineLock(final WebDavStore store, final WebDavRequest request, final LockInfo lockInfo) throws IOException {
         final WebDavLockBuilder lockBuilder = store.createLockBuilder();
 
         final WebDavPath path = request.getPath();
@@ -79,19 +49,18 @@ public class LockMethod extends AbstractWebDavMethod {
         final Timeout timeout = getTimeout(request);
         lockBuilder.setTimeout(timeout);
 
-        final Document document = PropertiesMessageHelper.parse(request.getInputStream());
-        if (document != null) {
+        if (lockInfo != LockInfo.REFRESH) {
             final WebDavEntity entity = store.getEntity(path);
             final Map<WebDavPath, UUID> tokens = determineLockTokens(request);
             checkLockTokenOnEntity(entity, tokens);
 
-            final Optional<String> owner = getOwner(document);
+            final Optional<String> owner = lockInfo.getOwner();
             owner.ifPresent(x -> lockBuilder.setOwner(x));
 
-            final Optional<LockScope> scope = getScope(document);
+            final Optional<LockScope> scope = lockInfo.getScope();
             scope.ifPresent(x -> lockBuilder.setScope(x));
 
-            final Optional<LockType> type = getType(document);
+            final Optional<LockType> type = lockInfo.getType();
             type.ifPresent(x -> lockBuilder.setType(x));
             return lockBuilder.build();
         }
@@ -113,55 +82,11 @@ public class LockMethod extends AbstractWebDavMethod {
         return Method.LOCK;
     }
 
-    private Optional<String> getOwner(final Document document) {
-        try {
-            final Node node = (Node) LOCK_OWNER.evaluate(document, XPathConstants.NODE);
-            if (node == null) {
-                return Optional.empty();
-            }
-
-            final String owner = node.getTextContent();
-            return Optional.of(owner);
-        } catch (final Exception e) {
-            return Optional.empty();
-        }
-    }
-
-    private Optional<LockScope> getScope(final Document document) {
-        try {
-            final NodeList nodelist = (NodeList) LOCK_SCOPE.evaluate(document, XPathConstants.NODESET);
-            if (nodelist.getLength() <= 0) {
-                return Optional.empty();
-            }
-            final Node node = nodelist.item(0);
-            final String name = node.getLocalName().toUpperCase(Locale.US);
-            final LockScope scope = LockScope.valueOf(name);
-            return Optional.of(scope);
-        } catch (final Exception e) {
-            return Optional.empty();
-        }
-    }
-
     private Timeout getTimeout(final WebDavRequest request) {
         final String timeout = StringUtils.trimToEmpty(request.getHeader(Header.TIMEOUT, Timeout.INFINITE_STRING));
         return Timeout.parse(timeout);
     }
 
-    private Optional<LockType> getType(final Document document) {
-        try {
-            final NodeList nodelist = (NodeList) LOCK_TYPE.evaluate(document, XPathConstants.NODESET);
-            if (nodelist.getLength() <= 0) {
-                return Optional.empty();
-            }
-            final Node node = nodelist.item(0);
-            final String name = node.getLocalName().toUpperCase(Locale.US);
-            final LockType type = LockType.valueOf(name);
-            return Optional.of(type);
-        } catch (final XPathExpressionException e) {
-            return Optional.empty();
-        }
-    }
-
     private WebDavEntity lockRecursively(final WebDavStore store, final int depth, final WebDavPath path, final WebDavLock lock) {
         if (depth > 0) {
             for (final WebDavPath child : store.list(path)) {
@@ -173,15 +98,19 @@ public class LockMethod extends AbstractWebDavMethod {
 
     @Override
     public WebDavResponseWriter service(final WebDavStore store, final WebDavRequest request) throws IOException {
-        Status status = Status.OK;
-
         final WebDavPath path = request.getPath();
+        final LockInfo lockInfo = PropertiesMessageHelper.parse(request, LockInfo::parse, LockInfo.REFRESH);
+        if (lockInfo == null) {
+            return AbstractBasicResponse.createBadRequest(store.exists(path) ? store.getEntity(path) : null);
+        }
+
+        Status status = Status.OK;
         if (!store.exists(path)) {
             store.createItem(path, new ByteArrayInputStream(new byte[0]));
             status = Status.CREATED;
         }
 
-        final WebDavLock lock = determineLock(store, request);
+        final WebDavLock lock = determineLock(store, request, lockInfo);
         final WebDavEntity lockedEntity = lockRecursively(store, lock.getDepth().value, path, lock);
         return new LockDiscoveryResponse(lockedEntity, status);
     }
@@ -0,0 +1,100 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * {@link NameSpacePrefixes} assigns prefixes while a multistatus response is streamed. Name spaces known upfront are
+ * declared once on the root element with stable prefixes, all others are declared on the response element that uses
+ * them and are forgotten afterwards, so memory does not grow with the number of responses.
+ */
+@NotThreadSafe
+final class NameSpacePrefixes {
+
+    private final Map<String, String> local = new HashMap<>();
+
+    // sorted by name space, so the root declarations are written in a stable order
+    private final Map<String, String> root = new TreeMap<>();
+
+    NameSpacePrefixes() {
+        root.put(PropertyIdentifier.DAV_NAMESPACE, PropertyIdentifier.DEFAULT_DAV_PREFIX);
+    }
+
+    /**
+     * Add a name space that will be declared on the root element, must be called before {@link #declareRoot(XMLStreamWriter)}.
+     *
+     * @param nameSpace
+     *            the name space to add, empty name spaces are ignored
+     */
+    void announce(final String nameSpace) {
+        if (StringUtils.isEmpty(nameSpace) || root.containsKey(nameSpace)) {
+            return;
+        }
+        root.put(nameSpace, "ns" + root.size());
+    }
+
+    /**
+     * Declare the name space on the current response element, unless it is already declared on the root or the
+     * current response element.
+     *
+     * @param writer
+     *            the {@link XMLStreamWriter} that has just written the start of a response element
+     * @param nameSpace
+     *            the name space to declare
+     */
+    void declareLocal(final XMLStreamWriter writer, final String nameSpace) throws XMLStreamException {
+        if (StringUtils.isEmpty(nameSpace) || root.containsKey(nameSpace) || local.containsKey(nameSpace)) {
+            return;
+        }
+
+        final String prefix = "ns" + (root.size() + local.size());
+        writer.setPrefix(prefix, nameSpace);
+        writer.writeNamespace(prefix, nameSpace);
+        local.put(nameSpace, prefix);
+    }
+
+    /**
+     * Bind all announced name spaces and declare them on the root element.
+     *
+     * @param writer
+     *            the {@link XMLStreamWriter} that has just written the start of the root element
+     */
+    void declareRoot(final XMLStreamWriter writer) throws XMLStreamException {
+        for (final Map.Entry<String, String> entry : root.entrySet()) {
+            writer.setPrefix(entry.getValue(), entry.getKey());
+            writer.writeNamespace(entry.getValue(), entry.getKey());
+        }
+    }
+
+    /**
+     * Forget all local declarations, must be called when the response element is closed.
+     */
+    void endLocal() {
+        local.clear();
+    }
+}
@@ -22,18 +22,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
 import de.shadowhunt.webdav.WebDavConfig;
 import de.shadowhunt.webdav.WebDavConstant.Depth;
 import de.shadowhunt.webdav.WebDavPath;
@@ -48,11 +41,7 @@ import de.shadowhunt.webdav.store.SupportedLock;
 import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavStore;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.FastDateFormat;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 public class PropFindMethod extends AbstractWebDavMethod {
 
@@ -74,80 +63,57 @@ public class PropFindMethod extends AbstractWebDavMethod {
         }
     };
 
-    private static final XPathExpression ALL_EXPRESSION;
-
-    private static final XPathExpression NAME_EXPRESSION;
-
-    private static final XPathExpression PROPERTIES_EXPRESSION;
-
     private static final FastDateFormat RFC_882_FORMATTER = FastDateFormat.getInstance("EEE, dd MMM yyyy HH:mm:ss Z");
 
-    static {
-        final XPathFactory factory = XPathFactory.newInstance();
-        final XPath xpath = factory.newXPath();
-        xpath.setNamespaceContext(PropertyIdentifier.DAV_NS_CONTEXT);
-        try {
-            ALL_EXPRESSION = xpath.compile("/D:propfind/D:allprop");
-            PROPERTIES_EXPRESSION = xpath.compile("/D:propfind/D:prop/*");
-            NAME_EXPRESSION = xpath.compile("/D:propfind/D:propname");
-        } catch (final XPathExpressionException e) {
-            throw new ExceptionInInitializerError(e);
-        }
-    }
-
-    private static Collection<WebDavProperty> entityToProperties(final WebDavStore store, final WebDavPath path) {
-        final WebDavEntity entity = store.getEntity(path);
-
+    // only properties that have been requested are determined, as some of them are expensive to compute
+    private static Collection<WebDavProperty> entityToProperties(final WebDavStore store, final WebDavEntity entity, final Set<PropertyIdentifier> requested) {
         final Collection<WebDavProperty> result = new ArrayList<>();
-        result.add(new StringWebDavProperty(PropertyIdentifier.DISPLAY_NAME_IDENTIFIER, entity.getName()));
-        result.add(new StringWebDavProperty(PropertyIdentifier.CONTENT_LENGTH_IDENTIFIER, Long.toString(entity.getSize())));
-        result.add(new StringWebDavProperty(PropertyIdentifier.LAST_MODIFIED_IDENTIFIER, RFC_882_FORMATTER.format(entity.getLastModified())));
-        if (entity.getType() == WebDavEntity.Type.COLLECTION) {
+        if (requested.contains(PropertyIdentifier.DISPLAY_NAME_IDENTIFIER)) {
+            result.add(new StringWebDavProperty(PropertyIdentifier.DISPLAY_NAME_IDENTIFIER, entity.getName()));
+        }
+        if (requested.contains(PropertyIdentifier.CONTENT_LENGTH_IDENTIFIER)) {
+            result.add(new StringWebDavProperty(PropertyIdentifier.CONTENT_LENGTH_IDENTIFIER, Long.toString(entity.getSize())));
+        }
+        if (requested.contains(PropertyIdentifier.LAST_MODIFIED_IDENTIFIER)) {
+            result.add(new StringWebDavProperty(PropertyIdentifier.LAST_MODIFIED_IDENTIFIER, RFC_882_FORMATTER.format(entity.getLastModified())));
+        }
+        if ((entity.getType() == WebDavEntity.Type.COLLECTION) && requested.contains(PropertyIdentifier.RESOURCE_TYPE_IDENTIFIER)) {
             result.add(new CollectionProperty());
         }
 
-        final Optional<String> etag = entity.getEtag();
-        etag.ifPresent(x -> result.add(new StringWebDavProperty(PropertyIdentifier.ETAG_IDENTIFIER, etag.get())));
+        if (requested.contains(PropertyIdentifier.ETAG_IDENTIFIER)) {
+            final Optional<String> etag = entity.getEtag();
+            etag.ifPresent(x -> result.add(new StringWebDavProperty(PropertyIdentifier.ETAG_IDENTIFIER, etag.get())));
+        }
 
-        final Set<SupportedLock> supportedLocks = store.getSupportedLocks(path);
-        result.add(new SupportedLocksProperty(supportedLocks));
+        if (requested.contains(PropertyIdentifier.LOCK_IDENTIFIER)) {
+            final Set<SupportedLock> supportedLocks = store.getSupportedLocks(entity.getPath());
+            result.add(new SupportedLocksProperty(supportedLocks));
+        }
 
         return result;
-
     }
 
-    private boolean allProperties(final Document document) {
-        try {
-            final NodeList nodeList = (NodeList) ALL_EXPRESSION.evaluate(document, XPathConstants.NODESET);
-            return (nodeList.getLength() > 0);
-        } catch (final XPathExpressionException e) {
-            return false;
-        }
-    }
-
-    private void collectProperties(final WebDavStore store, final WebDavPath path, final int depth, final Map<WebDavPath, Collection<WebDavProperty>> map) {
-        if (depth < 0) {
-            return;
+    private static boolean isDeadPropertyRequested(final Set<PropertyIdentifier> requested) {
+        if (requested == ALL) {
+            return true;
         }
 
-        final Collection<WebDavProperty> liveProperties = entityToProperties(store, path);
-        final Collection<WebDavProperty> deadProperties = store.getProperties(path);
-        final Collection<WebDavProperty> merged = merge(liveProperties, deadProperties);
-        map.put(path, merged);
-        for (final WebDavPath child : store.list(path)) {
-            collectProperties(store, child, depth - 1, map);
+        for (final PropertyIdentifier identifier : requested) {
+            if (!PropertyIdentifier.SUPPORTED_LIVE_PROPERTIES.contains(identifier)) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private void collectPropertyNames(final WebDavStore store, final WebDavPath path, final int depth, final Map<WebDavPath, Collection<PropertyIdentifier>> map) {
-        if (depth < 0) {
-            return;
-        }
-
-        map.put(path, getPropertyIdentifiers(store, path));
-        for (final WebDavPath child : store.list(path)) {
-            collectPropertyNames(store, child, depth - 1, map);
+    private Collection<WebDavProperty> collectProperties(final WebDavStore store, final WebDavEntity entity, final Set<PropertyIdentifier> requested, final boolean dead) {
+        final Collection<WebDavProperty> liveProperties = entityToProperties(store, entity, requested);
+        if (!dead) {
+            return liveProperties; // the dead properties of the resource don't have to be loaded at all
         }
+        final Collection<WebDavProperty> deadProperties = store.getProperties(entity.getPath(), requested);
+        return merge(liveProperties, deadProperties);
     }
 
     @Override
@@ -167,32 +133,6 @@ public class PropFindMethod extends AbstractWebDavMethod {
         return result;
     }
 
-    private Set<PropertyIdentifier> getRequestedProperties(final Document document) {
-        try {
-            final NodeList nodes = (NodeList) PROPERTIES_EXPRESSION.evaluate(document, XPathConstants.NODESET);
-            final int length = nodes.getLength();
-            final Set<PropertyIdentifier> properties = new TreeSet<>();
-            for (int i = 0; i < length; i++) {
-                final Node node = nodes.item(i);
-                final String namespace = StringUtils.trimToEmpty(node.getNamespaceURI());
-                final String name = node.getLocalName();
-                properties.add(new PropertyIdentifier(namespace, name));
-            }
-            return properties;
-        } catch (final XPathExpressionException e) {
-            return Collections.emptySet();
-        }
-    }
-
-    private boolean listPropertyNames(final Document document) {
-        try {
-            final NodeList nodeList = (NodeList) NAME_EXPRESSION.evaluate(document, XPathConstants.NODESET);
-            return (nodeList.getLength() > 0);
-        } catch (final XPathExpressionException e) {
-            return false;
-        }
-    }
-
     private Collection<WebDavProperty> merge(final Collection<WebDavProperty> live, final Collection<WebDavProperty> dead) {
         final Collection<WebDavProperty> merged = new ArrayList<>(live.size() + dead.size());
         merged.addAll(live);
@@ -215,30 +155,25 @@ public class PropFindMethod extends AbstractWebDavMethod {
             return AbstractBasicResponse.createForbidden(entity);
         }
 
-        final Document document = PropertiesMessageHelper.parse(request.getInputStream());
-        if (document == null) {
+        final PropFindRequest propFind = PropertiesMessageHelper.parse(request, PropFindRequest::parse, PropFindRequest.ALL_PROPERTIES);
+        if (propFind == null) {
             return AbstractBasicResponse.createBadRequest(entity);
         }
 
-        if (listPropertyNames(document)) {
-            final Map<WebDavPath, Collection<PropertyIdentifier>> result = new TreeMap<>();
-            collectPropertyNames(store, target, depth.value, result);
+        if (propFind.isPropertyNames()) {
+            final Iterator<Entry<WebDavPath, Collection<PropertyIdentifier>>> result = new StoreTreeIterator<>(store, entity, depth.value, x -> getPropertyIdentifiers(store, x.getPath()));
             return new PropertyNameResponse(entity, request.getBase(), result);
         }
 
-        final Set<PropertyIdentifier> requested;
-        if (allProperties(document)) {
-            requested = ALL;
-        } else {
-            requested = getRequestedProperties(document);
-        }
+        final Set<PropertyIdentifier> requested = propFind.isAllProperties() ? ALL : propFind.getProperties();
 
         if (requested.isEmpty()) {
             return AbstractBasicResponse.createBadRequest(entity);
         }
 
-        final Map<WebDavPath, Collection<WebDavProperty>> result = new TreeMap<>();
-        collectProperties(store, target, depth.value, result);
+        // properties are collected lazily while the response is written
+        final boolean dead = isDeadPropertyRequested(requested);
+        final Iterator<Entry<WebDavPath, Collection<WebDavProperty>>> result = new StoreTreeIterator<>(store, entity, depth.value, x -> collectProperties(store, x, requested, dead));
         return new PropertiesResponse(entity, request.getBase(), requested, result);
     }
 }
@@ -0,0 +1,88 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.concurrent.Immutable;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+
+/**
+ * {@link PropFindRequest} holds the content of a {@code <D:propfind>} request body.
+ */
+@Immutable
+final class PropFindRequest {
+
+    /**
+     * A request without body must be treated like {@code <D:allprop>}.
+     */
+    static final PropFindRequest ALL_PROPERTIES = new PropFindRequest(true, false, new TreeSet<>());
+
+    static PropFindRequest parse(final XMLStreamReader reader) throws XMLStreamException {
+        PropertiesMessageHelper.requireDavElement(reader, "propfind");
+
+        boolean allProperties = false;
+        boolean propertyNames = false;
+        final Set<PropertyIdentifier> properties = new TreeSet<>();
+        while (PropertiesMessageHelper.nextChild(reader)) {
+            if (PropertiesMessageHelper.isDavElement(reader, "allprop")) {
+                allProperties = true;
+                PropertiesMessageHelper.skip(reader);
+            } else if (PropertiesMessageHelper.isDavElement(reader, "propname")) {
+                propertyNames = true;
+                PropertiesMessageHelper.skip(reader);
+            } else if (PropertiesMessageHelper.isDavElement(reader, "prop")) {
+                while (PropertiesMessageHelper.nextChild(reader)) {
+                    properties.add(PropertiesMessageHelper.getIdentifier(reader));
+                    PropertiesMessageHelper.skip(reader);
+                }
+            } else {
+                PropertiesMessageHelper.skip(reader);
+            }
+        }
+        return new PropFindRequest(allProperties, propertyNames, properties);
+    }
+
+    private final boolean allProperties;
+
+    private final Set<PropertyIdentifier> properties;
+
+    private final boolean propertyNames;
+
+    private PropFindRequest(final boolean allProperties, final boolean propertyNames, final Set<PropertyIdentifier> properties) {
+        this.allProperties = allProperties;
+        this.propertyNames = propertyNames;
+        this.properties = Collections.unmodifiableSet(properties);
+    }
+
+    public Set<PropertyIdentifier> getProperties() {
+        return properties;
+    }
+
+    public boolean isAllProperties() {
+        return allProperties;
+    }
+
+    public boolean isPropertyNames() {
+        return propertyNames;
+    }
+}
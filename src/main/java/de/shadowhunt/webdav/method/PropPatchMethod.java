@@ -18,14 +18,10 @@ package de.shadowhunt.webdav.method;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Optional;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.WebDavRequest;
@@ -38,10 +34,6 @@ import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavStore;
 
 import org.apache.commons.lang3.StringEscapeUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 public class PropPatchMethod extends AbstractWebDavMethod {
 
@@ -61,19 +53,6 @@ public class PropPatchMethod extends AbstractWebDavMethod {
         }
     }
 
-    private static final XPathExpression EXPRESSION;
-
-    static {
-        final XPathFactory factory = XPathFactory.newInstance();
-        final XPath xpath = factory.newXPath();
-        xpath.setNamespaceContext(PropertyIdentifier.DAV_NS_CONTEXT);
-        try {
-            EXPRESSION = xpath.compile("//D:prop/*");
-        } catch (final XPathExpressionException e) {
-            throw new ExceptionInInitializerError(e);
-        }
-    }
-
     @Override
     public Method getMethod() {
         return Method.PROPPATCH;
@@ -83,11 +62,6 @@ public class PropPatchMethod extends AbstractWebDavMethod {
         return PropertyIdentifier.DAV_NAMESPACE.equals(propertyIdentifier.getNameSpace());
     }
 
-    private boolean isSaveOrUpdate(final Node node) {
-        final Node parent = node.getParentNode().getParentNode(); // ... (<D:set>|<D:remove>)<prop> ...
-        return "set".equalsIgnoreCase(parent.getLocalName());
-    }
-
     @Override
     public WebDavResponseWriter service(final WebDavStore store, final WebDavRequest request) throws IOException {
         final WebDavPath path = request.getPath();
@@ -98,35 +72,27 @@ public class PropPatchMethod extends AbstractWebDavMethod {
         final WebDavEntity entity = store.getEntity(path);
         checkUp(store, path, determineLockTokens(request));
 
-        final Document document = PropertiesMessageHelper.parse(request.getInputStream());
-        if (document == null) {
+        final PropPatchRequest propPatch = PropertiesMessageHelper.parse(request, PropPatchRequest::parse);
+        if (propPatch == null) {
             return AbstractBasicResponse.createBadRequest(entity);
         }
 
         final Collection<WebDavProperty> properties = store.getProperties(path);
-        try {
-            final NodeList nodes = (NodeList) EXPRESSION.evaluate(document, XPathConstants.NODESET);
-            final int length = nodes.getLength();
-            for (int i = 0; i < length; i++) {
-                final Node node = nodes.item(i);
-                final String nameSpace = StringUtils.trimToEmpty(node.getNamespaceURI());
-                final String name = node.getLocalName();
-                final PropertyIdentifier propertyIdentifier = new PropertyIdentifier(nameSpace, name);
-
-                // DAV namespace is only for live property (can not be handled by client) => ignore silently
-                if (!isLiveProperty(propertyIdentifier)) {
-                    if (isSaveOrUpdate(node)) {
-                        final String content = StringEscapeUtils.unescapeXml(node.getTextContent());
-                        final StringWebDavProperty property = new StringWebDavProperty(propertyIdentifier, content);
-                        properties.remove(property); // remove old entry
-                        properties.add(property);
-                    } else {
-                        properties.remove(new DummyProperty(propertyIdentifier));
-                    }
+        for (final PropPatchRequest.Update update : propPatch.getUpdates()) {
+            final PropertyIdentifier propertyIdentifier = update.getIdentifier();
+
+            // DAV namespace is only for live property (can not be handled by client) => ignore silently
+            if (!isLiveProperty(propertyIdentifier)) {
+                final Optional<String> value = update.getValue();
+                if (value.isPresent()) {
+                    final String content = StringEscapeUtils.unescapeXml(value.get());
+                    final StringWebDavProperty property = new StringWebDavProperty(propertyIdentifier, content);
+                    properties.remove(property); // remove old entry
+                    properties.add(property);
+                } else {
+                    properties.remove(new DummyProperty(propertyIdentifier));
                 }
             }
-        } catch (final Exception e) {
-            return AbstractBasicResponse.createBadRequest(entity);
         }
 
         store.setProperties(path, properties);
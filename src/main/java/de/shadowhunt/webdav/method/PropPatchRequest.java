@@ -0,0 +1,103 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.concurrent.Immutable;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+
+/**
+ * {@link PropPatchRequest} holds the content of a {@code <D:propertyupdate>} request body.
+ */
+@Immutable
+final class PropPatchRequest {
+
+    /**
+     * Sets the property to the value if present, removes the property otherwise.
+     */
+    @Immutable
+    static final class Update {
+
+        private final PropertyIdentifier identifier;
+
+        private final Optional<String> value;
+
+        Update(final PropertyIdentifier identifier, final Optional<String> value) {
+            this.identifier = identifier;
+            this.value = value;
+        }
+
+        public PropertyIdentifier getIdentifier() {
+            return identifier;
+        }
+
+        public Optional<String> getValue() {
+            return value;
+        }
+    }
+
+    private static void collect(final XMLStreamReader reader, final List<Update> updates, final boolean set) throws XMLStreamException {
+        while (PropertiesMessageHelper.nextChild(reader)) {
+            if (!PropertiesMessageHelper.isDavElement(reader, "prop")) {
+                PropertiesMessageHelper.skip(reader);
+                continue;
+            }
+
+            while (PropertiesMessageHelper.nextChild(reader)) {
+                final PropertyIdentifier identifier = PropertiesMessageHelper.getIdentifier(reader);
+                final String value = PropertiesMessageHelper.getText(reader);
+                updates.add(new Update(identifier, set ? Optional.of(value) : Optional.empty()));
+            }
+        }
+    }
+
+    static PropPatchRequest parse(final XMLStreamReader reader) throws XMLStreamException {
+        PropertiesMessageHelper.requireDavElement(reader, "propertyupdate");
+
+        final List<Update> updates = new ArrayList<>();
+        while (PropertiesMessageHelper.nextChild(reader)) {
+            if (PropertiesMessageHelper.isDavElement(reader, "set")) {
+                collect(reader, updates, true);
+            } else if (PropertiesMessageHelper.isDavElement(reader, "remove")) {
+                collect(reader, updates, false);
+            } else {
+                PropertiesMessageHelper.skip(reader); // extension elements must be ignored
+            }
+        }
+        return new PropPatchRequest(updates);
+    }
+
+    private final List<Update> updates;
+
+    private PropPatchRequest(final List<Update> updates) {
+        this.updates = Collections.unmodifiableList(updates);
+    }
+
+    /**
+     * @return all updates in document order
+     */
+    public List<Update> getUpdates() {
+        return updates;
+    }
+}
@@ -16,50 +16,228 @@
  */
 package de.shadowhunt.webdav.method;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
 
 import javax.annotation.CheckForNull;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-import org.w3c.dom.Document;
-import org.xml.sax.ErrorHandler;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
+import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavRequest;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
 
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PropertiesMessageHelper} reads xml request bodies in a single pass with a {@link XMLStreamReader}. The
+ * {@link Parser} of each method turns the elements into a small immutable request model.
+ */
 public final class PropertiesMessageHelper {
 
-    private static final ErrorHandler QUIET_ERROR_HANDLER = new ErrorHandler() {
+    // keeps the start of a request body for the debug log
+    private static final class Excerpt extends ByteArrayOutputStream {
+
+        @Override
+        public synchronized String toString() {
+            return new String(buf, 0, count, StandardCharsets.UTF_8);
+        }
 
         @Override
-        public void error(final SAXParseException exception) throws SAXException {
-            // do nothing
+        public synchronized void write(final byte[] b, final int off, final int len) {
+            super.write(b, off, Math.min(len, MAX_EXCERPT - count));
         }
 
         @Override
-        public void fatalError(final SAXParseException exception) throws SAXException {
-            // do nothing
+        public synchronized void write(final int b) {
+            if (count < MAX_EXCERPT) {
+                super.write(b);
+            }
+        }
+    }
+
+    private static final class LimitedInputStream extends ProxyInputStream {
+
+        private long count = 0L;
+
+        private boolean exceeded = false;
+
+        private final long limit;
+
+        LimitedInputStream(final InputStream input, final long limit) {
+            super(input);
+            this.limit = limit;
         }
 
         @Override
-        public void warning(final SAXParseException exception) throws SAXException {
-            // do nothing
+        protected void afterRead(final int n) throws IOException {
+            if (n > 0) {
+                count += n;
+                if (count > limit) {
+                    exceeded = true;
+                    throw new IOException("request body exceeds " + limit + " bytes");
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the request model from the document, the {@link XMLStreamReader} is positioned on the start of the root
+     * element.
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+
+        T parse(XMLStreamReader reader) throws XMLStreamException;
+    }
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertiesMessageHelper.class);
+
+    private static final int MAX_EXCERPT = 4 * 1024;
+
+    private static void checkLimit(@CheckForNull final LimitedInputStream limited) {
+        if ((limited != null) && limited.exceeded) {
+            throw new WebDavException("request body exceeds " + limited.limit + " bytes", Status.REQUEST_ENTITY_TOO_LARGE);
         }
-    };
+    }
+
+    private static XMLInputFactory createFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        // request bodies never need a document type, refusing it rules out external and recursive entities
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
+    }
+
+    static PropertyIdentifier getIdentifier(final XMLStreamReader reader) {
+        final String nameSpace = StringUtils.trimToEmpty(reader.getNamespaceURI());
+        return new PropertyIdentifier(nameSpace, reader.getLocalName());
+    }
+
+    static String getText(final XMLStreamReader reader) throws XMLStreamException {
+        final StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if ((event == XMLStreamConstants.CHARACTERS) || (event == XMLStreamConstants.CDATA) || (event == XMLStreamConstants.SPACE)) {
+                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+        return text.toString();
+    }
+
+    static boolean isDavElement(final XMLStreamReader reader, final String name) {
+        return PropertyIdentifier.DAV_NAMESPACE.equals(reader.getNamespaceURI()) && name.equals(reader.getLocalName());
+    }
+
+    /**
+     * Move to the start of the next child element of the current element.
+     *
+     * @return {@code true} if the {@link XMLStreamReader} is positioned on the start of the next child, {@code false} if
+     *         it is positioned on the end of the current element
+     */
+    static boolean nextChild(final XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+    }
 
     @CheckForNull
-    public static Document parse(final InputStream inputStream) {
+    public static <T> T parse(final WebDavRequest request, final Parser<T> parser) throws IOException {
+        return parse(request, parser, null);
+    }
+
+    /**
+     * @param empty request model for a request without body
+     *
+     * @return the request model, {@code null} if the body is not well-formed or not understood by the {@link Parser}
+     */
+    @CheckForNull
+    public static <T> T parse(final WebDavRequest request, final Parser<T> parser, @CheckForNull final T empty) throws IOException {
+        final PushbackInputStream input = new PushbackInputStream(request.getInputStream());
+        final int first = input.read();
+        if (first < 0) {
+            return empty;
+        }
+        input.unread(first);
+
+        final Excerpt excerpt = LOGGER.isDebugEnabled() ? new Excerpt() : null;
+        final InputStream body = (excerpt == null) ? input : new TeeInputStream(input, excerpt);
+
+        final long limit = request.getConfig().getMaxRequestBodySize();
+        final LimitedInputStream limited = (limit > 0L) ? new LimitedInputStream(body, limit) : null;
         try {
-            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            final DocumentBuilder db = factory.newDocumentBuilder();
-            db.setErrorHandler(QUIET_ERROR_HANDLER);
-            return db.parse(inputStream);
-        } catch (final Exception e) {
+            final XMLStreamReader reader = FACTORY.createXMLStreamReader((limited == null) ? body : limited);
+            try {
+                reader.nextTag(); // fails on anything but comments and whitespace before the root element
+                final T result = parser.parse(reader);
+                while (reader.hasNext()) {
+                    reader.next(); // the remaining document must be well-formed, too
+                }
+                return result;
+            } finally {
+                reader.close();
+            }
+        } catch (final XMLStreamException e) {
+            // the reader wraps failures of the underlying stream, including the exceeded limit
+            checkLimit(limited);
+            final Throwable cause = (e.getNestedException() != null) ? e.getNestedException() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            LOGGER.debug("rejected request body of {}: {}", request.getId(), excerpt, e);
             return null;
         }
     }
 
+    /**
+     * Fails unless the {@link XMLStreamReader} is positioned on the start of the given element of the DAV namespace.
+     */
+    static void requireDavElement(final XMLStreamReader reader, final String name) throws XMLStreamException {
+        if (!isDavElement(reader, name)) {
+            throw new XMLStreamException("expected " + name + " but found " + reader.getName(), reader.getLocation());
+        }
+    }
+
+    /**
+     * Skip the current element including all its children.
+     */
+    static void skip(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
     private PropertiesMessageHelper() {
         // prevent instantiation
     }
@@ -18,14 +18,12 @@ package de.shadowhunt.webdav.method;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 
 import de.shadowhunt.webdav.WebDavConstant.Status;
 import de.shadowhunt.webdav.WebDavException;
@@ -41,51 +39,17 @@ class PropertiesResponse extends AbstractBasicResponse {
 
     private final String baseUri;
 
-    private final Map<WebDavPath, Collection<WebDavProperty>> entries;
+    private final Iterator<Entry<WebDavPath, Collection<WebDavProperty>>> entries;
 
     private final Set<PropertyIdentifier> requested;
 
-    PropertiesResponse(final WebDavEntity entity, final String baseUri, final Set<PropertyIdentifier> requested, final Map<WebDavPath, Collection<WebDavProperty>> entries) {
+    PropertiesResponse(final WebDavEntity entity, final String baseUri, final Set<PropertyIdentifier> requested, final Iterator<Entry<WebDavPath, Collection<WebDavProperty>>> entries) {
         super(entity);
         this.baseUri = baseUri;
         this.requested = requested;
         this.entries = entries;
     }
 
-    private void announce(final XMLStreamWriter writer, final PropertyIdentifier identifier, final Map<String, String> prefixes) throws XMLStreamException {
-        final String nameSpace = identifier.getNameSpace();
-        if (prefixes.containsKey(nameSpace)) {
-            return;
-        }
-
-        if (StringUtils.isEmpty(nameSpace)) {
-            return;
-        }
-
-        final String prefix = "ns" + prefixes.size();
-        writer.setPrefix(prefix, nameSpace);
-        prefixes.put(nameSpace, prefix);
-    }
-
-    private Map<String, String> announceNameSpacePrefixes(final XMLStreamWriter writer) throws XMLStreamException {
-        final Map<String, String> prefixes = new TreeMap<>();
-        writer.setPrefix(PropertyIdentifier.DEFAULT_DAV_PREFIX, PropertyIdentifier.DAV_NAMESPACE);
-        prefixes.put(PropertyIdentifier.DAV_NAMESPACE, PropertyIdentifier.DEFAULT_DAV_PREFIX);
-
-        final Set<PropertyIdentifier> all = new TreeSet<>();
-        all.addAll(requested);
-        for (final Collection<WebDavProperty> properties : entries.values()) {
-            for (final WebDavProperty property : properties) {
-                all.add(property.getIdentifier());
-            }
-        }
-
-        for (final PropertyIdentifier identifier : all) {
-            announce(writer, identifier, prefixes);
-        }
-        return prefixes;
-    }
-
     private Collection<WebDavProperty> getAvailable(final Collection<WebDavProperty> properties) {
         final Collection<WebDavProperty> available = new TreeSet<>();
 
@@ -115,24 +79,32 @@ class PropertiesResponse extends AbstractBasicResponse {
         response.setStatus(Status.MULTI_STATUS);
 
         try {
-            final XMLOutputFactory factory = XMLOutputFactory.newFactory();
-
-            final XMLStreamWriter writer = factory.createXMLStreamWriter(response.getOutputStream(), DEFAULT_ENCODING);
+            final Utf8XmlWriter writer = new Utf8XmlWriter(response.getOutputStream());
             writer.writeStartDocument(DEFAULT_ENCODING, "1.0");
-            final Map<String, String> prefixes = announceNameSpacePrefixes(writer);
-            writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "multistatus");
-            writeNameSpaceDeclarations(writer, prefixes);
-            for (final Map.Entry<WebDavPath, Collection<WebDavProperty>> entry : entries.entrySet()) {
+            final NameSpacePrefixes prefixes = new NameSpacePrefixes();
+            // only requested properties are known upfront, all others are declared on their response
+            for (final PropertyIdentifier identifier : requested) {
+                prefixes.announce(identifier.getNameSpace());
+            }
+            writer.writeStartElement(PropertyIdentifier.DEFAULT_DAV_PREFIX, "multistatus", PropertyIdentifier.DAV_NAMESPACE);
+            prefixes.declareRoot(writer);
+            while (entries.hasNext()) {
+                final Entry<WebDavPath, Collection<WebDavProperty>> entry = entries.next();
+                final Collection<WebDavProperty> available = getAvailable(entry.getValue());
+                final Collection<PropertyIdentifier> missing = getMissing(available);
+
                 writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "response");
+                for (final WebDavProperty property : available) {
+                    prefixes.declareLocal(writer, property.getIdentifier().getNameSpace());
+                }
                 writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "href");
                 final WebDavPath path = entry.getKey();
                 writer.writeCharacters(baseUri + path.toString());
                 writer.writeEndElement();
-                final Collection<WebDavProperty> available = getAvailable(entry.getValue());
                 writeAvailable(writer, available);
-                final Collection<PropertyIdentifier> missing = getMissing(available);
                 writeMissing(writer, missing);
                 writer.writeEndElement();
+                prefixes.endLocal();
             }
             writer.writeEndElement();
             writer.writeEndDocument();
@@ -143,7 +115,7 @@ class PropertiesResponse extends AbstractBasicResponse {
         }
     }
 
-    private void writeAvailable(final XMLStreamWriter writer, final Collection<WebDavProperty> properties) throws XMLStreamException {
+    private void writeAvailable(final Utf8XmlWriter writer, final Collection<WebDavProperty> properties) throws XMLStreamException {
         if (!properties.isEmpty()) {
             writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "propstat");
             writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "prop");
@@ -152,13 +124,13 @@ class PropertiesResponse extends AbstractBasicResponse {
             }
             writer.writeEndElement();
             writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "status");
-            writer.writeCharacters("HTTP/1.1 200 OK");
+            writer.writeEncoded(STATUS_OK);
             writer.writeEndElement();
             writer.writeEndElement();
         }
     }
 
-    private void writeMissing(final XMLStreamWriter writer, final Collection<PropertyIdentifier> identifiers) throws XMLStreamException {
+    private void writeMissing(final Utf8XmlWriter writer, final Collection<PropertyIdentifier> identifiers) throws XMLStreamException {
         if (!identifiers.isEmpty()) {
             writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "propstat");
             writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "prop");
@@ -173,17 +145,9 @@ class PropertiesResponse extends AbstractBasicResponse {
             }
             writer.writeEndElement();
             writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "status");
-            writer.writeCharacters("HTTP/1.1 404 Not Found");
+            writer.writeEncoded(STATUS_NOT_FOUND);
             writer.writeEndElement();
             writer.writeEndElement();
         }
     }
-
-    private void writeNameSpaceDeclarations(final XMLStreamWriter writer, final Map<String, String> prefixes) throws XMLStreamException {
-        for (final Map.Entry<String, String> entry : prefixes.entrySet()) {
-            final String nameSpace = entry.getKey();
-            final String prefix = entry.getValue();
-            writer.writeNamespace(prefix, nameSpace);
-        }
-    }
 }
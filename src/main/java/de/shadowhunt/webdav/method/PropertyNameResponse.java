@@ -18,12 +18,10 @@ package de.shadowhunt.webdav.method;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Iterator;
+import java.util.Map.Entry;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 
 import de.shadowhunt.webdav.WebDavConstant.Status;
 import de.shadowhunt.webdav.WebDavException;
@@ -38,38 +36,14 @@ class PropertyNameResponse extends AbstractBasicResponse {
 
     private final String baseUri;
 
-    private final Map<WebDavPath, Collection<PropertyIdentifier>> entries;
+    private final Iterator<Entry<WebDavPath, Collection<PropertyIdentifier>>> entries;
 
-    PropertyNameResponse(final WebDavEntity entity, final String baseUri, final Map<WebDavPath, Collection<PropertyIdentifier>> entries) {
+    PropertyNameResponse(final WebDavEntity entity, final String baseUri, final Iterator<Entry<WebDavPath, Collection<PropertyIdentifier>>> entries) {
         super(entity);
         this.baseUri = baseUri;
         this.entries = entries;
     }
 
-    private Map<String, String> announceNameSpacePrefixes(final XMLStreamWriter writer) throws XMLStreamException {
-        final Map<String, String> prefixes = new TreeMap<>();
-        writer.setPrefix(PropertyIdentifier.DEFAULT_DAV_PREFIX, PropertyIdentifier.DAV_NAMESPACE);
-        prefixes.put(PropertyIdentifier.DAV_NAMESPACE, PropertyIdentifier.DEFAULT_DAV_PREFIX);
-
-        for (final Collection<PropertyIdentifier> identifiers : entries.values()) {
-            for (final PropertyIdentifier identifier : identifiers) {
-                final String nameSpace = identifier.getNameSpace();
-                if (prefixes.containsKey(nameSpace)) {
-                    continue;
-                }
-
-                if (StringUtils.isEmpty(nameSpace)) {
-                    continue;
-                }
-
-                final String prefix = "ns" + prefixes.size();
-                writer.setPrefix(prefix, nameSpace);
-                prefixes.put(nameSpace, prefix);
-            }
-        }
-        return prefixes;
-    }
-
     @Override
     protected void write0(final WebDavResponse response) throws IOException {
         response.setCharacterEncoding(DEFAULT_ENCODING);
@@ -77,15 +51,17 @@ class PropertyNameResponse extends AbstractBasicResponse {
         response.setStatus(Status.MULTI_STATUS);
 
         try {
-            final XMLOutputFactory factory = XMLOutputFactory.newFactory();
-
-            final XMLStreamWriter writer = factory.createXMLStreamWriter(response.getOutputStream(), DEFAULT_ENCODING);
+            final Utf8XmlWriter writer = new Utf8XmlWriter(response.getOutputStream());
             writer.writeStartDocument(DEFAULT_ENCODING, "1.0");
-            final Map<String, String> prefixes = announceNameSpacePrefixes(writer);
-            writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "multistatus");
-            writeNameSpaceDeclarations(writer, prefixes);
-            for (final Map.Entry<WebDavPath, Collection<PropertyIdentifier>> entry : entries.entrySet()) {
+            final NameSpacePrefixes prefixes = new NameSpacePrefixes();
+            writer.writeStartElement(PropertyIdentifier.DEFAULT_DAV_PREFIX, "multistatus", PropertyIdentifier.DAV_NAMESPACE);
+            prefixes.declareRoot(writer);
+            while (entries.hasNext()) {
+                final Entry<WebDavPath, Collection<PropertyIdentifier>> entry = entries.next();
                 writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "response");
+                for (final PropertyIdentifier identifier : entry.getValue()) {
+                    prefixes.declareLocal(writer, identifier.getNameSpace());
+                }
                 writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "href");
                 final WebDavPath path = entry.getKey();
                 writer.writeCharacters(baseUri + path.toString());
@@ -103,10 +79,11 @@ class PropertyNameResponse extends AbstractBasicResponse {
                 }
                 writer.writeEndElement();
                 writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "status");
-                writer.writeCharacters("HTTP/1.1 200 OK");
+                writer.writeEncoded(STATUS_OK);
                 writer.writeEndElement();
                 writer.writeEndElement();
                 writer.writeEndElement();
+                prefixes.endLocal();
             }
             writer.writeEndElement();
             writer.writeEndDocument();
@@ -116,12 +93,4 @@ class PropertyNameResponse extends AbstractBasicResponse {
             throw new WebDavException("can not write response", e);
         }
     }
-
-    private void writeNameSpaceDeclarations(final XMLStreamWriter writer, final Map<String, String> prefixes) throws XMLStreamException {
-        for (final Map.Entry<String, String> entry : prefixes.entrySet()) {
-            final String nameSpace = entry.getKey();
-            final String prefix = entry.getValue();
-            writer.writeNamespace(prefix, nameSpace);
-        }
-    }
 }
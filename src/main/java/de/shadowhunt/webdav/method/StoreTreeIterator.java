@@ -0,0 +1,108 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.store.WebDavEntity;
+import de.shadowhunt.webdav.store.WebDavEntity.Type;
+import de.shadowhunt.webdav.store.WebDavStore;
+
+/**
+ * Walks the {@link WebDavStore} depth-first, starting at the given root, and maps each visited {@link WebDavEntity}
+ * only when the next element is requested. Only the child listings of the current branch are kept in memory, each
+ * listing is retrieved with a single {@link WebDavStore#listEntities(WebDavPath)} call.
+ */
+@NotThreadSafe
+final class StoreTreeIterator<T> implements Iterator<Entry<WebDavPath, T>> {
+
+    private static final class Level {
+
+        final Iterator<WebDavEntity> children;
+
+        final int depth;
+
+        Level(final Iterator<WebDavEntity> children, final int depth) {
+            this.children = children;
+            this.depth = depth;
+        }
+    }
+
+    private final Function<WebDavEntity, T> mapper;
+
+    @CheckForNull
+    private Entry<WebDavPath, T> next;
+
+    private final Deque<Level> stack = new ArrayDeque<>();
+
+    private final WebDavStore store;
+
+    StoreTreeIterator(final WebDavStore store, final WebDavEntity root, final int depth, final Function<WebDavEntity, T> mapper) {
+        this.store = store;
+        this.mapper = mapper;
+        this.next = visit(root, depth);
+    }
+
+    @CheckForNull
+    private Entry<WebDavPath, T> advance() {
+        while (!stack.isEmpty()) {
+            final Level level = stack.peek();
+            if (!level.children.hasNext()) {
+                stack.pop();
+                continue;
+            }
+
+            final WebDavEntity child = level.children.next();
+            return visit(child, level.depth);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return (next != null);
+    }
+
+    @Override
+    public Entry<WebDavPath, T> next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+
+        final Entry<WebDavPath, T> current = next;
+        next = advance();
+        return current;
+    }
+
+    private Entry<WebDavPath, T> visit(final WebDavEntity entity, final int depth) {
+        final T value = mapper.apply(entity);
+        if ((depth > 0) && (Type.COLLECTION == entity.getType())) {
+            stack.push(new Level(store.listEntities(entity.getPath()).iterator(), depth - 1));
+        }
+        return new SimpleImmutableEntry<>(entity.getPath(), value);
+    }
+}
@@ -16,36 +16,216 @@
  */
 package de.shadowhunt.webdav.method;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
+import javax.annotation.CheckForNull;
+
+import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.WebDavResponse;
+import de.shadowhunt.webdav.store.FileContentStore;
 import de.shadowhunt.webdav.store.WebDavEntity;
+import de.shadowhunt.webdav.store.WebDavStore;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * {@link StreamingResponse} writes content that has been opened before the response is created, so the headers
+ * describe exactly the version of the content that is transferred, even if the entity is replaced in the meantime.
+ */
+class StreamingResponse extends AbstractBasicResponse implements Closeable {
+
+    private static final String CRLF = "\r\n";
+
+    private static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
+
+    /**
+     * Open the content of the given {@link WebDavEntity}. The caller must verify that the {@link WebDavEntity} has not
+     * been modified while the content was opened and close the {@link StreamingResponse} otherwise.
+     *
+     * @return the {@link StreamingResponse} for the opened content or {@link Optional#empty()} if the content does not
+     *         match the {@link WebDavEntity} anymore
+     */
+    static Optional<StreamingResponse> open(final WebDavStore store, final WebDavEntity entity, final List<ByteRange> ranges) {
+        final WebDavPath path = entity.getPath();
+        if (store instanceof FileContentStore) {
+            final Path file = ((FileContentStore) store).getContentPath(path);
+            try {
+                final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                if (channel.size() != entity.getSize()) {
+                    channel.close();
+                    return Optional.empty();
+                }
+                return Optional.of(new StreamingResponse(entity, file, channel, new ArrayList<>(), ranges));
+            } catch (final NoSuchFileException e) {
+                return Optional.empty();
+            } catch (final IOException e) {
+                throw new WebDavException("can not read " + path, e);
+            }
+        }
+
+        // every range is opened separately, so the store can seek to its start
+        final List<InputStream> contents = new ArrayList<>();
+        try {
+            if (ranges.isEmpty()) {
+                contents.add(new BoundedInputStream(store.getContent(path), entity.getSize()));
+            }
+            for (final ByteRange range : ranges) {
+                contents.add(store.getContent(path, range.first, range.getLength()));
+            }
+        } catch (final RuntimeException e) {
+            contents.forEach(IOUtils::closeQuietly);
+            throw e;
+        }
+        return Optional.of(new StreamingResponse(entity, null, null, contents, ranges));
+    }
 
-class StreamingResponse extends AbstractBasicResponse {
+    @CheckForNull
+    private FileChannel channel;
 
-    private final InputStream input;
+    private final List<InputStream> contents;
 
-    StreamingResponse(final WebDavEntity entity, final InputStream input) {
+    @CheckForNull
+    private final Path file;
+
+    private final List<ByteRange> ranges;
+
+    private StreamingResponse(final WebDavEntity entity, @CheckForNull final Path file, @CheckForNull final FileChannel channel, final List<InputStream> contents, final List<ByteRange> ranges) {
         super(entity);
-        this.input = input;
+        this.channel = channel;
+        this.contents = contents;
+        this.file = file;
+        this.ranges = ranges;
     }
 
     @Override
-    protected void write0(final WebDavResponse response) throws IOException {
-        response.setStatus(Status.OK);
-        response.setContentType(entity.getMimeType());
+    public void close() {
+        IOUtils.closeQuietly(channel);
+        channel = null;
+        contents.forEach(IOUtils::closeQuietly);
+        contents.clear();
+    }
 
-        final OutputStream output = response.getOutputStream();
+    private void copy(final int part, final long offset, final long length, final OutputStream output) throws IOException {
+        if (channel != null) {
+            transfer(channel, offset, length, Channels.newChannel(output));
+            return;
+        }
+        IOUtils.copyLarge(contents.get(part), output);
+    }
+
+    private void transfer(final FileChannel source, final long offset, final long length, final WritableByteChannel output) throws IOException {
+        long position = offset;
+        final long end = offset + length;
+        while (position < end) {
+            final long transferred = source.transferTo(position, end - position, output);
+            if (transferred <= 0L) {
+                break; // file has been truncated in the meantime
+            }
+            position += transferred;
+        }
+    }
+
+    @Override
+    protected void write0(final WebDavResponse response) throws IOException {
         try {
-            IOUtils.copy(input, output);
+            writeContent(response);
         } finally {
-            // output is closed by servlet api
-            IOUtils.closeQuietly(input);
+            close(); // content that has been handed over to the response is not closed here
+        }
+    }
+
+    private void writeContent(final WebDavResponse response) throws IOException {
+        response.addHeader(Header.ACCEPT_RANGES, ByteRange.UNIT);
+
+        final long size = entity.getSize();
+        if (ranges.isEmpty()) {
+            response.setStatus(Status.OK);
+            response.setContentType(entity.getMimeType());
+            response.addHeader(Header.CONTENT_LENGTH, Long.toString(size));
+            writeSingle(0L, size, response);
+            return;
+        }
+
+        response.setStatus(Status.PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            final ByteRange range = ranges.get(0);
+            response.setContentType(entity.getMimeType());
+            response.addHeader(Header.CONTENT_RANGE, range.toContentRange(size));
+            response.addHeader(Header.CONTENT_LENGTH, Long.toString(range.getLength()));
+            writeSingle(range.first, range.getLength(), response);
+            return;
+        }
+
+        writeMultiple(size, response);
+    }
+
+    private void writeMultiple(final long size, final WebDavResponse response) throws IOException {
+        final String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        final List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0L;
+        for (final ByteRange range : ranges) {
+            final String partHeader = CRLF + "--" + boundary + CRLF //
+                    + "Content-Type: " + entity.getMimeType() + CRLF //
+                    + Header.CONTENT_RANGE.value + ": " + range.toContentRange(size) + CRLF //
+                    + CRLF;
+            final byte[] bytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + range.getLength();
+        }
+        final byte[] end = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length;
+
+        response.setContentType(MULTIPART_BYTERANGES + boundary);
+        response.addHeader(Header.CONTENT_LENGTH, Long.toString(contentLength));
+
+        // output is closed by servlet api
+        final OutputStream output = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            final ByteRange range = ranges.get(i);
+            output.write(partHeaders.get(i));
+            copy(i, range.first, range.getLength(), output);
         }
+        output.write(end);
+    }
+
+    private void writeSingle(final long offset, final long length, final WebDavResponse response) throws IOException {
+        final InputStream input;
+        if (channel != null) {
+            if (response.sendFile(file, offset, length)) {
+                return; // container takes care of the content
+            }
+            channel.position(offset);
+            input = new BoundedInputStream(Channels.newInputStream(channel), length);
+        } else {
+            input = contents.get(0);
+        }
+
+        if (response.sendContent(input)) {
+            // response takes care of the content
+            channel = null;
+            contents.clear();
+            return;
+        }
+
+        // output is closed by servlet api
+        copy(0, offset, length, response.getOutputStream());
     }
 }
@@ -0,0 +1,550 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * {@link Utf8XmlWriter} writes UTF-8 encoded xml into a buffer that is passed to the {@link OutputStream} in large
+ * chunks. Start and end tags of the DAV: vocabulary are encoded once and shared between all writers, so writing the
+ * skeleton of a response mostly copies bytes. The writer never repairs namespaces: every namespace must be bound with
+ * {@link #setPrefix(String, String)} before it is used.
+ */
+@NotThreadSafe
+final class Utf8XmlWriter implements XMLStreamWriter {
+
+    @Immutable
+    private static final class Tag {
+
+        private final byte[] end;
+
+        private final byte[] start;
+
+        Tag(final String prefix, final String localName) {
+            final String qualifiedName = prefix.isEmpty() ? localName : (prefix + ':' + localName);
+            this.start = ('<' + qualifiedName).getBytes(StandardCharsets.UTF_8);
+            this.end = ("</" + qualifiedName + '>').getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final byte[] CLOSE_EMPTY_TAG = encode("/>");
+
+    private static final byte[] CLOSE_TAG = encode(">");
+
+    // only the fixed DAV: vocabulary is cached, names of dead properties are chosen by the clients and must not be kept
+    private static final Map<String, Tag> DAV_TAGS;
+
+    private static final String ENCODING = StandardCharsets.UTF_8.name();
+
+    static {
+        final Map<String, Tag> tags = new HashMap<>();
+        for (final String name : Arrays.asList("activelock", "collection", "creationdate", "depth", "displayname", "exclusive", //
+                "getcontentlength", "getcontenttype", "getetag", "getlastmodified", "href", "lockdiscovery", "lockentry", //
+                "lockroot", "lockscope", "locktoken", "locktype", "multistatus", "owner", "prop", "propstat", "resourcetype", //
+                "response", "shared", "status", "supportedlock", "timeout", "write")) {
+            tags.put(name, new Tag(PropertyIdentifier.DEFAULT_DAV_PREFIX, name));
+        }
+        DAV_TAGS = Collections.unmodifiableMap(tags);
+    }
+
+    static byte[] encode(final String fragment) {
+        return fragment.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Tag getTag(final String prefix, final String localName) {
+        if (PropertyIdentifier.DEFAULT_DAV_PREFIX.equals(prefix)) {
+            final Tag tag = DAV_TAGS.get(localName);
+            if (tag != null) {
+                return tag;
+            }
+        }
+        return new Tag(prefix, localName);
+    }
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private boolean emptyElement = false;
+
+    @CheckForNull
+    private NamespaceContext namespaceContext = null;
+
+    private final Deque<Tag> open = new ArrayDeque<>();
+
+    private final OutputStream output;
+
+    private int position = 0;
+
+    // namespace to prefix bindings for each element depth, index 0 holds the bindings of the document
+    private final List<Map<String, String>> scopes = new ArrayList<>();
+
+    private boolean startTagOpen = false;
+
+    Utf8XmlWriter(final OutputStream output) {
+        this.output = output;
+        scopes.add(null);
+    }
+
+    private void bind(final String prefix, final String namespaceURI) {
+        final int depth = (startTagOpen && emptyElement) ? (open.size() + 1) : open.size();
+        while (scopes.size() <= depth) {
+            scopes.add(null);
+        }
+
+        Map<String, String> scope = scopes.get(depth);
+        if (scope == null) {
+            scope = new HashMap<>();
+            scopes.set(depth, scope);
+        }
+        scope.put(namespaceURI, prefix);
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        closeStartTag();
+        flushBuffer(); // the underlying stream is owned by the caller
+    }
+
+    private void closeStartTag() throws XMLStreamException {
+        if (startTagOpen) {
+            write(emptyElement ? CLOSE_EMPTY_TAG : CLOSE_TAG);
+            startTagOpen = false;
+            if (emptyElement) {
+                resetScope(open.size() + 1);
+            }
+        }
+    }
+
+    private void ensure(final int length) throws XMLStreamException {
+        if ((position + length) > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        flushBuffer();
+        try {
+            output.flush();
+        } catch (final IOException e) {
+            throw new XMLStreamException("can not flush output", e);
+        }
+    }
+
+    private void flushBuffer() throws XMLStreamException {
+        if (position > 0) {
+            try {
+                output.write(buffer, 0, position);
+            } catch (final IOException e) {
+                throw new XMLStreamException("can not write output", e);
+            }
+            position = 0;
+        }
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return new NamespaceContext() {
+
+            @Override
+            public String getNamespaceURI(final String prefix) {
+                for (int i = scopes.size() - 1; i >= 0; i--) {
+                    final Map<String, String> scope = scopes.get(i);
+                    if (scope == null) {
+                        continue;
+                    }
+                    for (final Map.Entry<String, String> binding : scope.entrySet()) {
+                        if (binding.getValue().equals(prefix)) {
+                            return binding.getKey();
+                        }
+                    }
+                }
+                return (namespaceContext == null) ? XMLConstants.NULL_NS_URI : namespaceContext.getNamespaceURI(prefix);
+            }
+
+            @Override
+            public String getPrefix(final String namespaceURI) {
+                return lookupPrefix(namespaceURI);
+            }
+
+            @Override
+            public Iterator<?> getPrefixes(final String namespaceURI) {
+                final String prefix = lookupPrefix(namespaceURI);
+                return (prefix == null) ? Collections.emptyIterator() : Collections.singleton(prefix).iterator();
+            }
+        };
+    }
+
+    @Override
+    public String getPrefix(final String uri) throws XMLStreamException {
+        return lookupPrefix(uri);
+    }
+
+    @Override
+    public Object getProperty(final String name) {
+        throw new IllegalArgumentException("property " + name + " is not supported");
+    }
+
+    @CheckForNull
+    private String lookupPrefix(final String namespaceURI) {
+        final int depth = Math.min(open.size(), scopes.size() - 1);
+        for (int i = depth; i >= 0; i--) {
+            final Map<String, String> scope = scopes.get(i);
+            if (scope != null) {
+                final String prefix = scope.get(namespaceURI);
+                if (prefix != null) {
+                    return prefix;
+                }
+            }
+        }
+        return (namespaceContext == null) ? null : namespaceContext.getPrefix(namespaceURI);
+    }
+
+    private String requirePrefix(final String namespaceURI) throws XMLStreamException {
+        if (StringUtils.isEmpty(namespaceURI)) {
+            return XMLConstants.DEFAULT_NS_PREFIX;
+        }
+
+        final String prefix = lookupPrefix(namespaceURI);
+        if (prefix == null) {
+            throw new XMLStreamException("namespace " + namespaceURI + " is not bound to a prefix");
+        }
+        return prefix;
+    }
+
+    private void requireStartTag() throws XMLStreamException {
+        if (!startTagOpen) {
+            throw new XMLStreamException("attributes and namespaces can only be written on a start tag");
+        }
+    }
+
+    private void resetScope(final int depth) {
+        if (depth < scopes.size()) {
+            scopes.set(depth, null);
+        }
+    }
+
+    @Override
+    public void setDefaultNamespace(final String uri) throws XMLStreamException {
+        setPrefix(XMLConstants.DEFAULT_NS_PREFIX, uri);
+    }
+
+    @Override
+    public void setNamespaceContext(final NamespaceContext context) throws XMLStreamException {
+        this.namespaceContext = context;
+    }
+
+    @Override
+    public void setPrefix(final String prefix, final String uri) throws XMLStreamException {
+        bind(prefix, uri);
+    }
+
+    private void startElement(final String prefix, final String localName, final boolean empty) throws XMLStreamException {
+        closeStartTag();
+        final Tag tag = getTag(prefix, localName);
+        write(tag.start);
+        if (!empty) {
+            open.push(tag);
+            resetScope(open.size());
+        }
+        startTagOpen = true;
+        emptyElement = empty;
+    }
+
+    private void write(final byte[] bytes) throws XMLStreamException {
+        if (bytes.length > (buffer.length - position)) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                try {
+                    output.write(bytes);
+                } catch (final IOException e) {
+                    throw new XMLStreamException("can not write output", e);
+                }
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeAscii(final String text) throws XMLStreamException {
+        final int length = text.length();
+        ensure(length);
+        if (length > buffer.length) {
+            write(encode(text));
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    @Override
+    public void writeAttribute(final String localName, final String value) throws XMLStreamException {
+        writeAttribute0(XMLConstants.DEFAULT_NS_PREFIX, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(final String prefix, final String namespaceURI, final String localName, final String value) throws XMLStreamException {
+        writeAttribute0(prefix, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(final String namespaceURI, final String localName, final String value) throws XMLStreamException {
+        writeAttribute0(requirePrefix(namespaceURI), localName, value);
+    }
+
+    private void writeAttribute0(final String prefix, final String localName, final String value) throws XMLStreamException {
+        requireStartTag();
+        writeAscii(" ");
+        if (!prefix.isEmpty()) {
+            writeEscaped(prefix, true);
+            writeAscii(":");
+        }
+        writeEscaped(localName, true);
+        writeAscii("=\"");
+        writeEscaped(value, true);
+        writeAscii("\"");
+    }
+
+    @Override
+    public void writeCData(final String data) throws XMLStreamException {
+        closeStartTag();
+        writeAscii("<![CDATA[");
+        write(encode(data));
+        writeAscii("]]>");
+    }
+
+    @Override
+    public void writeCharacters(final char[] text, final int start, final int len) throws XMLStreamException {
+        writeCharacters(new String(text, start, len));
+    }
+
+    @Override
+    public void writeCharacters(final String text) throws XMLStreamException {
+        closeStartTag();
+        writeEscaped(text, false);
+    }
+
+    @Override
+    public void writeComment(final String data) throws XMLStreamException {
+        closeStartTag();
+        writeAscii("<!--");
+        write(encode(data));
+        writeAscii("-->");
+    }
+
+    @Override
+    public void writeDefaultNamespace(final String namespaceURI) throws XMLStreamException {
+        requireStartTag();
+        writeAscii(" xmlns=\"");
+        writeEscaped(namespaceURI, true);
+        writeAscii("\"");
+        bind(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+    }
+
+    @Override
+    public void writeDTD(final String dtd) throws XMLStreamException {
+        write(encode(dtd));
+    }
+
+    @Override
+    public void writeEmptyElement(final String localName) throws XMLStreamException {
+        startElement(XMLConstants.DEFAULT_NS_PREFIX, localName, true);
+    }
+
+    @Override
+    public void writeEmptyElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
+        startElement(prefix, localName, true);
+    }
+
+    @Override
+    public void writeEmptyElement(final String namespaceURI, final String localName) throws XMLStreamException {
+        startElement(requirePrefix(namespaceURI), localName, true);
+    }
+
+    /**
+     * Write a fragment that has been encoded upfront, the fragment is not escaped.
+     *
+     * @param fragment
+     *            the UTF-8 encoded character data
+     */
+    void writeEncoded(final byte[] fragment) throws XMLStreamException {
+        closeStartTag();
+        write(fragment);
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        while (!open.isEmpty()) {
+            writeEndElement();
+        }
+        closeStartTag();
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        closeStartTag();
+        if (open.isEmpty()) {
+            throw new XMLStreamException("no element to end");
+        }
+        resetScope(open.size());
+        write(open.pop().end);
+    }
+
+    @Override
+    public void writeEntityRef(final String name) throws XMLStreamException {
+        closeStartTag();
+        writeAscii("&");
+        writeEscaped(name, false);
+        writeAscii(";");
+    }
+
+    private void writeEscaped(final String text, final boolean attribute) throws XMLStreamException {
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                if (c == '&') {
+                    writeAscii("&amp;");
+                } else if (c == '<') {
+                    writeAscii("&lt;");
+                } else if (c == '>') {
+                    writeAscii("&gt;");
+                } else if (attribute && (c == '"')) {
+                    writeAscii("&quot;");
+                } else {
+                    ensure(1);
+                    buffer[position++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && ((i + 1) < length) && Character.isLowSurrogate(text.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensure(4);
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                buffer[position++] = '?'; // unpaired surrogate can not be encoded
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    @Override
+    public void writeNamespace(final String prefix, final String namespaceURI) throws XMLStreamException {
+        if (StringUtils.isEmpty(prefix) || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+            writeDefaultNamespace(namespaceURI);
+            return;
+        }
+
+        requireStartTag();
+        writeAscii(" xmlns:");
+        writeEscaped(prefix, true);
+        writeAscii("=\"");
+        writeEscaped(namespaceURI, true);
+        writeAscii("\"");
+        bind(prefix, namespaceURI);
+    }
+
+    @Override
+    public void writeProcessingInstruction(final String target) throws XMLStreamException {
+        writeProcessingInstruction(target, null);
+    }
+
+    @Override
+    public void writeProcessingInstruction(final String target, @CheckForNull final String data) throws XMLStreamException {
+        closeStartTag();
+        writeAscii("<?");
+        writeEscaped(target, false);
+        if (data != null) {
+            writeAscii(" ");
+            write(encode(data));
+        }
+        writeAscii("?>");
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        writeStartDocument(ENCODING, "1.0");
+    }
+
+    @Override
+    public void writeStartDocument(final String version) throws XMLStreamException {
+        writeStartDocument(ENCODING, version);
+    }
+
+    @Override
+    public void writeStartDocument(final String encoding, final String version) throws XMLStreamException {
+        if (!ENCODING.equalsIgnoreCase(encoding)) {
+            throw new XMLStreamException("unsupported encoding " + encoding);
+        }
+        writeAscii("<?xml version=\"");
+        writeEscaped(version, true);
+        writeAscii("\" encoding=\"");
+        writeEscaped(encoding, true);
+        writeAscii("\"?>");
+    }
+
+    @Override
+    public void writeStartElement(final String localName) throws XMLStreamException {
+        startElement(XMLConstants.DEFAULT_NS_PREFIX, localName, false);
+    }
+
+    @Override
+    public void writeStartElement(final String prefix, final String localName, final String namespaceURI) throws XMLStreamException {
+        startElement(prefix, localName, false);
+    }
+
+    @Override
+    public void writeStartElement(final String namespaceURI, final String localName) throws XMLStreamException {
+        startElement(requirePrefix(namespaceURI), localName, false);
+    }
+}
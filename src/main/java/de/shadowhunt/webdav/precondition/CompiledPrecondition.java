@@ -0,0 +1,240 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.precondition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.WebDavRequest;
+import de.shadowhunt.webdav.store.WebDavEntity;
+import de.shadowhunt.webdav.store.WebDavLock;
+import de.shadowhunt.webdav.store.WebDavStore;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * {@link CompiledPrecondition} is the parsed form of an If header. It does not depend on a request, so it can be
+ * shared between all requests that send the same header. Resources are resolved and evaluated against the
+ * {@link WebDavStore} for every request.
+ */
+@Immutable
+final class CompiledPrecondition {
+
+    @Immutable
+    static final class Condition {
+
+        @CheckForNull
+        private final String etag;
+
+        @CheckForNull
+        private final UUID lockToken;
+
+        private final boolean not;
+
+        private Condition(final boolean not, @CheckForNull final String etag, @CheckForNull final UUID lockToken) {
+            this.etag = etag;
+            this.lockToken = lockToken;
+            this.not = not;
+        }
+
+        @CheckForNull
+        String getEtag() {
+            return etag;
+        }
+
+        @CheckForNull
+        UUID getLockToken() {
+            return lockToken;
+        }
+
+        boolean isNot() {
+            return not;
+        }
+
+        private boolean matches(@CheckForNull final WebDavEntity entity) {
+            if (entity == null) {
+                // resource does not belong to the store or does not exist
+                return false;
+            }
+
+            if (etag != null) {
+                final Optional<String> entityEtag = entity.getEtag();
+                return entityEtag.isPresent() && entityEtag.get().equals(etag);
+            }
+
+            if (UUID_ZERO.equals(lockToken)) {
+                return false;
+            }
+
+            final Optional<WebDavLock> lock = entity.getLock();
+            if (lock.isPresent()) {
+                return lock.get().getToken().equals(lockToken);
+            }
+
+            // lock token presented for an unlocked entity
+            return true;
+        }
+    }
+
+    @Immutable
+    static final class ResourceList {
+
+        private final List<List<Condition>> lists;
+
+        @CheckForNull
+        private final String resource;
+
+        private ResourceList(@CheckForNull final String resource, final List<List<Condition>> lists) {
+            this.lists = lists;
+            this.resource = resource;
+        }
+
+        List<List<Condition>> getLists() {
+            return lists;
+        }
+
+        @CheckForNull
+        String getResource() {
+            return resource;
+        }
+
+        private Optional<WebDavPath> resolve(final WebDavRequest request) {
+            if (resource == null) {
+                return Optional.of(request.getPath());
+            }
+            return request.toPath(resource);
+        }
+    }
+
+    static final UUID UUID_ZERO = new UUID(0L, 0L);
+
+    static Condition etag(final boolean not, final String etag) {
+        return new Condition(not, etag, null);
+    }
+
+    static ResourceList explicit(final String resource, final List<List<Condition>> lists) {
+        return new ResourceList(resource, lists);
+    }
+
+    static ResourceList implicit(final List<List<Condition>> lists) {
+        return new ResourceList(null, lists);
+    }
+
+    static Condition lock(final boolean not, final String lockToken) {
+        return new Condition(not, null, parseLockToken(lockToken));
+    }
+
+    private static UUID parseLockToken(final String token) {
+        if (!token.startsWith(WebDavLock.PREFIX)) {
+            return UUID_ZERO;
+        }
+
+        final String plain = StringUtils.removeStart(token, WebDavLock.PREFIX);
+        try {
+            return UUID.fromString(plain);
+        } catch (final IllegalArgumentException e) {
+            return UUID_ZERO;
+        }
+    }
+
+    private final List<ResourceList> resourceLists;
+
+    CompiledPrecondition(final List<ResourceList> resourceLists) {
+        this.resourceLists = Collections.unmodifiableList(new ArrayList<>(resourceLists));
+    }
+
+    List<ResourceList> getResourceLists() {
+        return resourceLists;
+    }
+
+    /**
+     * Collect all lock tokens presented in the precondition.
+     *
+     * @param request
+     *            the {@link WebDavRequest} used to resolve the resources of the precondition
+     *
+     * @return the lock tokens by the {@link WebDavPath} they have been presented for
+     */
+    Map<WebDavPath, UUID> getTokens(final WebDavRequest request) {
+        final Map<WebDavPath, UUID> tokens = new TreeMap<>();
+        for (final ResourceList resourceList : resourceLists) {
+            final Optional<WebDavPath> path = resourceList.resolve(request);
+            if (!path.isPresent()) {
+                continue;
+            }
+
+            for (final List<Condition> list : resourceList.lists) {
+                for (final Condition condition : list) {
+                    if ((condition.lockToken != null) && !UUID_ZERO.equals(condition.lockToken)) {
+                        tokens.put(path.get(), condition.lockToken);
+                    }
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private Optional<WebDavEntity> lookup(final WebDavStore store, final WebDavPath path) {
+        if (!store.exists(path)) {
+            return Optional.empty();
+        }
+        return Optional.of(store.getEntity(path));
+    }
+
+    /**
+     * Evaluate the precondition: at least one resource list must contain a list whose conditions all hold.
+     *
+     * @param store
+     *            the {@link WebDavStore} the conditions are evaluated against
+     * @param request
+     *            the {@link WebDavRequest} used to resolve the resources of the precondition
+     *
+     * @return {@code true} if the precondition holds, {@code false} otherwise
+     */
+    boolean verify(final WebDavStore store, final WebDavRequest request) {
+        // every resource is looked up at most once, even if it is referenced by several conditions
+        final Map<WebDavPath, Optional<WebDavEntity>> entities = new HashMap<>();
+        for (final ResourceList resourceList : resourceLists) {
+            final Optional<WebDavEntity> entity = resourceList.resolve(request).flatMap(x -> entities.computeIfAbsent(x, y -> lookup(store, y)));
+            for (final List<Condition> list : resourceList.lists) {
+                if (verify(list, entity.orElse(null))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean verify(final List<Condition> list, @CheckForNull final WebDavEntity entity) {
+        for (final Condition condition : list) {
+            if (condition.matches(entity) == condition.not) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
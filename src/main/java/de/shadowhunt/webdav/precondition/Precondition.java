@@ -17,6 +17,7 @@
 package de.shadowhunt.webdav.precondition;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -24,56 +25,44 @@ import java.util.UUID;
 import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.WebDavRequest;
-import de.shadowhunt.webdav.precondition.PreconditionParser.PreconditionContext;
+import de.shadowhunt.webdav.precondition.PreconditionParser.MalformedPreconditionException;
 import de.shadowhunt.webdav.store.WebDavStore;
 
-import org.antlr.v4.runtime.ANTLRErrorListener;
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.BaseErrorListener;
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.RecognitionException;
-import org.antlr.v4.runtime.Recognizer;
-import org.antlr.v4.runtime.misc.ParseCancellationException;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public final class Precondition {
 
-    private static class ThrowingErrorListener extends BaseErrorListener {
+    static final int CACHE_SIZE = 256;
+
+    // clients that hold locks send the same header over and over again, so compiled preconditions are reused
+    private static final Map<String, Optional<CompiledPrecondition>> CACHE = new LinkedHashMap<String, Optional<CompiledPrecondition>>(CACHE_SIZE, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
         @Override
-        public void syntaxError(final Recognizer<?, ?> recognizer, final Object offendingSymbol, final int line, final int charPositionInLine, final String msg, final RecognitionException e) throws ParseCancellationException {
-            throw new ParseCancellationException("line " + line + ":" + charPositionInLine + " " + msg);
+        protected boolean removeEldestEntry(final Map.Entry<String, Optional<CompiledPrecondition>> eldest) {
+            return size() > CACHE_SIZE;
         }
-    }
-
-    private static final ANTLRErrorListener ERROR_LISTENER = new ThrowingErrorListener();
+    };
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Precondition.class);
 
-    private static <R> Optional<R> evaluate(final String precondition, final AbstractAggregator<R> aggregator) {
-        try {
-            final CharStream stream = new ANTLRInputStream(precondition);
-            final PreconditionLexer lexer = new PreconditionLexer(stream);
-            lexer.removeErrorListeners();
-            lexer.addErrorListener(ERROR_LISTENER);
-
-            final CommonTokenStream tokens = new CommonTokenStream(lexer);
-            final PreconditionParser parser = new PreconditionParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(ERROR_LISTENER);
-
-            final PreconditionContext context = parser.precondition();
-            final ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(aggregator, context);
-
-            return aggregator.getResult(context);
-        } catch (final ParseCancellationException e) {
-            LOGGER.warn("could not parse precondition '" + precondition + "'", e);
-            return Optional.empty();
+    static Optional<CompiledPrecondition> compile(final String precondition) {
+        synchronized (CACHE) {
+            final Optional<CompiledPrecondition> compiled = CACHE.get(precondition);
+            if (compiled != null) {
+                return compiled;
+            }
         }
+
+        // parse outside of the lock, in the worst case concurrent requests parse the same header twice
+        final Optional<CompiledPrecondition> compiled = parse(precondition);
+        synchronized (CACHE) {
+            CACHE.put(precondition, compiled);
+        }
+        return compiled;
     }
 
     public static Map<WebDavPath, UUID> getTokens(final WebDavRequest request) {
@@ -82,8 +71,17 @@ public final class Precondition {
             return Collections.emptyMap();
         }
 
-        final Optional<Map<WebDavPath, UUID>> valid = evaluate(precondition, new LockTokenCollector(request));
-        return valid.orElse(Collections.emptyMap());
+        final Optional<CompiledPrecondition> compiled = compile(precondition);
+        return compiled.map(x -> x.getTokens(request)).orElse(Collections.emptyMap());
+    }
+
+    private static Optional<CompiledPrecondition> parse(final String precondition) {
+        try {
+            return Optional.of(PreconditionParser.parse(precondition));
+        } catch (final MalformedPreconditionException e) {
+            LOGGER.warn("could not parse precondition '" + precondition + "': " + e.getMessage());
+            return Optional.empty();
+        }
     }
 
     public static boolean verify(final WebDavStore store, final WebDavRequest request) {
@@ -92,8 +90,8 @@ public final class Precondition {
             return true;
         }
 
-        final Optional<Boolean> valid = evaluate(precondition, new PreconditionValidator(store, request));
-        return valid.orElse(Boolean.FALSE);
+        final Optional<CompiledPrecondition> compiled = compile(precondition);
+        return compiled.map(x -> x.verify(store, request)).orElse(Boolean.FALSE);
     }
 
     private Precondition() {
@@ -0,0 +1,185 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.precondition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.shadowhunt.webdav.precondition.CompiledPrecondition.Condition;
+import de.shadowhunt.webdav.precondition.CompiledPrecondition.ResourceList;
+
+/**
+ * Recursive-descent parser for the If header (RFC 4918, section 10.4). It works directly on the header and accepts:
+ *
+ * <pre>
+ * precondition         = *implicitResourceList *explicitResourceList
+ * implicitResourceList = 1*list
+ * explicitResourceList = resource 1*list
+ * list                 = "(" 1*condition ")"
+ * resource             = "&lt;" URL "&gt;"
+ * condition            = ["Not"] ( lock | etag )
+ * lock                 = "&lt;" LOCK "&gt;"
+ * etag                 = "[" ETAG "]"
+ * </pre>
+ *
+ * Whitespace is allowed between all elements.
+ */
+@NotThreadSafe
+final class PreconditionParser {
+
+    /**
+     * Signals a malformed header. It is an expected outcome of parsing client input, so no stack trace is recorded.
+     */
+    static final class MalformedPreconditionException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        MalformedPreconditionException(final String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final int END = -1;
+
+    private static final IntPredicate ETAG = PreconditionParser::isAlphanumeric;
+
+    private static final IntPredicate LOCK = c -> isAlphanumeric(c) || (c == ':') || (c == '-');
+
+    private static final String NOT = "not";
+
+    private static final IntPredicate URL = c -> isAlphanumeric(c) || ("$-_.+!*',/:".indexOf(c) >= 0);
+
+    private static boolean isAlphanumeric(final int c) {
+        return ((c >= '0') && (c <= '9')) || ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'));
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return (c == ' ') || (c == '\r') || (c == '\n') || (c == '\t');
+    }
+
+    static CompiledPrecondition parse(final CharSequence precondition) throws MalformedPreconditionException {
+        final PreconditionParser parser = new PreconditionParser(precondition);
+        return parser.precondition();
+    }
+
+    private final CharSequence input;
+
+    private int position = 0;
+
+    private PreconditionParser(final CharSequence input) {
+        this.input = input;
+    }
+
+    private Condition condition() throws MalformedPreconditionException {
+        peek(); // skip whitespace
+        final boolean not = not();
+        final int next = peek();
+        if (next == '<') {
+            return CompiledPrecondition.lock(not, token('<', LOCK, '>'));
+        }
+        if (next == '[') {
+            return CompiledPrecondition.etag(not, token('[', ETAG, ']'));
+        }
+        throw error("lock token or etag expected");
+    }
+
+    private MalformedPreconditionException error(final String message) {
+        return new MalformedPreconditionException(message + " at position " + position);
+    }
+
+    private void expect(final char expected) throws MalformedPreconditionException {
+        if (peek() != expected) {
+            throw error("'" + expected + "' expected");
+        }
+        position++;
+    }
+
+    private List<Condition> list() throws MalformedPreconditionException {
+        expect('(');
+        final List<Condition> conditions = new ArrayList<>();
+        do {
+            conditions.add(condition());
+        } while (peek() != ')');
+        expect(')');
+        return conditions;
+    }
+
+    private List<List<Condition>> lists() throws MalformedPreconditionException {
+        final List<List<Condition>> lists = new ArrayList<>();
+        do {
+            lists.add(list());
+        } while (peek() == '(');
+        return lists;
+    }
+
+    private boolean not() {
+        final int end = position + NOT.length();
+        if (end > input.length()) {
+            return false;
+        }
+        for (int i = 0; i < NOT.length(); i++) {
+            if (Character.toLowerCase(input.charAt(position + i)) != NOT.charAt(i)) {
+                return false;
+            }
+        }
+        if ((end < input.length()) && isAlphanumeric(input.charAt(end))) {
+            return false; // longer word, not the keyword
+        }
+        position = end;
+        return true;
+    }
+
+    private int peek() {
+        while ((position < input.length()) && isWhitespace(input.charAt(position))) {
+            position++;
+        }
+        return (position < input.length()) ? input.charAt(position) : END;
+    }
+
+    private CompiledPrecondition precondition() throws MalformedPreconditionException {
+        final List<ResourceList> resourceLists = new ArrayList<>();
+        if (peek() == '(') {
+            resourceLists.add(CompiledPrecondition.implicit(lists()));
+        }
+        while (peek() == '<') {
+            final String resource = token('<', URL, '>');
+            resourceLists.add(CompiledPrecondition.explicit(resource, lists()));
+        }
+        if (peek() != END) {
+            throw error("unexpected character");
+        }
+        return new CompiledPrecondition(resourceLists);
+    }
+
+    private String token(final char open, final IntPredicate allowed, final char close) throws MalformedPreconditionException {
+        expect(open);
+        peek(); // skip whitespace
+        final int start = position;
+        while ((position < input.length()) && allowed.test(input.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw error("token expected");
+        }
+        final String token = input.subSequence(start, position).toString();
+        expect(close);
+        return token;
+    }
+}
@@ -31,7 +31,7 @@ public class SupportedLocksProperty extends AbstractWebDavProperty {
     private final Set<SupportedLock> locks;
 
     public SupportedLocksProperty(final Set<SupportedLock> locks) {
-        super(PropertyIdentifier.RESOURCE_TYPE_IDENTIFIER);
+        super(PropertyIdentifier.LOCK_IDENTIFIER);
         this.locks = locks;
     }
 
@@ -0,0 +1,34 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store;
+
+import java.nio.file.Path;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavPath;
+
+/**
+ * Optional capability of a {@link WebDavStore} that keeps the content of its items in regular files. Allows the
+ * content to be transferred without copying it through the heap (e.g. {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} or sendfile support of the container).
+ */
+@ThreadSafe
+public interface FileContentStore {
+
+    Path getContentPath(WebDavPath path) throws WebDavException;
+}
@@ -0,0 +1,217 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.store.WebDavLock.Timeout;
+
+/**
+ * {@link LockTable} keeps the locks of a {@link WebDavStore} in memory, so lock checks are plain map lookups. Locks
+ * are sorted by their path, so all locks below a collection can be found with a single range query. Locks with a
+ * finite {@link Timeout} expire: they are never returned after their deadline and removed with the next access.
+ */
+@ThreadSafe
+public final class LockTable {
+
+    private final class Entry implements Delayed {
+
+        private final long deadline;
+
+        private final WebDavLock lock;
+
+        private final String key;
+
+        Entry(final String key, final WebDavLock lock, final long deadline) {
+            this.deadline = deadline;
+            this.key = key;
+            this.lock = lock;
+        }
+
+        @Override
+        public int compareTo(final Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(deadline - clock.getAsLong(), TimeUnit.NANOSECONDS);
+        }
+
+        boolean isExpired() {
+            return (deadline != INFINITE) && (getDelay(TimeUnit.NANOSECONDS) <= 0L);
+        }
+    }
+
+    private static final long INFINITE = Long.MAX_VALUE;
+
+    private final LongSupplier clock;
+
+    private final DelayQueue<Entry> expiries = new DelayQueue<>();
+
+    private final ConcurrentNavigableMap<String, Entry> locks = new ConcurrentSkipListMap<>();
+
+    public LockTable() {
+        this(System::nanoTime);
+    }
+
+    LockTable(final LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    private long deadline(final Timeout timeout) {
+        if (timeout.getValue() < 0) {
+            return INFINITE;
+        }
+        return clock.getAsLong() + timeout.getUnit().toNanos(timeout.getValue());
+    }
+
+    private void expire() {
+        Entry expired = expiries.poll();
+        while (expired != null) {
+            locks.remove(expired.key, expired); // lock may have been refreshed in the meantime
+            expired = expiries.poll();
+        }
+    }
+
+    private Map<String, Entry> descendants(final WebDavPath path) {
+        if (WebDavPath.ROOT.equals(path)) {
+            return locks;
+        }
+        // all descendants start with the path followed by the separator, the next character marks the end
+        final String from = path.getValue() + WebDavPath.SEPARATOR_CHAR;
+        final String to = path.getValue() + (char) (WebDavPath.SEPARATOR_CHAR + 1);
+        return locks.subMap(from, to);
+    }
+
+    /**
+     * Retrieve the lock of the given {@link WebDavPath}.
+     *
+     * @param path
+     *            the {@link WebDavPath} to retrieve the lock for
+     *
+     * @return the lock of the given {@link WebDavPath} or {@link Optional#empty()} if there is none or it has expired
+     */
+    public Optional<WebDavLock> get(final WebDavPath path) {
+        expire();
+        final Entry entry = locks.get(path.getValue());
+        if ((entry == null) || entry.isExpired()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.lock);
+    }
+
+    /**
+     * Retrieve the locks of the given {@link WebDavPath} and all its descendants.
+     *
+     * @param path
+     *            the {@link WebDavPath} of the subtree
+     *
+     * @return all locks in the subtree by their {@link WebDavPath}
+     */
+    public Map<WebDavPath, WebDavLock> getSubtree(final WebDavPath path) {
+        expire();
+        final Map<WebDavPath, WebDavLock> result = new TreeMap<>();
+        final Entry self = locks.get(path.getValue());
+        if ((self != null) && !self.isExpired()) {
+            result.put(path, self.lock);
+        }
+
+        for (final Map.Entry<String, Entry> descendant : descendants(path).entrySet()) {
+            final Entry entry = descendant.getValue();
+            if (!entry.isExpired()) {
+                result.put(WebDavPath.create(descendant.getKey()), entry.lock);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Store the given lock for the given {@link WebDavPath}, an existing lock is replaced and its timeout restarts.
+     *
+     * @param path
+     *            the {@link WebDavPath} to lock
+     * @param lock
+     *            the lock to store
+     */
+    public void put(final WebDavPath path, final WebDavLock lock) {
+        put0(path, lock, deadline(lock.getTimeout()));
+    }
+
+    /**
+     * Store the given lock for the given {@link WebDavPath} with an explicit deadline, e.g. when restoring persisted locks.
+     *
+     * @param path
+     *            the {@link WebDavPath} to lock
+     * @param lock
+     *            the lock to store
+     * @param remaining
+     *            remaining lifetime of the lock in milliseconds, negative values denote an infinite lock
+     */
+    public void put(final WebDavPath path, final WebDavLock lock, final long remaining) {
+        put0(path, lock, (remaining < 0L) ? INFINITE : clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(remaining));
+    }
+
+    private void put0(final WebDavPath path, final WebDavLock lock, final long deadline) {
+        expire();
+        final Entry entry = new Entry(path.getValue(), lock, deadline);
+        locks.put(entry.key, entry); // a replaced entry stays in the queue until its deadline, expire() skips it
+        if (deadline != INFINITE) {
+            expiries.add(entry);
+        }
+    }
+
+    /**
+     * Remove the lock of the given {@link WebDavPath}.
+     *
+     * @param path
+     *            the {@link WebDavPath} to unlock
+     *
+     * @return the removed lock or {@link Optional#empty()} if there was none or it has expired
+     */
+    public Optional<WebDavLock> remove(final WebDavPath path) {
+        expire();
+        final Entry entry = locks.remove(path.getValue());
+        if ((entry == null) || entry.isExpired()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.lock);
+    }
+
+    /**
+     * Remove the locks of the given {@link WebDavPath} and all its descendants.
+     *
+     * @param path
+     *            the {@link WebDavPath} of the removed subtree
+     */
+    public void removeSubtree(final WebDavPath path) {
+        expire();
+        locks.remove(path.getValue());
+        descendants(path).clear();
+    }
+}
@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.security.Principal;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -28,6 +29,7 @@ import javax.annotation.concurrent.ThreadSafe;
 import de.shadowhunt.webdav.WebDavException;
 import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.method.WebDavMethod;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
 import de.shadowhunt.webdav.property.WebDavProperty;
 
 @ThreadSafe
@@ -37,6 +39,22 @@ public interface WebDavStore {
         ALLOW, DENY, REQUIRE_AUTHENTICATION;
     }
 
+    /**
+     * Copy the resource of the source {@link WebDavPath} with its properties to the target {@link WebDavPath}. Locks
+     * are not copied.
+     *
+     * @param source
+     *            the {@link WebDavPath} of the resource to copy
+     * @param target
+     *            the {@link WebDavPath} of the copy, it must not exist but its parent must be a collection
+     * @param depth
+     *            number of descendant levels to copy, {@code 0} copies a collection without its members
+     *
+     * @return {@code true} if the resource has been copied, {@code false} if the store can not copy it this way and
+     *         nothing has been changed
+     */
+    boolean copy(WebDavPath source, WebDavPath target, int depth) throws WebDavException;
+
     void createCollection(WebDavPath path) throws WebDavException;
 
     void createItem(WebDavPath path, InputStream content) throws WebDavException;
@@ -49,18 +67,52 @@ public interface WebDavStore {
 
     InputStream getContent(WebDavPath path) throws WebDavException;
 
+    InputStream getContent(WebDavPath path, long offset, long length) throws WebDavException;
+
     WebDavEntity getEntity(WebDavPath path) throws WebDavException;
 
+    Optional<WebDavLock> getLock(WebDavPath path) throws WebDavException;
+
+    Map<WebDavPath, WebDavLock> getLocks(WebDavPath path) throws WebDavException;
+
     Collection<WebDavProperty> getProperties(WebDavPath path) throws WebDavException;
 
+    /**
+     * Retrieve only the properties of the given {@link WebDavPath} that have been requested.
+     *
+     * @param path
+     *            the {@link WebDavPath} of the resource
+     * @param requested
+     *            the {@link PropertyIdentifier}s of the properties to retrieve
+     *
+     * @return the properties whose {@link PropertyIdentifier} is contained in requested
+     */
+    Collection<WebDavProperty> getProperties(WebDavPath path, Set<PropertyIdentifier> requested) throws WebDavException;
+
     Set<SupportedLock> getSupportedLocks(WebDavPath path) throws WebDavException;
 
     Access grantAccess(WebDavMethod method, WebDavPath path, Optional<Principal> principal);
 
     List<WebDavPath> list(WebDavPath path) throws WebDavException;
 
+    List<WebDavEntity> listEntities(WebDavPath path) throws WebDavException;
+
     WebDavEntity lock(WebDavPath path, WebDavLock lock) throws WebDavException;
 
+    /**
+     * Move the resource of the source {@link WebDavPath} with all its descendants and properties to the target
+     * {@link WebDavPath}, without copying any content. Locks are not moved, they are released instead.
+     *
+     * @param source
+     *            the {@link WebDavPath} of the resource to move
+     * @param target
+     *            the {@link WebDavPath} the resource is moved to, it must not exist but its parent must be a collection
+     *
+     * @return {@code true} if the resource has been moved, {@code false} if the store can not move it this way (e.g.
+     *         the target is located on another volume) and nothing has been changed
+     */
+    boolean move(WebDavPath source, WebDavPath target) throws WebDavException;
+
     void setProperties(WebDavPath path, Collection<WebDavProperty> properties) throws WebDavException;
 
     void unlock(WebDavPath path) throws WebDavException;
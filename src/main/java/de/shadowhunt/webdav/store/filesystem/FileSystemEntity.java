@@ -19,6 +19,7 @@ package de.shadowhunt.webdav.store.filesystem;
 import java.util.Date;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.store.WebDavEntity;
@@ -28,7 +29,9 @@ class FileSystemEntity implements WebDavEntity {
 
     private final String etag;
 
-    private final String hash;
+    private volatile String hash;
+
+    private final Supplier<String> hashSupplier;
 
     private final Date lastModified;
 
@@ -45,6 +48,7 @@ class FileSystemEntity implements WebDavEntity {
     FileSystemEntity(final WebDavPath path, final Date lastModified, final Optional<WebDavLock> lock) {
         this.etag = null;
         this.hash = null;
+        this.hashSupplier = null;
         this.lastModified = new Date(lastModified.getTime());
         this.lock = lock.orElse(null);
         this.mimeType = COLLECTION_MIME_TYPE;
@@ -53,9 +57,10 @@ class FileSystemEntity implements WebDavEntity {
         this.type = Type.COLLECTION;
     }
 
-    FileSystemEntity(final WebDavPath path, final String hash, final Date lastModified, final long size, final String mimeType, final Optional<WebDavLock> lock, final String etag) {
+    FileSystemEntity(final WebDavPath path, final Supplier<String> hashSupplier, final Date lastModified, final long size, final String mimeType, final Optional<WebDavLock> lock, final String etag) {
         this.etag = Objects.requireNonNull(etag, "etag must not be null");
-        this.hash = Objects.requireNonNull(hash, "hash must not be null");
+        this.hash = null;
+        this.hashSupplier = Objects.requireNonNull(hashSupplier, "hashSupplier must not be null");
         this.lastModified = new Date(lastModified.getTime());
         this.lock = lock.orElse(null);
         this.mimeType = Objects.requireNonNull(mimeType, "mimeType must not be null");
@@ -105,6 +110,9 @@ class FileSystemEntity implements WebDavEntity {
 
     @Override
     public Optional<String> getHash() {
+        if ((hash == null) && (hashSupplier != null)) {
+            hash = hashSupplier.get(); // calculate lazily, it may require reading the whole content
+        }
         return Optional.ofNullable(hash);
     }
 
@@ -34,10 +34,12 @@ public class FileSystemLockBuilder implements WebDavLockBuilder {
 
     private WebDavPath root = WebDavPath.ROOT;
 
+    private Timeout timeout = Timeout.INFINITE;
+
     @Override
     public WebDavLock build() {
         final UUID token = UUID.randomUUID();
-        return new FileSystemLock(token, root, depth, LockScope.EXCLUSIVE, LockType.WRITE, Timeout.INFINITE, owner);
+        return new FileSystemLock(token, root, depth, LockScope.EXCLUSIVE, LockType.WRITE, timeout, owner);
     }
 
     @Override
@@ -62,7 +64,7 @@ public class FileSystemLockBuilder implements WebDavLockBuilder {
 
     @Override
     public void setTimeout(final Timeout timeout) {
-        // only infinite locks are supported
+        this.timeout = timeout;
     }
 
     @Override
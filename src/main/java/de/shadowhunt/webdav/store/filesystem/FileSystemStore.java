@@ -21,75 +21,183 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.activation.MimetypesFileTypeMap;
 
-import de.shadowhunt.webdav.WebDavConstant.Depth;
 import de.shadowhunt.webdav.WebDavException;
 import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.method.WebDavMethod;
 import de.shadowhunt.webdav.property.PropertyIdentifier;
-import de.shadowhunt.webdav.property.StringWebDavProperty;
 import de.shadowhunt.webdav.property.WebDavProperty;
+import de.shadowhunt.webdav.store.FileContentStore;
+import de.shadowhunt.webdav.store.LockTable;
 import de.shadowhunt.webdav.store.SupportedLock;
 import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavLock;
-import de.shadowhunt.webdav.store.WebDavLock.LockScope;
-import de.shadowhunt.webdav.store.WebDavLock.LockType;
 import de.shadowhunt.webdav.store.WebDavLock.Timeout;
 import de.shadowhunt.webdav.store.WebDavLockBuilder;
 import de.shadowhunt.webdav.store.WebDavStore;
+import de.shadowhunt.webdav.store.filesystem.StripedPathLock.Handle;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.SystemUtils;
+
+public class FileSystemStore implements FileContentStore, WebDavStore {
+
+    /**
+     * Controls what is synced to disk before uploaded content replaces the previous version of a resource.
+     */
+    public enum Durability {
+
+        /**
+         * The uploaded content is synced before it replaces the previous version, so an operating system crash can only
+         * lose the replacement itself, but never leaves a partially written resource behind.
+         */
+        CONTENT,
+
+        /**
+         * The uploaded content and the directory entry are synced, so the new version survives an operating system crash
+         * as soon as the upload has completed.
+         */
+        FULL,
+
+        /**
+         * Nothing is synced, flushing is left to the operating system.
+         */
+        NONE;
+    }
 
-public class FileSystemStore implements WebDavStore {
-
-    private static final String LOCK_DEPTH = "depth";
+    private static final class Transfer {
 
-    private static final String LOCK_OWNER = "owner";
+        private final File source;
 
-    private static final String LOCK_ROOT = "root";
+        private final WebDavPath sourcePath;
 
-    private static final String LOCK_SCOPE = "scope";
+        private final File staged;
 
-    private static final String LOCK_TIMEOUT = "timeout";
+        private final WebDavPath targetPath;
 
-    private static final String LOCK_TOKEN = "token";
+        Transfer(final WebDavPath sourcePath, final File source, final WebDavPath targetPath, final File staged) {
+            this.source = source;
+            this.sourcePath = sourcePath;
+            this.staged = staged;
+            this.targetPath = targetPath;
+        }
+    }
 
-    private static final String LOCK_TYPE = "type";
+    private static final String META_LOG = "meta.log";
 
     private static final MimetypesFileTypeMap MIME_TYPES = new MimetypesFileTypeMap();
 
+    private static final int TRANSFER_THREADS = 4;
+
+    private static final String UPLOAD_PREFIX = "upload-";
+
+    // copies block on file io, so they get threads of their own instead of the common pool, idle threads terminate
+    private static ExecutorService createTransferExecutor() {
+        final AtomicInteger threads = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(TRANSFER_THREADS, TRANSFER_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "webdav-transfer-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // makes renames within the folder durable
+    static void sync(final File folder) throws IOException {
+        try (final FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            // folders can not be opened on windows, the content itself has been synced already
+            if (!SystemUtils.IS_OS_WINDOWS) {
+                throw e;
+            }
+        }
+    }
+
     private final File contentRoot;
 
-    private final File metaRoot;
+    private final Durability durability;
+
+    private final LockTable lockTable = new LockTable();
 
-    private final Object monitor = new Object();
+    private final MetaStore metaStore;
+
+    private final StripedPathLock pathLock = new StripedPathLock();
 
     private final Set<SupportedLock> supportedLocks;
 
+    private final ExecutorService transferExecutor = createTransferExecutor();
+
+    private final File uploadRoot;
+
     public FileSystemStore(final File root) {
         this(root, false);
     }
 
     public FileSystemStore(final File root, final boolean clear) {
+        this(root, clear, x -> new LogMetaStore(new File(x, META_LOG), Durability.CONTENT), Durability.CONTENT);
+    }
+
+    public FileSystemStore(final File root, final boolean clear, final Function<File, MetaStore> metaStoreFactory) {
+        this(root, clear, metaStoreFactory, Durability.CONTENT);
+    }
+
+    /**
+     * Create a new {@link FileSystemStore} with a custom {@link MetaStore}. Meta data of the former XML layout found in
+     * the meta folder is imported into the {@link MetaStore}.
+     *
+     * @param root
+     *            the folder that contains content and meta data
+     * @param clear
+     *            {@code true} to remove all existing content and meta data
+     * @param metaStoreFactory
+     *            creates the {@link MetaStore} for the given meta folder
+     * @param durability
+     *            what is synced to disk before uploaded content replaces the previous version of a resource
+     */
+    public FileSystemStore(final File root, final boolean clear, final Function<File, MetaStore> metaStoreFactory, final Durability durability) {
         this.contentRoot = new File(root, "content");
-        this.metaRoot = new File(root, "meta");
+        this.durability = durability;
+        this.uploadRoot = new File(root, "upload");
+        final File metaRoot = new File(root, "meta");
 
         if (clear) {
             FileUtils.deleteQuietly(contentRoot);
@@ -102,26 +210,75 @@ public class FileSystemStore implements WebDavStore {
         if (!metaRoot.exists() && !metaRoot.mkdirs()) {
             throw new WebDavException("metaRoot path: " + metaRoot + " does not exist and can not be created");
         }
+        FileUtils.deleteQuietly(uploadRoot); // remains of uploads that have been interrupted by a crash
+        if (!uploadRoot.mkdirs()) {
+            throw new WebDavException("uploadRoot path: " + uploadRoot + " can not be created");
+        }
+        metaStore = metaStoreFactory.apply(metaRoot);
+        XmlMetaMigration.migrate(metaRoot, metaStore);
+        loadLocks();
 
         final Set<SupportedLock> locks = new TreeSet<>();
         locks.add(SupportedLock.EXCLUSIVE_WRITE_LOCK);
         supportedLocks = Collections.unmodifiableSet(locks);
     }
 
-    private String calculateEtag(final WebDavPath path) {
-        final File contentFile = getContentFile(path, false);
-        final File lockFile = getLockFile(path);
-        final File propertiesFile = getPropertiesFile(path);
-
-        final long modified = max(contentFile.lastModified(), lockFile.lastModified(), propertiesFile.lastModified());
+    private String calculateEtag(final long contentModified, final long metaModified) {
+        final long modified = Math.max(contentModified, metaModified);
         return Long.toString(modified, Character.MAX_RADIX);
     }
 
-    private String calculateMd5(final File file, final WebDavPath path) {
-        try (final FileInputStream fis = new FileInputStream(file)) {
-            return DigestUtils.md5Hex(fis);
-        } catch (final Exception e) {
-            throw new WebDavException("can not calculate md5 hash for " + path, e);
+    @Override
+    public boolean copy(final WebDavPath source, final WebDavPath target, final int depth) throws WebDavException {
+        if (WebDavPath.ROOT.equals(target)) {
+            throw new WebDavException("can not override root");
+        }
+        if (target.getValue().startsWith(source.getValue() + WebDavPath.SEPARATOR_CHAR)) {
+            throw new WebDavException("can not copy " + source + " below itself");
+        }
+        if (exists(target)) {
+            throw new WebDavException("can not copy to existing " + target);
+        }
+
+        // the copy is assembled in the upload folder without blocking the target and then moved into place at once
+        File staging = null;
+        try {
+            staging = Files.createTempDirectory(uploadRoot.toPath(), UPLOAD_PREFIX).toFile();
+            final File copy = new File(staging, target.getName());
+
+            final Map<WebDavPath, MetaData> meta = new TreeMap<>();
+            try (final Handle handle = pathLock.shared(source)) {
+                final List<Transfer> transfers = new ArrayList<>();
+                stage(source, getContentFile(source, true), target, copy, depth, meta, transfers);
+                transfer(transfers, meta);
+            }
+            meta.values().removeIf(MetaData::isEmpty);
+
+            try (final Handle handle = pathLock.exclusive(target)) {
+                final File targetFile = getContentFile(target, false);
+                if (targetFile.exists()) {
+                    throw new WebDavException("can not copy to existing " + target);
+                }
+                if (!targetFile.getParentFile().isDirectory()) {
+                    throw new WebDavException("can not locate parent collection of " + target);
+                }
+
+                meta.forEach(metaStore::put);
+                try {
+                    Files.move(copy.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (final AtomicMoveNotSupportedException e) {
+                    metaStore.remove(target);
+                    return false; // e.g. content and upload folder are located on different volumes
+                } catch (final IOException e) {
+                    metaStore.remove(target);
+                    throw e;
+                }
+            }
+            return true;
+        } catch (final IOException e) {
+            throw new WebDavException("can not copy " + source + " to " + target, e);
+        } finally {
+            FileUtils.deleteQuietly(staging);
         }
     }
 
@@ -131,12 +288,24 @@ public class FileSystemStore implements WebDavStore {
             throw new WebDavException("can not override root");
         }
 
-        synchronized (monitor) {
+        try (final Handle handle = pathLock.exclusive(path)) {
             createFolder(path, getContentFile(path, false));
-            createFolder(path, getMetaFile(path, false));
         }
     }
 
+    private WebDavEntity createEntity(final WebDavPath path, final BasicFileAttributes attributes, final Optional<WebDavLock> lock, final long metaModified) {
+        final long contentModified = attributes.lastModifiedTime().toMillis();
+        final Date lastModified = new Date(contentModified);
+        if (attributes.isRegularFile()) {
+            final Supplier<String> hash = () -> determineHash(path);
+            final long size = attributes.size();
+            final String etag = calculateEtag(contentModified, metaModified);
+            final String mimeType = MIME_TYPES.getContentType(path.getName());
+            return new FileSystemEntity(path, hash, lastModified, size, mimeType, lock, etag);
+        }
+        return new FileSystemEntity(path, lastModified, lock);
+    }
+
     private void createFolder(final WebDavPath path, final File file) {
         if (!file.mkdir()) {
             throw new WebDavException("can not create folder " + path);
@@ -149,15 +318,40 @@ public class FileSystemStore implements WebDavStore {
             throw new WebDavException("can not override root");
         }
 
-        synchronized (monitor) {
-            final File file = getContentFile(path, false);
-            try (final OutputStream os = new FileOutputStream(file)) {
-                IOUtils.copy(content, os);
-            } catch (final IOException e) {
-                throw new WebDavException("can not write to resource " + path, e);
-            } finally {
-                IOUtils.closeQuietly(content);
+        // content is uploaded into a separate file without holding any lock, readers keep seeing the previous version
+        // until the upload has completed and is moved into place
+        File upload = null;
+        try {
+            upload = File.createTempFile(UPLOAD_PREFIX, null, uploadRoot);
+            final MessageDigest digest = DigestUtils.getMd5Digest();
+            // content is owned by the caller and closed only once in finally
+            final InputStream is = new DigestInputStream(content, digest);
+            try (final FileOutputStream os = new FileOutputStream(upload)) {
+                IOUtils.copy(is, os);
+                if (durability != Durability.NONE) {
+                    os.getFD().sync();
+                }
+            }
+
+            try (final Handle handle = pathLock.exclusive(path)) {
+                final File file = getContentFile(path, false);
+                if (file.isDirectory()) {
+                    throw new WebDavException("can not override collection " + path);
+                }
+                if (!file.getParentFile().isDirectory()) {
+                    throw new WebDavException("can not locate parent collection of " + path);
+                }
+                Files.move(upload.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                if (durability == Durability.FULL) {
+                    sync(file.getParentFile());
+                }
+                storeHash(path, file, Hex.encodeHexString(digest.digest()));
             }
+        } catch (final IOException e) {
+            throw new WebDavException("can not write to resource " + path, e);
+        } finally {
+            IOUtils.closeQuietly(content);
+            FileUtils.deleteQuietly(upload); // only exists if the upload has failed
         }
     }
 
@@ -166,28 +360,17 @@ public class FileSystemStore implements WebDavStore {
         return new FileSystemLockBuilder();
     }
 
-    private PropertyIdentifier createPropertyIdentifier(final String elementName) {
-        final String[] parts = elementName.split(" ");
-        return new PropertyIdentifier(parts[0], parts[1]);
-    }
-
     @Override
     public void delete(final WebDavPath path) throws WebDavException {
         if (WebDavPath.ROOT.equals(path)) {
             throw new WebDavException("can not delete root");
         }
 
-        synchronized (monitor) {
+        try (final Handle handle = pathLock.exclusive(path)) {
             final File contentFile = getContentFile(path, true);
             delete(path, contentFile);
-            if (contentFile.isDirectory()) {
-                final File metaFile = getMetaFile(path, true);
-                delete(path, metaFile);
-            }
-            final File lockFile = getLockFile(path);
-            delete(path, lockFile);
-            final File propertiesFile = getPropertiesFile(path);
-            delete(path, propertiesFile);
+            metaStore.remove(path);
+            lockTable.removeSubtree(path);
         }
     }
 
@@ -197,40 +380,46 @@ public class FileSystemStore implements WebDavStore {
         }
     }
 
-    private Optional<WebDavLock> determineLock(final WebDavPath path) {
-        synchronized (monitor) {
-            final File lockFile = getLockFile(path);
-            if (!lockFile.exists()) {
-                return Optional.empty();
+    private String determineHash(final WebDavPath path) {
+        final File file;
+        final long modified;
+        final long size;
+        try (final Handle handle = pathLock.shared(path)) {
+            file = getContentFile(path, true);
+            modified = file.lastModified();
+            size = file.length();
+
+            final Optional<MetaData.Hash> cached = metaStore.get(path).getHash();
+            if (cached.isPresent() && cached.get().matches(size, modified)) {
+                return cached.get().getValue();
             }
+        }
 
-            final Properties properties = new Properties();
-            try (final InputStream is = new FileInputStream(lockFile)) {
-                properties.loadFromXML(is);
-            } catch (final Exception e) {
-                throw new WebDavException("can not load lock for " + path, e);
-            }
+        // hashing large files takes long, so the content is read without holding the lock, uploads replace the file
+        // instead of modifying it, so the opened file is the recorded version as long as it has not been replaced yet
+        final String hash;
+        final boolean recorded;
+        try (final FileInputStream input = new FileInputStream(file)) {
+            recorded = (file.lastModified() == modified) && (file.length() == size) && (input.getChannel().size() == size);
+            hash = DigestUtils.md5Hex(input);
+        } catch (final IOException e) {
+            throw new WebDavException("can not calculate md5 hash for " + path, e);
+        }
 
-            final String depthProperty = properties.getProperty(LOCK_DEPTH);
-            final Depth depth = Depth.parse(depthProperty, Depth.SELF, Depth.MEMBERS, Depth.INFINITY);
-            final String owner = properties.getProperty(LOCK_OWNER);
-            final String rootProperty = properties.getProperty(LOCK_ROOT);
-            final WebDavPath root = WebDavPath.create(rootProperty);
-            final String scopeProperty = properties.getProperty(LOCK_SCOPE);
-            final LockScope scope = LockScope.valueOf(scopeProperty);
-            final String timeoutProperty = properties.getProperty(LOCK_TIMEOUT);
-            final Timeout timeout = Timeout.parse(timeoutProperty);
-            final String tokenProperty = properties.getProperty(LOCK_TOKEN);
-            final UUID token = UUID.fromString(tokenProperty);
-            final String typeProperty = properties.getProperty(LOCK_TYPE);
-            final LockType type = LockType.valueOf(typeProperty);
-            return Optional.of(new FileSystemLock(token, root, depth, scope, type, timeout, owner));
+        if (recorded) {
+            try (final Handle handle = pathLock.exclusive(path)) {
+                // content may have been replaced in the meantime
+                if ((file.lastModified() == modified) && (file.length() == size)) {
+                    storeHash(path, file, hash);
+                }
+            }
         }
+        return hash;
     }
 
     @Override
     public boolean exists(final WebDavPath path) throws WebDavException {
-        synchronized (monitor) {
+        try (final Handle handle = pathLock.shared(path)) {
             final File file = getContentFile(path, false);
             return file.exists();
         }
@@ -238,7 +427,7 @@ public class FileSystemStore implements WebDavStore {
 
     @Override
     public InputStream getContent(final WebDavPath path) throws WebDavException {
-        synchronized (monitor) {
+        try (final Handle handle = pathLock.shared(path)) {
             final File file = getContentFile(path, true);
             try {
                 return new FileInputStream(file);
@@ -248,6 +437,26 @@ public class FileSystemStore implements WebDavStore {
         }
     }
 
+    @Override
+    public InputStream getContent(final WebDavPath path, final long offset, final long length) throws WebDavException {
+        try (final Handle handle = pathLock.shared(path)) {
+            final File file = getContentFile(path, true);
+            if (!file.isFile()) {
+                throw new WebDavException("can not retrieve content of collection " + path);
+            }
+            final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                channel.position(offset);
+            } catch (final IOException e) {
+                IOUtils.closeQuietly(channel);
+                throw e;
+            }
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (final IOException e) {
+            throw new WebDavException("can not retrieve content", e);
+        }
+    }
+
     private File getContentFile(final WebDavPath path, final boolean mustExist) throws WebDavException {
         final File file = new File(contentRoot, path.getValue());
         if (mustExist && !file.exists()) {
@@ -256,69 +465,69 @@ public class FileSystemStore implements WebDavStore {
         return file;
     }
 
-    private File getMetaFile(final WebDavPath path, final boolean mustExist) throws WebDavException {
-        final File file = new File(metaRoot, path.getValue());
-        if (mustExist && !file.exists()) {
-            throw new WebDavException("can not locate resource: " + path);
+    @Override
+    public Path getContentPath(final WebDavPath path) throws WebDavException {
+        try (final Handle handle = pathLock.shared(path)) {
+            final File file = getContentFile(path, true);
+            if (!file.isFile()) {
+                throw new WebDavException("can not retrieve content of collection " + path);
+            }
+            return file.toPath();
         }
-        return file;
     }
 
     @Override
     public WebDavEntity getEntity(final WebDavPath path) throws WebDavException {
-        synchronized (monitor) {
-            final File file = getContentFile(path, true);
-
-            final Date lastModified = new Date(file.lastModified());
-            final Optional<WebDavLock> lock = determineLock(path);
-            if (file.isFile()) {
-                final String hash = calculateMd5(file, path);
-                final long size = file.length();
-                final String etag = calculateEtag(path);
-                final String mimeType = MIME_TYPES.getContentType(file);
-                return new FileSystemEntity(path, hash, lastModified, size, mimeType, lock, etag);
-            }
-            return new FileSystemEntity(path, lastModified, lock);
+        try (final Handle handle = pathLock.shared(path)) {
+            return getEntity0(path);
         }
     }
 
-    private File getLockFile(final WebDavPath path) {
-        return new File(metaRoot, path.getValue() + "_lock");
+    private WebDavEntity getEntity0(final WebDavPath path) {
+        final File file = getContentFile(path, true);
+
+        final BasicFileAttributes attributes = readAttributes(path, file.toPath());
+        final Optional<WebDavLock> lock = lockTable.get(path);
+        final MetaData data = metaStore.get(path);
+        return createEntity(path, attributes, lock, data.getModified());
+    }
+
+    @Override
+    public Optional<WebDavLock> getLock(final WebDavPath path) throws WebDavException {
+        return lockTable.get(path);
+    }
+
+    @Override
+    public Map<WebDavPath, WebDavLock> getLocks(final WebDavPath path) throws WebDavException {
+        return lockTable.getSubtree(path);
     }
 
     @Override
     public Collection<WebDavProperty> getProperties(final WebDavPath path) throws WebDavException {
-        synchronized (monitor) {
+        try (final Handle handle = pathLock.shared(path)) {
             getContentFile(path, true); // ensure collection/item exists
 
-            final File properitesFile = getPropertiesFile(path);
-            if (!properitesFile.exists()) {
-                return new ArrayList<>();
-            }
+            final MetaData data = metaStore.get(path);
+            return new ArrayList<>(data.getProperties());
+        }
+    }
 
-            final Properties properties = new Properties();
-            try (final InputStream is = new FileInputStream(properitesFile)) {
-                properties.loadFromXML(is);
-
-                final Collection<WebDavProperty> result = new ArrayList<>();
-                final Enumeration<?> enumeration = properties.propertyNames();
-                while (enumeration.hasMoreElements()) {
-                    final Object element = enumeration.nextElement();
-                    final Object value = properties.get(element);
-                    final PropertyIdentifier identifier = createPropertyIdentifier(element.toString());
-                    result.add(new StringWebDavProperty(identifier, value.toString()));
+    @Override
+    public Collection<WebDavProperty> getProperties(final WebDavPath path, final Set<PropertyIdentifier> requested) throws WebDavException {
+        try (final Handle handle = pathLock.shared(path)) {
+            getContentFile(path, true); // ensure collection/item exists
+
+            final MetaData data = metaStore.get(path);
+            final Collection<WebDavProperty> result = new ArrayList<>();
+            for (final WebDavProperty property : data.getProperties()) {
+                if (requested.contains(property.getIdentifier())) {
+                    result.add(property);
                 }
-                return result;
-            } catch (final Exception e) {
-                throw new WebDavException("can not load properties for " + path, e);
             }
+            return result;
         }
     }
 
-    private File getPropertiesFile(final WebDavPath path) throws WebDavException {
-        return new File(metaRoot, path.getValue() + "_dead-properties");
-    }
-
     @Override
     public Set<SupportedLock> getSupportedLocks(final WebDavPath path) throws WebDavException {
         return supportedLocks;
@@ -331,7 +540,7 @@ public class FileSystemStore implements WebDavStore {
 
     @Override
     public List<WebDavPath> list(final WebDavPath path) throws WebDavException {
-        synchronized (monitor) {
+        try (final Handle handle = pathLock.shared(path)) {
             final File file = getContentFile(path, true);
             if (file.isFile()) {
                 return Collections.emptyList();
@@ -348,76 +557,222 @@ public class FileSystemStore implements WebDavStore {
         }
     }
 
+    @Override
+    public List<WebDavEntity> listEntities(final WebDavPath path) throws WebDavException {
+        final Map<WebDavPath, BasicFileAttributes> children = new TreeMap<>();
+        try (final Handle handle = pathLock.shared(path)) {
+            final File file = getContentFile(path, true);
+            if (file.isFile()) {
+                return Collections.emptyList();
+            }
+
+            // one pass over the content folder instead of several lookups per child
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(file.toPath())) {
+                for (final Path child : stream) {
+                    final WebDavPath childPath = path.append(child.getFileName().toString());
+                    children.put(childPath, readAttributes(childPath, child));
+                }
+            }
+        } catch (final IOException e) {
+            throw new WebDavException("can not list " + path, e);
+        }
+
+        final List<WebDavEntity> result = new ArrayList<>(children.size());
+        for (final Map.Entry<WebDavPath, BasicFileAttributes> child : children.entrySet()) {
+            final WebDavPath childPath = child.getKey();
+            final Optional<WebDavLock> lock = lockTable.get(childPath);
+            final MetaData data = metaStore.get(childPath);
+            result.add(createEntity(childPath, child.getValue(), lock, data.getModified()));
+        }
+        return result;
+    }
+
+    // locks are kept in memory, the meta store only persists them across restarts
+    private void loadLocks() {
+        final long now = System.currentTimeMillis();
+        final Map<WebDavPath, MetaData> expired = new TreeMap<>();
+        metaStore.forEach((path, data) -> {
+            final Optional<WebDavLock> lock = data.getLock();
+            if (!lock.isPresent()) {
+                return;
+            }
+
+            final long expires = data.getLockExpires();
+            if (expires < 0L) {
+                lockTable.put(path, lock.get(), -1L);
+            } else if (expires > now) {
+                lockTable.put(path, lock.get(), expires - now);
+            } else {
+                expired.put(path, data); // lock has expired while the store was not running
+            }
+        });
+        expired.forEach((path, data) -> metaStore.put(path, data.withLock(Optional.empty(), -1L, now)));
+    }
+
     @Override
     public WebDavEntity lock(final WebDavPath path, final WebDavLock lock) throws WebDavException {
-        synchronized (monitor) {
-            final File lockFile = getLockFile(path);
-
-            final Properties store = new Properties();
-            final Depth depth = lock.getDepth();
-            store.put(LOCK_DEPTH, depth.name);
-            final String owner = lock.getOwner();
-            store.put(LOCK_OWNER, owner);
-            final WebDavPath root = lock.getRoot();
-            final String rootProperty = root.getValue();
-            store.put(LOCK_ROOT, rootProperty);
-            final LockScope scope = lock.getScope();
-            final String scopeProperty = scope.name();
-            store.put(LOCK_SCOPE, scopeProperty);
+        try (final Handle handle = pathLock.exclusive(path)) {
+            getContentFile(path, true); // ensure collection/item exists
+
+            final long now = System.currentTimeMillis();
             final Timeout timeout = lock.getTimeout();
-            final String timeoutProperty = timeout.toString();
-            store.put(LOCK_TIMEOUT, timeoutProperty);
-            final UUID token = lock.getToken();
-            final String tokenProperty = token.toString();
-            store.put(LOCK_TOKEN, tokenProperty);
-            final LockType type = lock.getType();
-            final String typeProperty = type.name();
-            store.put(LOCK_TYPE, typeProperty);
-
-            try (final OutputStream os = new FileOutputStream(lockFile)) {
-                store.storeToXML(os, "", "UTF-8");
-            } catch (final Exception e) {
-                throw new WebDavException("can not write lock for " + path, e);
+            final long expires = (timeout.getValue() < 0) ? -1L : now + timeout.getUnit().toMillis(timeout.getValue());
+            final MetaData data = metaStore.get(path);
+            metaStore.put(path, data.withLock(Optional.of(lock), expires, now));
+            lockTable.put(path, lock);
+
+            return getEntity0(path);
+        }
+    }
+
+    @Override
+    public boolean move(final WebDavPath source, final WebDavPath target) throws WebDavException {
+        if (WebDavPath.ROOT.equals(source) || WebDavPath.ROOT.equals(target)) {
+            throw new WebDavException("can not move root");
+        }
+        if (target.getValue().startsWith(source.getValue() + WebDavPath.SEPARATOR_CHAR)) {
+            throw new WebDavException("can not move " + source + " below itself");
+        }
+
+        try (final Handle handle = pathLock.exclusive(source, target)) {
+            final File sourceFile = getContentFile(source, true);
+            final File targetFile = getContentFile(target, false);
+            if (targetFile.exists()) {
+                throw new WebDavException("can not move to existing " + target);
+            }
+            if (!targetFile.getParentFile().isDirectory()) {
+                throw new WebDavException("can not locate parent collection of " + target);
             }
 
-            return getEntity(path);
+            try {
+                Files.move(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                return false; // e.g. target is located on another volume
+            } catch (final IOException e) {
+                throw new WebDavException("can not move " + source + " to " + target, e);
+            }
+
+            // locks are not moved with their resources
+            final long now = System.currentTimeMillis();
+            for (final WebDavPath locked : lockTable.getSubtree(source).keySet()) {
+                final MetaData data = metaStore.get(locked);
+                metaStore.put(locked, data.withLock(Optional.empty(), -1L, now));
+            }
+            lockTable.removeSubtree(source);
+            metaStore.move(source, target);
+            return true;
         }
     }
 
-    private long max(final long first, final long... values) {
-        long max = first;
-        for (int i = 0; i < values.length; i++) {
-            max = Math.max(max, values[i]);
+    private BasicFileAttributes readAttributes(final WebDavPath path, final Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (final IOException e) {
+            throw new WebDavException("can not read attributes of " + path, e);
         }
-        return max;
     }
 
     @Override
     public void setProperties(final WebDavPath path, final Collection<WebDavProperty> properties) throws WebDavException {
-        synchronized (monitor) {
+        try (final Handle handle = pathLock.exclusive(path)) {
             getContentFile(path, true); // ensure collection/item exists
 
-            final Properties store = new Properties();
-            for (final WebDavProperty property : properties) {
-                final PropertyIdentifier identifier = property.getIdentifier();
-                store.put(identifier.getNameSpace() + " " + identifier.getName(), property.getValue());
+            final MetaData data = metaStore.get(path);
+            metaStore.put(path, data.withProperties(properties, System.currentTimeMillis()));
+        }
+    }
+
+    private void stage(final WebDavPath source, final File sourceFile, final WebDavPath target, final File staged, final int depth, final Map<WebDavPath, MetaData> meta, final List<Transfer> transfers) throws IOException {
+        if (sourceFile.isFile()) {
+            transfers.add(new Transfer(source, sourceFile, target, staged));
+            return;
+        }
+
+        if (!staged.mkdir()) {
+            throw new IOException("can not create folder " + staged);
+        }
+        final MetaData data = metaStore.get(source);
+        meta.put(target, MetaData.EMPTY.withProperties(data.getProperties(), data.getModified()));
+
+        if (depth > 0) {
+            final String[] children = sourceFile.list();
+            if (children != null) {
+                for (final String child : children) {
+                    stage(source.append(child), new File(sourceFile, child), target.append(child), new File(staged, child), depth - 1, meta, transfers);
+                }
+            }
+        }
+    }
+
+    private void storeHash(final WebDavPath path, final File file, final String hash) {
+        final MetaData data = metaStore.get(path);
+        metaStore.put(path, data.withHash(Optional.of(new MetaData.Hash(hash, file.length(), file.lastModified()))));
+    }
+
+    private MetaData transfer(final Transfer transfer) {
+        final File source = transfer.source;
+        final long modified = source.lastModified();
+        final long size = source.length();
+        try (final FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ); final FileChannel out = FileChannel.open(transfer.staged.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // transferTo lets the operating system copy the content without passing it through the java heap
+            long position = 0L;
+            final long length = in.size();
+            while (position < length) {
+                position += in.transferTo(position, length - position, out);
             }
+            if (durability != Durability.NONE) {
+                out.force(true);
+            }
+        } catch (final IOException e) {
+            throw new WebDavException("can not copy " + transfer.sourcePath, e);
+        }
+
+        final MetaData data = metaStore.get(transfer.sourcePath);
+        final MetaData copy = MetaData.EMPTY.withProperties(data.getProperties(), data.getModified());
 
-            final File propertiesFile = getPropertiesFile(path);
-            try (final OutputStream os = new FileOutputStream(propertiesFile)) {
-                store.storeToXML(os, "", "UTF-8");
-            } catch (final Exception e) {
-                throw new WebDavException("can not save properties for " + path, e);
+        // the cached hash is still valid as long as the source has not been replaced during the transfer
+        final Optional<MetaData.Hash> hash = data.getHash();
+        if (hash.isPresent() && hash.get().matches(size, modified) && (source.lastModified() == modified) && (source.length() == size)) {
+            final File staged = transfer.staged;
+            return copy.withHash(Optional.of(new MetaData.Hash(hash.get().getValue(), staged.length(), staged.lastModified())));
+        }
+        return copy;
+    }
+
+    private void transfer(final List<Transfer> transfers, final Map<WebDavPath, MetaData> meta) {
+        final List<Future<MetaData>> pending = new ArrayList<>(transfers.size());
+        try {
+            for (final Transfer transfer : transfers) {
+                pending.add(transferExecutor.submit(() -> transfer(transfer)));
+            }
+            for (int i = 0; i < transfers.size(); i++) {
+                meta.put(transfers.get(i).targetPath, pending.get(i).get());
             }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDavException("copy has been interrupted", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof WebDavException) {
+                throw (WebDavException) cause;
+            }
+            throw new WebDavException("can not copy", cause);
+        } finally {
+            pending.forEach(x -> x.cancel(true)); // remaining transfers are pointless once one has failed
         }
     }
 
     @Override
     public void unlock(final WebDavPath path) throws WebDavException {
-        synchronized (monitor) {
-            final File lockFile = getLockFile(path);
-            if (!lockFile.delete()) {
-                throw new WebDavException("can not remove lock for " + path);
+        try (final Handle handle = pathLock.exclusive(path)) {
+            final Optional<WebDavLock> lock = lockTable.remove(path);
+            final MetaData data = metaStore.get(path);
+            if (data.getLock().isPresent()) {
+                // also removes locks that have expired in the meantime
+                metaStore.put(path, data.withLock(Optional.empty(), -1L, System.currentTimeMillis()));
+            }
+            if (!lock.isPresent()) {
+                throw new WebDavException("path is not locked " + path);
             }
         }
     }
@@ -0,0 +1,501 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.filesystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.shadowhunt.webdav.WebDavConstant.Depth;
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+import de.shadowhunt.webdav.property.StringWebDavProperty;
+import de.shadowhunt.webdav.property.WebDavProperty;
+import de.shadowhunt.webdav.store.WebDavLock;
+import de.shadowhunt.webdav.store.filesystem.FileSystemStore.Durability;
+import de.shadowhunt.webdav.store.WebDavLock.LockScope;
+import de.shadowhunt.webdav.store.WebDavLock.LockType;
+import de.shadowhunt.webdav.store.WebDavLock.Timeout;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link LogMetaStore} keeps all {@link MetaData} in memory and persists every modification by appending a binary
+ * record to a single log file. Each record carries its length and a CRC32 checksum, so a record that was only partially
+ * written when the process died is detected and cut off when the log is replayed. Once the log contains more
+ * superseded than live records it is compacted: the live records are written to a new file, which is synced and then
+ * atomically moved over the old log, so a crash during compaction leaves either the old or the new log behind.
+ * <p>
+ * The {@link Durability} controls when the log is synced: {@link Durability#FULL} syncs every record before the
+ * modification returns, {@link Durability#CONTENT} leaves records to the operating system and only syncs compactions,
+ * {@link Durability#NONE} never syncs.
+ */
+@ThreadSafe
+public final class LogMetaStore implements Closeable, MetaStore {
+
+    static final int COMPACT_THRESHOLD = 1024;
+
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogMetaStore.class);
+
+    private static final int MAGIC = 0x5744_4d4c; // WDML
+
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private static final byte MOVE = 3;
+
+    private static final byte PUT = 1;
+
+    private static final byte REMOVE = 2;
+
+    private static final int VERSION = 1;
+
+    private static int checksum(final byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] frame(final byte operation, final String key, final Object argument) {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        try (final DataOutputStream output = new DataOutputStream(buffer)) {
+            output.writeByte(operation);
+            writeString(output, key);
+            if (operation == PUT) {
+                writeMetaData(output, (MetaData) argument);
+            } else if (operation == MOVE) {
+                writeString(output, (String) argument);
+            }
+        } catch (final IOException e) {
+            throw new WebDavException("can not encode meta data for " + key, e);
+        }
+
+        final byte[] payload = buffer.toByteArray();
+        final ByteBuffer record = ByteBuffer.allocate(payload.length + 8);
+        record.putInt(payload.length);
+        record.putInt(checksum(payload));
+        record.put(payload);
+        return record.array();
+    }
+
+    private static MetaData readMetaData(final DataInput input) throws IOException {
+        final long modified = input.readLong();
+
+        Optional<MetaData.Hash> hash = Optional.empty();
+        if (input.readBoolean()) {
+            final String value = readString(input);
+            final long size = input.readLong();
+            final long hashModified = input.readLong();
+            hash = Optional.of(new MetaData.Hash(value, size, hashModified));
+        }
+
+        Optional<WebDavLock> lock = Optional.empty();
+        long lockExpires = -1L;
+        if (input.readBoolean()) {
+            final UUID token = UUID.fromString(readString(input));
+            final WebDavPath root = WebDavPath.create(readString(input));
+            final Depth depth = Depth.parse(readString(input), Depth.SELF, Depth.MEMBERS, Depth.INFINITY);
+            final LockScope scope = LockScope.valueOf(readString(input));
+            final LockType type = LockType.valueOf(readString(input));
+            final Timeout timeout = Timeout.parse(readString(input));
+            final String owner = readString(input);
+            lockExpires = input.readLong();
+            lock = Optional.of(new FileSystemLock(token, root, depth, scope, type, timeout, owner));
+        }
+
+        final int count = input.readInt();
+        final List<WebDavProperty> properties = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String nameSpace = readString(input);
+            final String name = readString(input);
+            final String value = readString(input);
+            properties.add(new StringWebDavProperty(new PropertyIdentifier(nameSpace, name), value));
+        }
+        return new MetaData(hash, lock, lockExpires, properties, modified);
+    }
+
+    private static String readString(final DataInput input) throws IOException {
+        final int length = input.readInt();
+        if ((length < 0) || (length > MAX_RECORD_SIZE)) {
+            throw new IOException("invalid string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeHeader(final DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    private static void writeMetaData(final DataOutput output, final MetaData data) throws IOException {
+        output.writeLong(data.getModified());
+
+        final Optional<MetaData.Hash> hash = data.getHash();
+        output.writeBoolean(hash.isPresent());
+        if (hash.isPresent()) {
+            writeString(output, hash.get().getValue());
+            output.writeLong(hash.get().getSize());
+            output.writeLong(hash.get().getModified());
+        }
+
+        final Optional<WebDavLock> lock = data.getLock();
+        output.writeBoolean(lock.isPresent());
+        if (lock.isPresent()) {
+            writeString(output, lock.get().getToken().toString());
+            writeString(output, lock.get().getRoot().getValue());
+            writeString(output, lock.get().getDepth().name);
+            writeString(output, lock.get().getScope().name());
+            writeString(output, lock.get().getType().name());
+            writeString(output, lock.get().getTimeout().toString());
+            writeString(output, lock.get().getOwner());
+            output.writeLong(data.getLockExpires());
+        }
+
+        final Collection<WebDavProperty> properties = data.getProperties();
+        output.writeInt(properties.size());
+        for (final WebDavProperty property : properties) {
+            final PropertyIdentifier identifier = property.getIdentifier();
+            writeString(output, identifier.getNameSpace());
+            writeString(output, identifier.getName());
+            writeString(output, property.getValue());
+        }
+    }
+
+    private static void writeString(final DataOutput output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @GuardedBy("lock")
+    private FileChannel channel;
+
+    private final int compactThreshold;
+
+    private final Durability durability;
+
+    private final File file;
+
+    @GuardedBy("lock")
+    private long garbage = 0L;
+
+    private final ConcurrentNavigableMap<String, MetaData> index = new ConcurrentSkipListMap<>();
+
+    // not a monitor: appending blocks on file io, which would pin virtual threads to their carrier
+    private final Lock lock = new ReentrantLock();
+
+    public LogMetaStore(final File file) {
+        this(file, Durability.CONTENT);
+    }
+
+    public LogMetaStore(final File file, final Durability durability) {
+        this(file, durability, COMPACT_THRESHOLD);
+    }
+
+    LogMetaStore(final File file, final Durability durability, final int compactThreshold) {
+        this.compactThreshold = compactThreshold;
+        this.durability = durability;
+        this.file = file;
+
+        lock.lock();
+        try {
+            replay();
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (shouldCompact()) {
+                compact();
+            }
+        } catch (final IOException e) {
+            IOUtils.closeQuietly(channel);
+            throw new WebDavException("can not open meta log " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void append(final String key, final byte[] record) {
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (durability == Durability.FULL) {
+                channel.force(false);
+            }
+        } catch (final IOException e) {
+            throw new WebDavException("can not write meta data for " + key, e);
+        }
+    }
+
+    @GuardedBy("lock")
+    private int apply(final byte operation, final String key, final Object argument) {
+        if (operation == PUT) {
+            return (index.put(key, (MetaData) argument) == null) ? 0 : 1;
+        }
+
+        if (operation == MOVE) {
+            final String target = (String) argument;
+            final Map<String, MetaData> moved = new TreeMap<>();
+            final MetaData self = index.get(key);
+            if (self != null) {
+                moved.put(target, self);
+            }
+            for (final Map.Entry<String, MetaData> descendant : descendants(key).entrySet()) {
+                moved.put(target + descendant.getKey().substring(key.length()), descendant.getValue());
+            }
+
+            final int garbage = 1 + remove(key) + remove(target); // the move record itself is garbage, too
+            index.putAll(moved);
+            return garbage;
+        }
+
+        return 1 + remove(key); // the remove record itself is garbage, too
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void compact() throws IOException {
+        final File compacting = new File(file.getPath() + COMPACT_SUFFIX);
+        // the channel stays attached to the compacted log once it has been moved and is positioned at its end
+        final FileChannel compacted = FileChannel.open(compacting.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(compacted)));
+            writeHeader(output);
+            for (final Map.Entry<String, MetaData> entry : index.entrySet()) {
+                output.write(frame(PUT, entry.getKey(), entry.getValue()));
+            }
+            output.flush();
+            if (durability != Durability.NONE) {
+                compacted.force(false); // new log must be durable before it replaces the old one
+            }
+            Files.move(compacting.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException | RuntimeException e) {
+            compacted.close();
+            throw e;
+        }
+
+        final FileChannel previous = channel;
+        channel = compacted;
+        garbage = 0L;
+        IOUtils.closeQuietly(previous);
+        if (durability != Durability.NONE) {
+            FileSystemStore.sync(file.getParentFile()); // otherwise a crash may bring back the old log
+        }
+    }
+
+    private Map<String, MetaData> descendants(final String key) {
+        if (WebDavPath.ROOT.getValue().equals(key)) {
+            return index;
+        }
+        // all descendants start with the path followed by the separator, the next character marks the end
+        return index.subMap(key + WebDavPath.SEPARATOR_CHAR, key + (char) (WebDavPath.SEPARATOR_CHAR + 1));
+    }
+
+    @Override
+    public void forEach(final BiConsumer<WebDavPath, MetaData> consumer) throws WebDavException {
+        for (final Map.Entry<String, MetaData> entry : index.entrySet()) {
+            consumer.accept(WebDavPath.create(entry.getKey()), entry.getValue());
+        }
+    }
+
+    @Override
+    public MetaData get(final WebDavPath path) throws WebDavException {
+        return index.getOrDefault(path.getValue(), MetaData.EMPTY);
+    }
+
+    @GuardedBy("lock")
+    private void maybeCompact() {
+        if (shouldCompact()) {
+            try {
+                compact();
+            } catch (final IOException e) {
+                // the current log is still complete, compaction will be retried with the next modification
+                LOGGER.warn("can not compact meta log " + file, e);
+            }
+        }
+    }
+
+    @Override
+    public void move(final WebDavPath source, final WebDavPath target) throws WebDavException {
+        lock.lock();
+        try {
+            final String key = source.getValue();
+            append(key, frame(MOVE, key, target.getValue()));
+            garbage += apply(MOVE, key, target.getValue());
+            maybeCompact();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(final WebDavPath path, final MetaData data) throws WebDavException {
+        lock.lock();
+        try {
+            final String key = path.getValue();
+            append(key, frame(PUT, key, data));
+            garbage += apply(PUT, key, data);
+            maybeCompact();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(final WebDavPath path) throws WebDavException {
+        lock.lock();
+        try {
+            final String key = path.getValue();
+            final Map<String, MetaData> descendants = descendants(key);
+            if (!index.containsKey(key) && descendants.isEmpty()) {
+                return;
+            }
+
+            append(key, frame(REMOVE, key, null));
+            garbage += apply(REMOVE, key, null);
+            maybeCompact();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private int remove(final String key) {
+        final Map<String, MetaData> descendants = descendants(key);
+        final int removed = ((index.remove(key) == null) ? 0 : 1) + descendants.size();
+        descendants.clear();
+        return removed;
+    }
+
+    @GuardedBy("lock")
+    private void replay() throws IOException {
+        FileUtils.deleteQuietly(new File(file.getPath() + COMPACT_SUFFIX)); // interrupted compaction, the log is still complete
+
+        if (file.length() < HEADER_SIZE) {
+            // new log or its creation has been interrupted
+            try (final DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+                writeHeader(output);
+            }
+            return;
+        }
+
+        final long size = file.length();
+        long valid = HEADER_SIZE;
+        try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)) {
+                throw new IOException("unsupported meta log format");
+            }
+
+            // the log only ends cleanly after a complete record, every byte beyond it belongs to a damaged record
+            while (valid < size) {
+                final int length = input.readInt();
+                if ((length <= 0) || (length > MAX_RECORD_SIZE)) {
+                    break;
+                }
+
+                final int checksum = input.readInt();
+                final byte[] payload = new byte[length];
+                input.readFully(payload);
+                if (checksum(payload) != checksum) {
+                    break;
+                }
+
+                final DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                final byte operation = record.readByte();
+                final String key = readString(record);
+                final Object argument;
+                if (operation == PUT) {
+                    argument = readMetaData(record);
+                } else if (operation == MOVE) {
+                    argument = readString(record);
+                } else {
+                    argument = null;
+                }
+                garbage += apply(operation, key, argument);
+                valid += length + 8;
+            }
+        } catch (final EOFException e) {
+            // partially written record, cut off below
+        }
+
+        if (valid == size) {
+            return;
+        }
+
+        LOGGER.warn("meta log " + file + " ends with a damaged record, truncating it to " + valid + " bytes");
+        try (final FileChannel damaged = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            damaged.truncate(valid);
+        }
+    }
+
+    @GuardedBy("lock")
+    private boolean shouldCompact() {
+        return (garbage >= compactThreshold) && (garbage > index.size());
+    }
+}
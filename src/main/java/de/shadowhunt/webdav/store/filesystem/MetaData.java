@@ -0,0 +1,137 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.filesystem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.concurrent.Immutable;
+
+import de.shadowhunt.webdav.property.WebDavProperty;
+import de.shadowhunt.webdav.store.WebDavLock;
+
+/**
+ * {@link MetaData} holds everything a {@link FileSystemStore} knows about a resource beside its content: the lock, the
+ * dead properties and the cached content hash. Instances are immutable, every modification returns a new instance.
+ */
+@Immutable
+public final class MetaData {
+
+    /**
+     * Cached md5 hash of the content, only valid as long as size and modification time of the content match.
+     */
+    @Immutable
+    public static final class Hash {
+
+        private final long modified;
+
+        private final long size;
+
+        private final String value;
+
+        public Hash(final String value, final long size, final long modified) {
+            this.modified = modified;
+            this.size = size;
+            this.value = Objects.requireNonNull(value, "value must not be null");
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean matches(final long size, final long modified) {
+            return (this.size == size) && (this.modified == modified);
+        }
+    }
+
+    public static final MetaData EMPTY = new MetaData(Optional.empty(), Optional.empty(), -1L, Collections.emptyList(), 0L);
+
+    private final Optional<Hash> hash;
+
+    private final Optional<WebDavLock> lock;
+
+    private final long lockExpires;
+
+    private final long modified;
+
+    private final Collection<WebDavProperty> properties;
+
+    public MetaData(final Optional<Hash> hash, final Optional<WebDavLock> lock, final long lockExpires, final Collection<WebDavProperty> properties, final long modified) {
+        this.hash = Objects.requireNonNull(hash, "hash must not be null");
+        this.lock = Objects.requireNonNull(lock, "lock must not be null");
+        this.lockExpires = lockExpires;
+        this.modified = modified;
+        this.properties = Collections.unmodifiableList(new ArrayList<>(properties));
+    }
+
+    public Optional<Hash> getHash() {
+        return hash;
+    }
+
+    public Optional<WebDavLock> getLock() {
+        return lock;
+    }
+
+    /**
+     * Returns the point in time (milliseconds since the epoch) the lock expires.
+     *
+     * @return the point in time the lock expires or a negative value if the lock never expires
+     */
+    public long getLockExpires() {
+        return lockExpires;
+    }
+
+    /**
+     * Returns the point in time (milliseconds since the epoch) the lock or the properties have been modified.
+     *
+     * @return the point in time of the last modification or {@code 0} if neither has ever been set
+     */
+    public long getModified() {
+        return modified;
+    }
+
+    public Collection<WebDavProperty> getProperties() {
+        return properties;
+    }
+
+    public boolean isEmpty() {
+        return !hash.isPresent() && !lock.isPresent() && properties.isEmpty() && (modified == 0L);
+    }
+
+    public MetaData withHash(final Optional<Hash> hash) {
+        return new MetaData(hash, lock, lockExpires, properties, modified);
+    }
+
+    public MetaData withLock(final Optional<WebDavLock> lock, final long lockExpires, final long modified) {
+        return new MetaData(hash, lock, lockExpires, properties, modified);
+    }
+
+    public MetaData withProperties(final Collection<WebDavProperty> properties, final long modified) {
+        return new MetaData(hash, lock, lockExpires, properties, modified);
+    }
+}
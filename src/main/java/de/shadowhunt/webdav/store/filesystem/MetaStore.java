@@ -0,0 +1,62 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.filesystem;
+
+import java.util.function.BiConsumer;
+
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavPath;
+
+/**
+ * {@link MetaStore} persists the {@link MetaData} of a {@link FileSystemStore}. Implementations must be thread safe,
+ * the {@link FileSystemStore} guarantees that a {@link WebDavPath} is never modified concurrently.
+ */
+public interface MetaStore {
+
+    void forEach(BiConsumer<WebDavPath, MetaData> consumer) throws WebDavException;
+
+    /**
+     * Retrieve the {@link MetaData} of the given {@link WebDavPath}.
+     *
+     * @param path
+     *            the {@link WebDavPath} to retrieve the {@link MetaData} for
+     *
+     * @return the {@link MetaData} of the given {@link WebDavPath} or {@link MetaData#EMPTY} if there is none
+     */
+    MetaData get(WebDavPath path) throws WebDavException;
+
+    /**
+     * Move the {@link MetaData} of the source {@link WebDavPath} and all its descendants to the target
+     * {@link WebDavPath}, replacing all existing {@link MetaData} of the target and its descendants.
+     *
+     * @param source
+     *            the {@link WebDavPath} of the moved subtree
+     * @param target
+     *            the {@link WebDavPath} the subtree is moved to
+     */
+    void move(WebDavPath source, WebDavPath target) throws WebDavException;
+
+    void put(WebDavPath path, MetaData data) throws WebDavException;
+
+    /**
+     * Remove the {@link MetaData} of the given {@link WebDavPath} and all its descendants.
+     *
+     * @param path
+     *            the {@link WebDavPath} of the removed subtree
+     */
+    void remove(WebDavPath path) throws WebDavException;
+}
@@ -0,0 +1,145 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.filesystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.shadowhunt.webdav.WebDavPath;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * {@link StripedPathLock} guards {@link WebDavPath}s with a fixed number of read-write lock stripes. Every operation
+ * holds the stripes of all ancestors (beside the ROOT) shared and the stripe of its target either shared or
+ * exclusive. Stripes are always acquired in ascending index order, so operations can not deadlock each other.
+ */
+@ThreadSafe
+final class StripedPathLock {
+
+    /**
+     * Releases all stripes acquired by {@link StripedPathLock#shared(WebDavPath)} or {@link StripedPathLock#exclusive(WebDavPath...)}.
+     */
+    interface Handle extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    static final int DEFAULT_STRIPES = 256;
+
+    private static void collect(final Map<Integer, Boolean> required, final int index, final boolean exclusive) {
+        final Boolean previous = required.get(index);
+        if ((previous == null) || (exclusive && !previous)) {
+            required.put(index, exclusive);
+        }
+    }
+
+    private final int mask;
+
+    private final ReadWriteLock[] stripes;
+
+    StripedPathLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    StripedPathLock(final int stripes) {
+        Validate.isTrue((stripes > 0) && (Integer.bitCount(stripes) == 1), "stripes must be a positive power of two: %d", stripes);
+
+        this.mask = stripes - 1;
+        this.stripes = new ReadWriteLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    private Handle acquire(final Map<Integer, Boolean> required) {
+        final List<Lock> acquired = new ArrayList<>(required.size());
+        try {
+            for (final Map.Entry<Integer, Boolean> entry : required.entrySet()) {
+                final ReadWriteLock stripe = stripes[entry.getKey()];
+                final Lock lock = entry.getValue() ? stripe.writeLock() : stripe.readLock();
+                lock.lock();
+                acquired.add(lock);
+            }
+        } catch (final RuntimeException e) {
+            release(acquired);
+            throw e;
+        }
+        return () -> release(acquired);
+    }
+
+    private void collectAncestors(final Map<Integer, Boolean> required, final WebDavPath path) {
+        WebDavPath current = path.getParent();
+        while (!WebDavPath.ROOT.equals(current)) {
+            collect(required, index(current), false);
+            current = current.getParent();
+        }
+    }
+
+    /**
+     * Acquire the stripes of the given {@link WebDavPath}s exclusive and the stripes of their ancestors shared.
+     *
+     * @param paths
+     *            the {@link WebDavPath}s that will be modified
+     *
+     * @return a {@link Handle} that must be closed to release all acquired stripes
+     */
+    Handle exclusive(final WebDavPath... paths) {
+        final Map<Integer, Boolean> required = new TreeMap<>();
+        for (final WebDavPath path : paths) {
+            collectAncestors(required, path);
+        }
+        for (final WebDavPath path : paths) {
+            collect(required, index(path), true);
+        }
+        return acquire(required);
+    }
+
+    int index(final WebDavPath path) {
+        final int hash = path.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void release(final List<Lock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            acquired.get(i).unlock();
+        }
+    }
+
+    /**
+     * Acquire the stripes of the given {@link WebDavPath} and all its ancestors shared.
+     *
+     * @param path
+     *            the {@link WebDavPath} that will be read
+     *
+     * @return a {@link Handle} that must be closed to release all acquired stripes
+     */
+    Handle shared(final WebDavPath path) {
+        final Map<Integer, Boolean> required = new TreeMap<>();
+        collectAncestors(required, path);
+        collect(required, index(path), false);
+        return acquire(required);
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import de.shadowhunt.webdav.WebDavConstant.Depth;
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+import de.shadowhunt.webdav.property.StringWebDavProperty;
+import de.shadowhunt.webdav.property.WebDavProperty;
+import de.shadowhunt.webdav.store.WebDavLock;
+import de.shadowhunt.webdav.store.WebDavLock.LockScope;
+import de.shadowhunt.webdav.store.WebDavLock.LockType;
+import de.shadowhunt.webdav.store.WebDavLock.Timeout;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * {@link XmlMetaMigration} imports the meta data of the former layout, one XML properties file per lock, dead
+ * properties and hash, into a {@link MetaStore}. The XML files are only removed after everything has been imported, so
+ * an interrupted migration is simply repeated.
+ */
+final class XmlMetaMigration {
+
+    private static final String HASH_MODIFIED = "modified";
+
+    private static final String HASH_SIZE = "size";
+
+    private static final String HASH_SUFFIX = "_hash";
+
+    private static final String HASH_VALUE = "md5";
+
+    private static final String LOCK_DEPTH = "depth";
+
+    private static final String LOCK_EXPIRES = "expires";
+
+    private static final String LOCK_OWNER = "owner";
+
+    private static final String LOCK_ROOT = "root";
+
+    private static final String LOCK_SCOPE = "scope";
+
+    private static final String LOCK_SUFFIX = "_lock";
+
+    private static final String LOCK_TIMEOUT = "timeout";
+
+    private static final String LOCK_TOKEN = "token";
+
+    private static final String LOCK_TYPE = "type";
+
+    private static final String PROPERTIES_SUFFIX = "_dead-properties";
+
+    private static MetaData importHash(final MetaData data, final Properties properties) {
+        final String value = properties.getProperty(HASH_VALUE);
+        final String size = properties.getProperty(HASH_SIZE);
+        final String modified = properties.getProperty(HASH_MODIFIED);
+        if ((value == null) || !StringUtils.isNumeric(size) || !StringUtils.isNumeric(modified)) {
+            return data; // broken cache entry, hash will be recalculated
+        }
+        return data.withHash(Optional.of(new MetaData.Hash(value, Long.parseLong(size), Long.parseLong(modified))));
+    }
+
+    private static MetaData importLock(final MetaData data, final Properties properties, final long modified) {
+        final String depthProperty = properties.getProperty(LOCK_DEPTH);
+        final Depth depth = Depth.parse(depthProperty, Depth.SELF, Depth.MEMBERS, Depth.INFINITY);
+        final String owner = properties.getProperty(LOCK_OWNER);
+        final String rootProperty = properties.getProperty(LOCK_ROOT);
+        final WebDavPath root = WebDavPath.create(rootProperty);
+        final String scopeProperty = properties.getProperty(LOCK_SCOPE);
+        final LockScope scope = LockScope.valueOf(scopeProperty);
+        final String timeoutProperty = properties.getProperty(LOCK_TIMEOUT);
+        final Timeout timeout = Timeout.parse(timeoutProperty);
+        final String tokenProperty = properties.getProperty(LOCK_TOKEN);
+        final UUID token = UUID.fromString(tokenProperty);
+        final String typeProperty = properties.getProperty(LOCK_TYPE);
+        final LockType type = LockType.valueOf(typeProperty);
+        final WebDavLock lock = new FileSystemLock(token, root, depth, scope, type, timeout, owner);
+
+        final String expiresProperty = properties.getProperty(LOCK_EXPIRES);
+        final long expires = (expiresProperty == null) ? -1L : Long.parseLong(expiresProperty);
+        return data.withLock(Optional.of(lock), expires, Math.max(data.getModified(), modified));
+    }
+
+    private static MetaData importProperties(final MetaData data, final Properties properties, final long modified) {
+        final Collection<WebDavProperty> result = new ArrayList<>();
+        final Enumeration<?> enumeration = properties.propertyNames();
+        while (enumeration.hasMoreElements()) {
+            final Object element = enumeration.nextElement();
+            final Object value = properties.get(element);
+            final String[] parts = element.toString().split(" ");
+            final PropertyIdentifier identifier = new PropertyIdentifier(parts[0], parts[1]);
+            result.add(new StringWebDavProperty(identifier, value.toString()));
+        }
+        return data.withProperties(result, Math.max(data.getModified(), modified));
+    }
+
+    private static boolean isXml(final Path file) {
+        final String name = file.getFileName().toString();
+        return name.endsWith(HASH_SUFFIX) || name.endsWith(LOCK_SUFFIX) || name.endsWith(PROPERTIES_SUFFIX);
+    }
+
+    private static Properties load(final Path file) {
+        final Properties properties = new Properties();
+        try (final InputStream is = Files.newInputStream(file)) {
+            properties.loadFromXML(is);
+        } catch (final IOException e) {
+            throw new WebDavException("can not load meta data " + file, e);
+        }
+        return properties;
+    }
+
+    /**
+     * Import all XML meta data files below the given folder into the given {@link MetaStore} and remove them afterwards.
+     *
+     * @param metaRoot
+     *            the folder of the former meta data layout
+     * @param target
+     *            the {@link MetaStore} that receives the meta data
+     */
+    static void migrate(final File metaRoot, final MetaStore target) {
+        final List<Path> files;
+        try (final Stream<Path> stream = Files.walk(metaRoot.toPath())) {
+            files = stream.filter(x -> Files.isRegularFile(x) && isXml(x)).collect(Collectors.toList());
+        } catch (final IOException e) {
+            throw new WebDavException("can not migrate meta data in " + metaRoot, e);
+        }
+
+        if (files.isEmpty()) {
+            return;
+        }
+
+        final Map<WebDavPath, MetaData> imported = new TreeMap<>();
+        for (final Path file : files) {
+            final String name = file.getFileName().toString();
+            final String relative = metaRoot.toPath().relativize(file).toString().replace(File.separatorChar, WebDavPath.SEPARATOR_CHAR);
+            final String suffix = name.substring(name.lastIndexOf('_'));
+            final WebDavPath path = WebDavPath.create(StringUtils.removeEnd(relative, suffix));
+
+            final MetaData data = imported.computeIfAbsent(path, target::get);
+            final Properties properties = load(file);
+            final long modified = file.toFile().lastModified();
+            if (HASH_SUFFIX.equals(suffix)) {
+                imported.put(path, importHash(data, properties));
+            } else if (LOCK_SUFFIX.equals(suffix)) {
+                imported.put(path, importLock(data, properties, modified));
+            } else {
+                imported.put(path, importProperties(data, properties, modified));
+            }
+        }
+        imported.forEach(target::put);
+
+        for (final Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException e) {
+                throw new WebDavException("can not remove migrated meta data " + file, e);
+            }
+        }
+        removeEmptyFolders(metaRoot);
+    }
+
+    private static void removeEmptyFolders(final File metaRoot) {
+        try (final Stream<Path> stream = Files.walk(metaRoot.toPath())) {
+            // deepest folders first, so parents are empty when they are reached
+            final List<Path> folders = stream.filter(Files::isDirectory).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (final Path folder : folders) {
+                if (!folder.equals(metaRoot.toPath())) {
+                    folder.toFile().delete(); // fails for non-empty folders, which are kept
+                }
+            }
+        } catch (final IOException e) {
+            throw new WebDavException("can not migrate meta data in " + metaRoot, e);
+        }
+    }
+
+    private XmlMetaMigration() {
+        // prevent instantiation
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.memory;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * {@link ChunkPool} hands out fixed-size chunks of direct memory. Chunks are cut from larger slabs, so the number of
+ * native allocations stays low, and released chunks are reused for later content. The pool never shrinks.
+ */
+@ThreadSafe
+final class ChunkPool {
+
+    static final int DEFAULT_CHUNKS_PER_SLAB = 16;
+
+    private final int chunkSize;
+
+    private final int chunksPerSlab;
+
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    ChunkPool(final int chunkSize) {
+        this(chunkSize, DEFAULT_CHUNKS_PER_SLAB);
+    }
+
+    ChunkPool(final int chunkSize, final int chunksPerSlab) {
+        Validate.isTrue(chunkSize > 0, "chunkSize must be positive: %d", chunkSize);
+        Validate.isTrue(chunksPerSlab > 0, "chunksPerSlab must be positive: %d", chunksPerSlab);
+        Validate.isTrue(((long) chunkSize * chunksPerSlab) <= Integer.MAX_VALUE, "slab must not exceed 2 GB");
+
+        this.chunkSize = chunkSize;
+        this.chunksPerSlab = chunksPerSlab;
+    }
+
+    ByteBuffer acquire() {
+        final ByteBuffer chunk = free.poll();
+        if (chunk != null) {
+            chunk.clear();
+            return chunk;
+        }
+        return allocateSlab();
+    }
+
+    private ByteBuffer allocateSlab() {
+        final ByteBuffer slab = ByteBuffer.allocateDirect(chunkSize * chunksPerSlab);
+        for (int i = 1; i < chunksPerSlab; i++) {
+            free.offer(slice(slab, i));
+        }
+        return slice(slab, 0);
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    void release(final ByteBuffer chunk) {
+        free.offer(chunk);
+    }
+
+    private ByteBuffer slice(final ByteBuffer slab, final int index) {
+        final ByteBuffer view = slab.duplicate();
+        view.position(index * chunkSize);
+        view.limit((index + 1) * chunkSize);
+        return view.slice();
+    }
+}
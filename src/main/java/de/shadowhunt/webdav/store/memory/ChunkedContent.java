@@ -0,0 +1,187 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.memory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.shadowhunt.webdav.WebDavException;
+
+/**
+ * {@link MemoryContent} that keeps the content off the heap in fixed-size direct chunks from a {@link ChunkPool}.
+ * The chunks are returned to the pool as soon as the store and all open streams have released the content.
+ */
+@ThreadSafe
+final class ChunkedContent implements MemoryContent {
+
+    @NotThreadSafe
+    private final class ChunkInputStream extends InputStream {
+
+        private boolean closed = false;
+
+        @CheckForNull
+        private ByteBuffer current;
+
+        private int index;
+
+        private long remaining;
+
+        ChunkInputStream(final long offset, final long length) {
+            this.index = (int) (offset / chunkSize);
+            this.current = chunk(index, (int) (offset % chunkSize));
+            this.remaining = length;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release();
+            }
+        }
+
+        // moves to the next chunk if the current one is exhausted
+        private boolean hasRemaining() {
+            while ((current != null) && !current.hasRemaining()) {
+                index++;
+                current = chunk(index, 0);
+            }
+            return !closed && (current != null) && (remaining > 0L);
+        }
+
+        @Override
+        public int read() {
+            if (!hasRemaining()) {
+                return -1;
+            }
+
+            remaining--;
+            return current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!hasRemaining()) {
+                return -1;
+            }
+
+            final int count = (int) Math.min(Math.min(length, current.remaining()), remaining);
+            current.get(buffer, offset, count);
+            remaining -= count;
+            return count;
+        }
+    }
+
+    static ChunkedContent read(final InputStream input, final ChunkPool pool) throws IOException {
+        final List<ByteBuffer> chunks = new ArrayList<>();
+        final ReadableByteChannel channel = Channels.newChannel(input); // not closed, the caller owns the input
+        long size = 0L;
+        try {
+            boolean eof = false;
+            while (!eof) {
+                final ByteBuffer chunk = pool.acquire();
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+
+                if (chunk.position() == 0) {
+                    pool.release(chunk);
+                } else {
+                    size += chunk.position();
+                    chunk.flip();
+                    chunks.add(chunk);
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            chunks.forEach(pool::release);
+            throw e;
+        }
+        return new ChunkedContent(pool, chunks, size);
+    }
+
+    private final int chunkSize;
+
+    private final List<ByteBuffer> chunks;
+
+    private final ChunkPool pool;
+
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private final long size;
+
+    private ChunkedContent(final ChunkPool pool, final List<ByteBuffer> chunks, final long size) {
+        this.chunkSize = pool.getChunkSize();
+        this.chunks = chunks;
+        this.pool = pool;
+        this.size = size;
+    }
+
+    @CheckForNull
+    private ByteBuffer chunk(final int index, final int position) {
+        if (index >= chunks.size()) {
+            return null;
+        }
+        // every reader gets its own view, the chunk itself is never modified after reading the content
+        final ByteBuffer chunk = chunks.get(index).duplicate();
+        chunk.position(position);
+        return chunk;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public InputStream open(final long offset, final long length) {
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) {
+                throw new WebDavException("content has been replaced or deleted");
+            }
+        } while (!references.compareAndSet(current, current + 1));
+
+        final long start = Math.min(offset, size);
+        final long count = Math.min(length, size - start);
+        return new ChunkInputStream(start, count);
+    }
+
+    @Override
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            chunks.forEach(pool::release);
+        }
+    }
+}
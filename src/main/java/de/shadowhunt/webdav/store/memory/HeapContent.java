@@ -0,0 +1,59 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * {@link MemoryContent} that keeps the whole content in a single byte array on the heap.
+ */
+@ThreadSafe
+final class HeapContent implements MemoryContent {
+
+    static HeapContent read(final InputStream input) throws IOException {
+        return new HeapContent(IOUtils.toByteArray(input));
+    }
+
+    private final byte[] data;
+
+    private HeapContent(final byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public long getSize() {
+        return data.length;
+    }
+
+    @Override
+    public InputStream open(final long offset, final long length) {
+        final int start = (int) Math.min(offset, data.length);
+        final int count = (int) Math.min(length, data.length - start);
+        return new ByteArrayInputStream(data, start, count);
+    }
+
+    @Override
+    public void release() {
+        // memory is reclaimed by the garbage collector
+    }
+}
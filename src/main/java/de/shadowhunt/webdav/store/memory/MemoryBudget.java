@@ -0,0 +1,332 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.memory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.shadowhunt.webdav.WebDavException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link MemoryBudget} limits the number of bytes the content of all items may occupy in memory. When the budget is
+ * exceeded, the least recently used content is written to a spill directory and dropped from memory. Spilled content
+ * is loaded back on its next access. Files and directories are not accounted, as they do not hold any content.
+ * <p>
+ * The lock only guards the bookkeeping, spill files are written and read without holding it.
+ */
+@ThreadSafe
+final class MemoryBudget {
+
+    /**
+     * Loads content that has been spilled to disk back into memory.
+     */
+    @FunctionalInterface
+    interface Loader {
+
+        MemoryContent load(InputStream input) throws IOException;
+    }
+
+    private final class SpillableContent implements MemoryContent {
+
+        @GuardedBy("MemoryBudget.lock")
+        private boolean released = false;
+
+        @CheckForNull
+        @GuardedBy("MemoryBudget.lock")
+        private MemoryContent resident;
+
+        private final long size;
+
+        @CheckForNull
+        @GuardedBy("MemoryBudget.lock")
+        private File spillFile;
+
+        @GuardedBy("MemoryBudget.lock")
+        private State state = State.RESIDENT;
+
+        SpillableContent(final MemoryContent resident) {
+            this.resident = resident;
+            this.size = resident.getSize();
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public InputStream open(final long offset, final long length) {
+            final File file;
+            lock.lock();
+            try {
+                while (state == State.LOADING) {
+                    stateChanged.awaitUninterruptibly();
+                }
+
+                if (released) {
+                    throw new WebDavException("content has been replaced or deleted");
+                }
+
+                if (resident != null) {
+                    lru.get(this); // mark as most recently used, content that is being spilled is not listed
+                    return resident.open(offset, length);
+                }
+
+                state = State.LOADING;
+                file = spillFile;
+            } finally {
+                lock.unlock();
+            }
+
+            final InputStream stream = faultIn(this, file, offset, length);
+            evict(this);
+            return stream;
+        }
+
+        @Override
+        public void release() {
+            lock.lock();
+            try {
+                if (released) {
+                    return;
+                }
+                released = true;
+
+                // content that is being spilled or loaded is cleaned up once the file io has finished
+                if (state == State.RESIDENT) {
+                    drop(this);
+                }
+                if ((state == State.RESIDENT) || (state == State.SPILLED)) {
+                    FileUtils.deleteQuietly(spillFile);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private enum State {
+        LOADING, RESIDENT, SPILLED, SPILLING
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryBudget.class);
+
+    private final long budget;
+
+    private final Loader loader;
+
+    // not a monitor: waiting for a load would pin virtual threads to their carrier
+    private final Lock lock = new ReentrantLock();
+
+    @GuardedBy("lock")
+    private final Map<SpillableContent, Boolean> lru = new LinkedHashMap<>(16, 0.75f, true);
+
+    @GuardedBy("lock")
+    private long residentBytes = 0L;
+
+    private final File spillDirectory;
+
+    @GuardedBy("lock")
+    private long spillingBytes = 0L;
+
+    private final Condition stateChanged = lock.newCondition();
+
+    MemoryBudget(final long budget, final File spillDirectory, final Loader loader) {
+        Validate.isTrue(budget >= 0L, "budget must not be negative: %d", budget);
+        if (!spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+            throw new WebDavException("spillDirectory: " + spillDirectory + " does not exist and can not be created");
+        }
+
+        this.budget = budget;
+        this.loader = loader;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Put the given {@link MemoryContent} under the control of this {@link MemoryBudget}.
+     *
+     * @param content
+     *            the newly created {@link MemoryContent}, the returned {@link MemoryContent} takes over its reference
+     *
+     * @return a {@link MemoryContent} that can be spilled to disk and loaded back transparently
+     */
+    MemoryContent admit(final MemoryContent content) {
+        final SpillableContent spillable = new SpillableContent(content);
+        lock.lock();
+        try {
+            lru.put(spillable, Boolean.TRUE);
+            residentBytes += spillable.size;
+        } finally {
+            lock.unlock();
+        }
+
+        evict(null);
+        return spillable;
+    }
+
+    @GuardedBy("lock")
+    private void drop(final SpillableContent content) {
+        content.resident.release(); // streams that are still open keep their own reference
+        content.resident = null;
+        lru.remove(content);
+        residentBytes -= content.size;
+    }
+
+    private void evict(@CheckForNull final SpillableContent keep) {
+        final Map<SpillableContent, InputStream> victims = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            final Iterator<SpillableContent> iterator = lru.keySet().iterator();
+            while (((residentBytes - spillingBytes) > budget) && iterator.hasNext()) {
+                final SpillableContent victim = iterator.next();
+                if (victim == keep) {
+                    continue;
+                }
+
+                iterator.remove();
+                if (victim.spillFile != null) {
+                    // content is immutable, the file written by an earlier eviction is still valid
+                    victim.resident.release();
+                    victim.resident = null;
+                    victim.state = State.SPILLED;
+                    residentBytes -= victim.size;
+                    continue;
+                }
+
+                victim.state = State.SPILLING;
+                spillingBytes += victim.size;
+                victims.put(victim, victim.resident.open(0L, victim.size));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (final Map.Entry<SpillableContent, InputStream> victim : victims.entrySet()) {
+            spill(victim.getKey(), victim.getValue());
+        }
+    }
+
+    private InputStream faultIn(final SpillableContent content, final File file, final long offset, final long length) {
+        MemoryContent resident = null;
+        try (final InputStream input = new FileInputStream(file)) {
+            resident = loader.load(input);
+        } catch (final IOException e) {
+            throw new WebDavException("can not load spilled content", e);
+        } finally {
+            if (resident == null) {
+                lock.lock();
+                try {
+                    content.state = State.SPILLED;
+                    if (content.released) {
+                        FileUtils.deleteQuietly(file);
+                    }
+                    stateChanged.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        lock.lock();
+        try {
+            stateChanged.signalAll();
+            if (content.released) {
+                content.state = State.SPILLED;
+                resident.release();
+                FileUtils.deleteQuietly(file);
+                throw new WebDavException("content has been replaced or deleted");
+            }
+
+            content.resident = resident;
+            content.state = State.RESIDENT;
+            lru.put(content, Boolean.TRUE);
+            residentBytes += content.size;
+            return resident.open(offset, length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getResidentBytes() {
+        lock.lock();
+        try {
+            return residentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void spill(final SpillableContent content, final InputStream input) {
+        File file = null;
+        try {
+            file = File.createTempFile("content-", ".spill", spillDirectory);
+            try (final OutputStream output = new FileOutputStream(file)) {
+                IOUtils.copyLarge(input, output);
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("can not spill content, budget will be exceeded", e);
+            FileUtils.deleteQuietly(file);
+            file = null;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+
+        lock.lock();
+        try {
+            spillingBytes -= content.size;
+            if (file == null) {
+                content.state = State.RESIDENT;
+                lru.put(content, Boolean.TRUE);
+                if (content.released) {
+                    drop(content);
+                }
+                return;
+            }
+
+            content.spillFile = file;
+            content.state = State.SPILLED;
+            content.resident.release();
+            content.resident = null;
+            residentBytes -= content.size;
+            if (content.released) {
+                FileUtils.deleteQuietly(file);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -14,26 +14,23 @@
  * You should have received a copy of the GNU General Public License
  * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
  */
-grammar Precondition;
+package de.shadowhunt.webdav.store.memory;
 
-precondition: implicitResourceList* explicitResourceList*;
+import java.io.InputStream;
 
-implicitResourceList:          list+;
-explicitResourceList: resource list+;
+import javax.annotation.concurrent.ThreadSafe;
 
-list:     '(' condition+ ')';
-resource: '<' URL '>';
-
-condition: NOT? match;
-match: ( lock | etag );
-
-lock: '<' LOCK '>';
-etag: '[' ETAG ']';
+/**
+ * Immutable content of an item in the {@link MemoryStore}. The store owns one reference to the content and calls
+ * {@link MemoryContent#release()} once the item has been replaced or deleted. Streams opened before that keep the
+ * content readable until they are closed.
+ */
+@ThreadSafe
+interface MemoryContent {
 
-NOT:  [nN][oO][tT];
-ETAG: [0-9a-zA-Z]+;
-LOCK: [0-9a-zA-Z:\-]+;
-URL:  [0-9a-zA-Z$\-_.+!*',/:]+;
+    long getSize();
 
-WS: [ \r\n\t]+ -> channel (HIDDEN);
+    InputStream open(long offset, long length);
 
+    void release();
+}
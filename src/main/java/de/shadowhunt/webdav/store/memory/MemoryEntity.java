@@ -24,7 +24,10 @@ import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavLock;
 
-class MemoryEntity implements WebDavEntity {
+/**
+ * {@link MemoryEntity} is immutable, so it can be handed out to concurrent readers without any synchronization.
+ */
+final class MemoryEntity implements WebDavEntity {
 
     private final String etag;
 
@@ -32,7 +35,7 @@ class MemoryEntity implements WebDavEntity {
 
     private final Date lastModified;
 
-    private WebDavLock lock;
+    private final WebDavLock lock;
 
     private final String mimeType;
 
@@ -46,16 +49,29 @@ class MemoryEntity implements WebDavEntity {
         this.etag = null;
         this.hash = null;
         this.lastModified = new Date();
+        this.lock = null;
         this.mimeType = COLLECTION_MIME_TYPE;
         this.path = Objects.requireNonNull(path, "path must not be null");
         this.size = 0L;
         this.type = Type.COLLECTION;
     }
 
-    MemoryEntity(final WebDavPath path, final String hash, final long size, final String mimeType, final String etag) {
+    private MemoryEntity(final MemoryEntity entity, final WebDavPath path, final String mimeType, final Optional<WebDavLock> lock) {
+        this.etag = entity.etag;
+        this.hash = entity.hash;
+        this.lastModified = entity.lastModified;
+        this.lock = lock.orElse(null);
+        this.mimeType = mimeType;
+        this.path = path;
+        this.size = entity.size;
+        this.type = entity.type;
+    }
+
+    MemoryEntity(final WebDavPath path, final String hash, final long size, final String mimeType, final String etag, final Optional<WebDavLock> lock) {
         this.etag = Objects.requireNonNull(etag, "etag must not be null");
         this.hash = Objects.requireNonNull(hash, "hash must not be null");
         this.lastModified = new Date();
+        this.lock = lock.orElse(null);
         this.mimeType = Objects.requireNonNull(mimeType, "mimeType must not be null");
         this.path = Objects.requireNonNull(path, "path must not be null");
         this.size = size;
@@ -71,10 +87,6 @@ class MemoryEntity implements WebDavEntity {
         return path.compareTo(other.getPath());
     }
 
-    void deleteLock() {
-        this.lock = null;
-    }
-
     @Override
     public boolean equals(final Object obj) {
         if (this == obj) {
@@ -154,12 +166,16 @@ class MemoryEntity implements WebDavEntity {
         return result;
     }
 
-    void setLock(final WebDavLock lock) {
-        this.lock = lock;
-    }
-
     @Override
     public String toString() {
         return "MemoryEntity [path=" + path + ", type=" + type + ", etag=" + etag + ", hash=" + hash + ", lastModified=" + lastModified + ", lock=" + lock + ", mimeType=" + mimeType + ", size=" + size + "]";
     }
+
+    MemoryEntity withLock(final Optional<WebDavLock> lock) {
+        return new MemoryEntity(this, path, mimeType, lock);
+    }
+
+    MemoryEntity withPath(final WebDavPath path, final String mimeType) {
+        return new MemoryEntity(this, path, mimeType, Optional.ofNullable(lock));
+    }
 }
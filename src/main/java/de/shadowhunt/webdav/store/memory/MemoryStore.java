@@ -16,9 +16,11 @@
  */
 package de.shadowhunt.webdav.store.memory;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -27,16 +29,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
 
 import javax.activation.MimetypesFileTypeMap;
 import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.ThreadSafe;
 
 import de.shadowhunt.webdav.WebDavException;
 import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.method.WebDavMethod;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
 import de.shadowhunt.webdav.property.WebDavProperty;
+import de.shadowhunt.webdav.store.LockTable;
 import de.shadowhunt.webdav.store.SupportedLock;
 import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavEntity.Type;
@@ -44,38 +52,113 @@ import de.shadowhunt.webdav.store.WebDavLock;
 import de.shadowhunt.webdav.store.WebDavLockBuilder;
 import de.shadowhunt.webdav.store.WebDavStore;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.io.IOUtils;
 
+/**
+ * {@link MemoryStore} keeps all collections and items in a tree of immutable nodes. Only the children of a collection
+ * are held in a {@link ConcurrentSkipListMap}, so readers never block and always see a consistent node. Modifications
+ * build a new node and publish it by replacing the old one in its parent, they are serialized by a single lock.
+ * Content is read and hashed before the lock is acquired, so only the publication itself is serialized. Content is
+ * either kept on the heap or, to keep large stores away from the garbage collector, in pooled direct memory chunks.
+ * An optional {@link MemoryBudget} bounds the memory used for content by spilling cold content to disk.
+ */
+@ThreadSafe
 public class MemoryStore implements WebDavStore {
 
-    private static class Node {
+    private static final class Node {
 
-        private final Map<String, Node> children = new TreeMap<>();
+        private final Map<String, Node> children;
 
-        private final byte[] data;
+        @CheckForNull
+        private final SharedContent content;
 
         private final MemoryEntity entity;
 
-        private Set<WebDavProperty> properties = Collections.emptySet();
+        private final Set<WebDavProperty> properties;
 
         Node(final MemoryEntity entity) {
-            this(entity, new byte[0]);
+            this(entity, null, new ConcurrentSkipListMap<>(), Collections.emptySet());
         }
 
-        Node(final MemoryEntity entity, final byte[] data) {
+        Node(final MemoryEntity entity, @CheckForNull final SharedContent content, final Map<String, Node> children, final Set<WebDavProperty> properties) {
+            this.children = children;
+            this.content = content;
             this.entity = entity;
-            this.data = data;
+            this.properties = properties;
+        }
+
+        Node withEntity(final MemoryEntity entity) {
+            return new Node(entity, content, children, properties);
+        }
+
+        Node withProperties(final Set<WebDavProperty> properties) {
+            return new Node(entity, content, children, properties);
         }
     }
 
     private static final MimetypesFileTypeMap MIME_TYPES = new MimetypesFileTypeMap();
 
-    private final Node root = new Node(new MemoryEntity(WebDavPath.ROOT));
+    @CheckForNull
+    private final MemoryBudget budget;
+
+    private final LockTable lockTable = new LockTable();
+
+    @CheckForNull
+    private final ChunkPool pool;
+
+    private volatile Node root = new Node(new MemoryEntity(WebDavPath.ROOT));
 
     private final Set<SupportedLock> supportedLocks;
 
+    private final Lock writeLock = new ReentrantLock();
+
     public MemoryStore() {
+        this(null, -1L, null);
+    }
+
+    /**
+     * Create a {@link MemoryStore} that keeps the content of all items off the heap.
+     *
+     * @param chunkSize
+     *            size in bytes of the direct memory chunks the content is split into
+     */
+    public MemoryStore(final int chunkSize) {
+        this(new ChunkPool(chunkSize), -1L, null);
+    }
+
+    /**
+     * Create a {@link MemoryStore} that keeps the content of all items off the heap, but not more than the given
+     * budget. Least recently used content is spilled to disk and loaded back on its next access.
+     *
+     * @param chunkSize
+     *            size in bytes of the direct memory chunks the content is split into
+     * @param budget
+     *            maximal number of content bytes held in memory
+     * @param spillDirectory
+     *            directory that receives the spilled content
+     */
+    public MemoryStore(final int chunkSize, final long budget, final File spillDirectory) {
+        this(new ChunkPool(chunkSize), budget, spillDirectory);
+    }
+
+    /**
+     * Create a {@link MemoryStore} that keeps the content of all items on the heap, but not more than the given
+     * budget. Least recently used content is spilled to disk and loaded back on its next access.
+     *
+     * @param budget
+     *            maximal number of content bytes held in memory
+     * @param spillDirectory
+     *            directory that receives the spilled content
+     */
+    public MemoryStore(final long budget, final File spillDirectory) {
+        this(null, budget, spillDirectory);
+    }
+
+    private MemoryStore(@CheckForNull final ChunkPool pool, final long budget, @CheckForNull final File spillDirectory) {
+        this.pool = pool;
+        this.budget = (spillDirectory == null) ? null : new MemoryBudget(budget, spillDirectory, this::readContent);
+
         final Set<SupportedLock> locks = new TreeSet<>();
         locks.add(SupportedLock.EXCLUSIVE_WRITE_LOCK);
         supportedLocks = Collections.unmodifiableSet(locks);
@@ -85,14 +168,6 @@ public class MemoryStore implements WebDavStore {
         return Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
     }
 
-    private String calculateMd5(final byte[] data, final WebDavPath path) {
-        try (final InputStream fis = new ByteArrayInputStream(data)) {
-            return DigestUtils.md5Hex(fis);
-        } catch (final Exception e) {
-            throw new WebDavException("can not calculate md5 hash for " + path, e);
-        }
-    }
-
     @Override
     public void createCollection(final WebDavPath path) throws WebDavException {
         if (WebDavPath.ROOT.equals(path)) {
@@ -100,15 +175,19 @@ public class MemoryStore implements WebDavStore {
         }
 
         final String[] segments = path.getSegments();
-
-        final Node parent = navigate(root, segments, 1, segments.length - 1);
         final String name = segments[segments.length - 1];
-        if (parent.children.containsKey(name)) {
-            throw new WebDavException("can not create collection " + path);
-        }
-
         final Node node = new Node(new MemoryEntity(path));
-        parent.children.put(name, node);
+
+        writeLock.lock();
+        try {
+            final Node parent = navigateCollection(segments);
+            if (parent.children.containsKey(name)) {
+                throw new WebDavException("can not create collection " + path);
+            }
+            parent.children.put(name, node);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
@@ -118,32 +197,68 @@ public class MemoryStore implements WebDavStore {
         }
 
         final String[] segments = path.getSegments();
-
-        final Node parent = navigate(root, segments, 1, segments.length - 1);
         final String name = segments[segments.length - 1];
 
-        final byte[] data;
+        // hash is calculated while the content is read, so the content is only touched once
+        final MessageDigest digest = DigestUtils.getMd5Digest();
+        final InputStream input = new DigestInputStream(content, digest);
+        final SharedContent data;
         try {
-            data = IOUtils.toByteArray(content);
+            final MemoryContent resident = readContent(input);
+            data = new SharedContent((budget == null) ? resident : budget.admit(resident));
         } catch (final IOException e) {
             throw new WebDavException("can not read content", e);
         }
 
-        final Node oldNode = parent.children.get(name);
-        if ((oldNode != null) && (Type.COLLECTION == oldNode.entity.getType())) {
-            throw new WebDavException("can not create item with same name as exisiting collection");
+        final String hash = Hex.encodeHexString(digest.digest());
+        final String type = MIME_TYPES.getContentType(path.getName());
+
+        writeLock.lock();
+        try {
+            final Node parent = navigateCollection(segments);
+            final Node oldNode = parent.children.get(name);
+            if ((oldNode != null) && (Type.COLLECTION == oldNode.entity.getType())) {
+                throw new WebDavException("can not create item with same name as exisiting collection");
+            }
+
+            final String etag = calculateEtag();
+            final Set<WebDavProperty> properties = (oldNode == null) ? Collections.emptySet() : oldNode.properties;
+            final MemoryEntity entity = new MemoryEntity(path, hash, data.getSize(), type, etag, Optional.empty());
+            parent.children.put(name, new Node(entity, data, Collections.emptyMap(), properties));
+            release(oldNode);
+        } catch (final RuntimeException e) {
+            data.release();
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean copy(final WebDavPath source, final WebDavPath target, final int depth) throws WebDavException {
+        if (WebDavPath.ROOT.equals(target)) {
+            throw new WebDavException("can not override root");
+        }
+        if (target.getValue().startsWith(source.getValue() + WebDavPath.SEPARATOR_CHAR)) {
+            throw new WebDavException("can not copy " + source + " below itself");
         }
 
-        final String hash = calculateMd5(data, path);
-        final String etag = calculateEtag();
-        final String type = MIME_TYPES.getContentType(path.getName());
-        final MemoryEntity entity = new MemoryEntity(path, hash, data.length, type, etag);
-        final Node node = new Node(entity, data);
-        if (oldNode != null) {
-            oldNode.entity.getLock().ifPresent(x -> node.entity.setLock(x));
-            node.properties = oldNode.properties;
+        final String[] sourceSegments = source.getSegments();
+        final String[] targetSegments = target.getSegments();
+        writeLock.lock();
+        try {
+            final Node node = navigate(root, sourceSegments, 1, sourceSegments.length);
+            final Node targetParent = navigateCollection(targetSegments);
+            final String name = targetSegments[targetSegments.length - 1];
+            if (targetParent.children.containsKey(name)) {
+                throw new WebDavException("can not copy to existing " + target);
+            }
+
+            targetParent.children.put(name, duplicate(node, target, depth));
+            return true;
+        } finally {
+            writeLock.unlock();
         }
-        parent.children.put(name, node);
     }
 
     @Override
@@ -158,13 +273,37 @@ public class MemoryStore implements WebDavStore {
         }
 
         final String[] segments = path.getSegments();
-        final Node parent = navigate(root, segments, 1, segments.length - 1);
-        final Node node = navigate(root, segments, 1, segments.length);
-        if (!node.children.isEmpty()) {
-            throw new WebDavException("not empty collection");
+        writeLock.lock();
+        try {
+            final Node parent = navigate(root, segments, 1, segments.length - 1);
+            final Node node = navigate(parent, segments, segments.length - 1, segments.length);
+            if (!node.children.isEmpty()) {
+                throw new WebDavException("not empty collection");
+            }
+
+            parent.children.remove(segments[segments.length - 1]);
+            lockTable.removeSubtree(path);
+            release(node);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Node duplicate(final Node node, final WebDavPath path, final int depth) {
+        final MemoryEntity entity = node.entity;
+        if (Type.COLLECTION != entity.getType()) {
+            // content is shared with the original, replacing either of them does not affect the other
+            final String mimeType = MIME_TYPES.getContentType(path.getName());
+            return new Node(entity.withPath(path, mimeType), node.content.share(), node.children, node.properties);
         }
 
-        parent.children.remove(segments[segments.length - 1]);
+        final Map<String, Node> children = new ConcurrentSkipListMap<>();
+        if (depth > 0) {
+            for (final Map.Entry<String, Node> child : node.children.entrySet()) {
+                children.put(child.getKey(), duplicate(child.getValue(), path.append(child.getKey()), depth - 1));
+            }
+        }
+        return new Node(entity.withPath(path, entity.getMimeType()), null, children, node.properties);
     }
 
     @Override
@@ -178,17 +317,37 @@ public class MemoryStore implements WebDavStore {
     public InputStream getContent(final WebDavPath path) throws WebDavException {
         final String[] segments = path.getSegments();
         final Node node = navigate(root, segments, 1, segments.length);
-        if (Type.COLLECTION == node.entity.getType()) {
+        if (node.content == null) {
+            throw new WebDavException("can not retrieve content");
+        }
+        return node.content.open(0L, node.content.getSize());
+    }
+
+    @Override
+    public InputStream getContent(final WebDavPath path, final long offset, final long length) throws WebDavException {
+        final String[] segments = path.getSegments();
+        final Node node = navigate(root, segments, 1, segments.length);
+        if (node.content == null) {
             throw new WebDavException("can not retrieve content");
         }
-        return new ByteArrayInputStream(node.data);
+        return node.content.open(offset, length);
     }
 
     @Override
     public WebDavEntity getEntity(final WebDavPath path) throws WebDavException {
         final String[] segments = path.getSegments();
         final Node node = navigate(root, segments, 1, segments.length);
-        return node.entity;
+        return withLock(node.entity);
+    }
+
+    @Override
+    public Optional<WebDavLock> getLock(final WebDavPath path) throws WebDavException {
+        return lockTable.get(path);
+    }
+
+    @Override
+    public Map<WebDavPath, WebDavLock> getLocks(final WebDavPath path) throws WebDavException {
+        return lockTable.getSubtree(path);
     }
 
     @Override
@@ -198,6 +357,19 @@ public class MemoryStore implements WebDavStore {
         return new TreeSet<>(node.properties);
     }
 
+    @Override
+    public Collection<WebDavProperty> getProperties(final WebDavPath path, final Set<PropertyIdentifier> requested) throws WebDavException {
+        final String[] segments = path.getSegments();
+        final Node node = navigate(root, segments, 1, segments.length);
+        final Collection<WebDavProperty> result = new TreeSet<>();
+        for (final WebDavProperty property : node.properties) {
+            if (requested.contains(property.getIdentifier())) {
+                result.add(property);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Set<SupportedLock> getSupportedLocks(final WebDavPath path) throws WebDavException {
         return supportedLocks;
@@ -222,11 +394,59 @@ public class MemoryStore implements WebDavStore {
     }
 
     @Override
-    public WebDavEntity lock(final WebDavPath path, final WebDavLock lock) throws WebDavException {
+    public List<WebDavEntity> listEntities(final WebDavPath path) throws WebDavException {
         final String[] segments = path.getSegments();
         final Node node = navigate(root, segments, 1, segments.length);
-        node.entity.setLock(lock);
-        return node.entity;
+
+        final List<WebDavEntity> entities = new ArrayList<>(node.children.size());
+        for (final Node child : node.children.values()) {
+            entities.add(withLock(child.entity));
+        }
+        return entities;
+    }
+
+    @Override
+    public WebDavEntity lock(final WebDavPath path, final WebDavLock lock) throws WebDavException {
+        writeLock.lock();
+        try {
+            final String[] segments = path.getSegments();
+            final Node node = navigate(root, segments, 1, segments.length);
+            lockTable.put(path, lock);
+            return node.entity.withLock(Optional.of(lock));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean move(final WebDavPath source, final WebDavPath target) throws WebDavException {
+        if (WebDavPath.ROOT.equals(source) || WebDavPath.ROOT.equals(target)) {
+            throw new WebDavException("can not move root");
+        }
+        if (target.getValue().startsWith(source.getValue() + WebDavPath.SEPARATOR_CHAR)) {
+            throw new WebDavException("can not move " + source + " below itself");
+        }
+
+        final String[] sourceSegments = source.getSegments();
+        final String[] targetSegments = target.getSegments();
+        writeLock.lock();
+        try {
+            final Node sourceParent = navigate(root, sourceSegments, 1, sourceSegments.length - 1);
+            final Node node = navigate(sourceParent, sourceSegments, sourceSegments.length - 1, sourceSegments.length);
+            final Node targetParent = navigateCollection(targetSegments);
+            final String name = targetSegments[targetSegments.length - 1];
+            if (targetParent.children.containsKey(name)) {
+                throw new WebDavException("can not move to existing " + target);
+            }
+
+            // content is shared by the relocated nodes, only the paths of the entities change
+            targetParent.children.put(name, relocate(node, target));
+            sourceParent.children.remove(sourceSegments[sourceSegments.length - 1]);
+            lockTable.removeSubtree(source);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     private Node navigate(final Node node, final String[] segements, final int index, final int max) {
@@ -250,18 +470,82 @@ public class MemoryStore implements WebDavStore {
         return navigate0(current, segements, index + 1, max);
     }
 
+    private Node navigateCollection(final String[] segments) {
+        final Node parent = navigate(root, segments, 1, segments.length - 1);
+        if (Type.COLLECTION != parent.entity.getType()) {
+            throw new WebDavException("parent is not a collection");
+        }
+        return parent;
+    }
+
+    private MemoryContent readContent(final InputStream input) throws IOException {
+        if (pool == null) {
+            return HeapContent.read(input);
+        }
+        return ChunkedContent.read(input, pool);
+    }
+
+    private void release(@CheckForNull final Node node) {
+        if ((node != null) && (node.content != null)) {
+            node.content.release();
+        }
+    }
+
+    private Node relocate(final Node node, final WebDavPath path) {
+        final MemoryEntity entity = node.entity;
+        if (Type.COLLECTION != entity.getType()) {
+            final String mimeType = MIME_TYPES.getContentType(path.getName());
+            return new Node(entity.withPath(path, mimeType), node.content, node.children, node.properties);
+        }
+
+        final Map<String, Node> children = new ConcurrentSkipListMap<>();
+        for (final Map.Entry<String, Node> child : node.children.entrySet()) {
+            children.put(child.getKey(), relocate(child.getValue(), path.append(child.getKey())));
+        }
+        return new Node(entity.withPath(path, entity.getMimeType()), null, children, node.properties);
+    }
+
     @Override
     public void setProperties(final WebDavPath path, final Collection<WebDavProperty> properties) throws WebDavException {
-        final String[] segments = path.getSegments();
-        final Node node = navigate(root, segments, 1, segments.length);
-        node.properties = new TreeSet<>(properties);
+        final Set<WebDavProperty> copy = Collections.unmodifiableSet(new TreeSet<>(properties));
+        update(path, x -> x.withProperties(copy));
     }
 
     @Override
     public void unlock(final WebDavPath path) throws WebDavException {
+        writeLock.lock();
+        try {
+            final String[] segments = path.getSegments();
+            navigate(root, segments, 1, segments.length);
+            lockTable.remove(path).orElseThrow(() -> new WebDavException("path is not locked"));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Node update(final WebDavPath path, final UnaryOperator<Node> modification) {
         final String[] segments = path.getSegments();
-        final Node node = navigate(root, segments, 1, segments.length);
-        node.entity.getLock().orElseThrow(() -> new WebDavException("path is not locked"));
-        node.entity.deleteLock();
+        writeLock.lock();
+        try {
+            if (WebDavPath.ROOT.equals(path)) {
+                root = modification.apply(root);
+                return root;
+            }
+
+            final Node parent = navigate(root, segments, 1, segments.length - 1);
+            final String name = segments[segments.length - 1];
+            final Node node = navigate(parent, segments, segments.length - 1, segments.length);
+            final Node modified = modification.apply(node);
+            parent.children.put(name, modified);
+            return modified;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private WebDavEntity withLock(final MemoryEntity entity) {
+        // locks are kept in the lock table, so they can expire without touching the tree
+        final Optional<WebDavLock> lock = lockTable.get(entity.getPath());
+        return lock.isPresent() ? entity.withLock(lock) : entity;
     }
 }
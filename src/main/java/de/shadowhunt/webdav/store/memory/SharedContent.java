@@ -0,0 +1,74 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.memory;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link MemoryContent} that can be shared by several items, e.g. after a copy. Content is never modified in place, so
+ * sharing it is copy-on-write by nature. Every owner releases its own {@link SharedContent}, the underlying content is
+ * released together with the last owner.
+ */
+@ThreadSafe
+final class SharedContent implements MemoryContent {
+
+    private final MemoryContent content;
+
+    private final AtomicInteger owners;
+
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    SharedContent(final MemoryContent content) {
+        this(content, new AtomicInteger(1));
+    }
+
+    private SharedContent(final MemoryContent content, final AtomicInteger owners) {
+        this.content = content;
+        this.owners = owners;
+    }
+
+    @Override
+    public long getSize() {
+        return content.getSize();
+    }
+
+    @Override
+    public InputStream open(final long offset, final long length) {
+        return content.open(offset, length);
+    }
+
+    @Override
+    public void release() {
+        if (released.compareAndSet(false, true) && (owners.decrementAndGet() == 0)) {
+            content.release();
+        }
+    }
+
+    /**
+     * Create a new owner of the underlying content, must only be called as long as this owner has not been released.
+     *
+     * @return the {@link SharedContent} of the new owner
+     */
+    SharedContent share() {
+        owners.incrementAndGet();
+        return new SharedContent(content, owners);
+    }
+}
@@ -17,8 +17,10 @@
 package de.shadowhunt;
 
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -104,6 +106,16 @@ public class TestResponse implements WebDavResponse {
         return status;
     }
 
+    @Override
+    public boolean sendContent(final InputStream input) {
+        return false;
+    }
+
+    @Override
+    public boolean sendFile(final Path file, final long offset, final long length) {
+        return false;
+    }
+
     @Override
     public void setCharacterEncoding(final String characterEncoding) {
         this.characterEncoding = characterEncoding;
@@ -80,7 +80,7 @@ class XmlRequest implements WebDavRequest {
     private List<XmlHeader> headers;
 
     @XmlTransient
-    private UUID id = UUID.randomUUID();
+    private String id = UUID.randomUUID().toString();
 
     @XmlElement(name = "method")
     private Method method;
@@ -120,7 +120,7 @@ class XmlRequest implements WebDavRequest {
     }
 
     @Override
-    public UUID getId() {
+    public String getId() {
         return id;
     }
 
@@ -195,7 +195,7 @@ class XmlRequest implements WebDavRequest {
         this.headers = headers;
     }
 
-    public void setId(final UUID id) {
+    public void setId(final String id) {
         this.id = id;
     }
 
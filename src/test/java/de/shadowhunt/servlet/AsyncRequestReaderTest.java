@@ -0,0 +1,200 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+public class AsyncRequestReaderTest {
+
+    private static final int CHUNK = 10 * 1000;
+
+    private static final int SPOOL_THRESHOLD = 64 * 1024;
+
+    private AsyncContext context;
+
+    private File folder;
+
+    @After
+    public void after() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    private void assertSpooled(final long size) {
+        final File[] files = folder.listFiles();
+        Assert.assertEquals("spool files must match", 1, files.length);
+        Assert.assertTrue("spool file name must match", files[0].getName().startsWith("webdav-request-"));
+        Assert.assertEquals("spool file size must match", size, files[0].length());
+    }
+
+    private void assertSpoolRemoved() {
+        Assert.assertEquals("spool files must be removed", 0, folder.list().length);
+    }
+
+    @Before
+    public void before() {
+        context = Mockito.mock(AsyncContext.class);
+        folder = new File(FileUtils.getTempDirectory(), "webdav-servlet-test_" + UUID.randomUUID());
+        Assert.assertTrue("folder must be created", folder.mkdirs());
+    }
+
+    @Test
+    public void onAllDataReadTest_failingHandler() throws Exception {
+        final byte[] content = MockClient.createContent((2 * SPOOL_THRESHOLD) + 1);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final AsyncRequestReader reader = new AsyncRequestReader(context, upload.getStream(), folder, 0L, body -> {
+            throw new IOException("handler failed");
+        });
+
+        upload(upload, reader, content.length);
+        try {
+            reader.onAllDataRead();
+            Assert.fail("must not complete");
+        } catch (final IOException e) {
+            Assert.assertEquals("message must match", "handler failed", e.getMessage());
+        }
+        assertSpoolRemoved();
+
+        // the container reports the failure of onAllDataRead to onError
+        reader.onError(new IOException("handler failed"));
+        Mockito.verify(context, Mockito.times(1)).complete();
+        assertSpoolRemoved();
+    }
+
+    @Test
+    public void onDataAvailableTest_limit() throws Exception {
+        final byte[] content = MockClient.createContent(4 * SPOOL_THRESHOLD);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(context.getResponse()).thenReturn(response);
+        final AsyncRequestReader reader = new AsyncRequestReader(context, upload.getStream(), folder, 2 * SPOOL_THRESHOLD, body -> Assert.fail("handler must not be called"));
+
+        upload(upload, reader, 2 * SPOOL_THRESHOLD);
+        assertSpooled(2 * SPOOL_THRESHOLD);
+        Mockito.verify(response, Mockito.never()).sendError(Matchers.anyInt());
+
+        upload(upload, reader, CHUNK);
+        Mockito.verify(response).sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        Mockito.verify(context, Mockito.times(1)).complete();
+        assertSpoolRemoved();
+
+        // nothing is read after the body has been rejected: 14 chunks up to the limit and the one passing it
+        upload(upload, reader, content.length);
+        reader.onAllDataRead();
+        Mockito.verify(upload.getStream(), Mockito.times(15)).read(Matchers.any(byte[].class));
+        Mockito.verify(context, Mockito.times(1)).complete();
+        assertSpoolRemoved();
+    }
+
+    @Test
+    public void onErrorTest_inMemory() throws Exception {
+        final byte[] content = MockClient.createContent(SPOOL_THRESHOLD);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final AsyncRequestReader reader = new AsyncRequestReader(context, upload.getStream(), folder, 0L, body -> Assert.fail("handler must not be called"));
+
+        upload(upload, reader, CHUNK);
+        reader.onError(new IOException("client aborted"));
+
+        Mockito.verify(context, Mockito.times(1)).complete();
+        assertSpoolRemoved();
+    }
+
+    @Test
+    public void onErrorTest_spooled() throws Exception {
+        final byte[] content = MockClient.createContent(4 * SPOOL_THRESHOLD);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final AsyncRequestReader reader = new AsyncRequestReader(context, upload.getStream(), folder, 0L, body -> Assert.fail("handler must not be called"));
+
+        upload(upload, reader, 2 * SPOOL_THRESHOLD);
+        assertSpooled(2 * SPOOL_THRESHOLD);
+        Mockito.verify(context, Mockito.never()).complete();
+
+        reader.onError(new IOException("client aborted"));
+        Mockito.verify(context, Mockito.times(1)).complete();
+        assertSpoolRemoved();
+    }
+
+    @Test
+    public void readTest_inMemory() throws Exception {
+        final byte[] content = MockClient.createContent(SPOOL_THRESHOLD);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final byte[][] received = new byte[1][];
+        final AsyncRequestReader reader = new AsyncRequestReader(context, upload.getStream(), folder, 0L, body -> {
+            Assert.assertEquals("spool files must match", 0, folder.list().length);
+            received[0] = IOUtils.toByteArray(body);
+        });
+
+        upload(upload, reader, content.length);
+        reader.onAllDataRead();
+
+        Assert.assertArrayEquals("body must match", content, received[0]);
+        Mockito.verify(context, Mockito.never()).complete();
+        assertSpoolRemoved();
+    }
+
+    @Test
+    public void readTest_spooled() throws Exception {
+        final byte[] content = MockClient.createContent((3 * SPOOL_THRESHOLD) + 17);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final byte[][] received = new byte[1][];
+        final AsyncRequestReader reader = new AsyncRequestReader(context, upload.getStream(), folder, 0L, body -> {
+            assertSpooled(content.length);
+            received[0] = IOUtils.toByteArray(body);
+        });
+
+        upload(upload, reader, content.length);
+        reader.onAllDataRead();
+
+        Assert.assertArrayEquals("body must match", content, received[0]);
+        Mockito.verify(context, Mockito.never()).complete();
+        assertSpoolRemoved();
+    }
+
+    @Test
+    public void readTest_waitsForClient() throws Exception {
+        final byte[] content = MockClient.createContent(CHUNK);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final AsyncRequestReader reader = new AsyncRequestReader(context, upload.getStream(), folder, 0L, body -> Assert.fail("handler must not be called"));
+
+        reader.onDataAvailable(); // nothing has been sent yet
+        upload.send(CHUNK / 2);
+        reader.onDataAvailable();
+
+        Mockito.verify(upload.getStream(), Mockito.times(1)).read(Matchers.any(byte[].class));
+    }
+
+    // feeds the reader the way the container does: one callback whenever new data has arrived
+    private void upload(final MockClient.Upload upload, final AsyncRequestReader reader, final int size) throws IOException {
+        for (int sent = 0; sent < size; sent += CHUNK) {
+            upload.send(Math.min(CHUNK, size - sent));
+            reader.onDataAvailable();
+        }
+    }
+}
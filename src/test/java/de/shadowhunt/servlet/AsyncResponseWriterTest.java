@@ -0,0 +1,121 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.servlet.AsyncContext;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class AsyncResponseWriterTest {
+
+    private static final class TrackingInputStream extends ByteArrayInputStream {
+
+        private int closed = 0;
+
+        TrackingInputStream(final byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed++;
+            super.close();
+        }
+
+        int getClosed() {
+            return closed;
+        }
+    }
+
+    private static final int WINDOW = 16 * 1024;
+
+    private AsyncContext context;
+
+    @Before
+    public void before() {
+        context = Mockito.mock(AsyncContext.class);
+    }
+
+    @Test
+    public void onErrorTest() throws Exception {
+        final byte[] content = MockClient.createContent(8 * WINDOW);
+        final TrackingInputStream is = new TrackingInputStream(content);
+        final MockClient.Download download = new MockClient.Download(WINDOW);
+        final AsyncResponseWriter writer = new AsyncResponseWriter(context, download.getStream(), is);
+
+        writer.onWritePossible();
+        Mockito.verify(context, Mockito.never()).complete();
+
+        writer.onError(new IOException("client aborted"));
+        Mockito.verify(context, Mockito.times(1)).complete();
+        Assert.assertEquals("content must be closed once", 1, is.getClosed());
+    }
+
+    @Test
+    public void writeTest() throws Exception {
+        final byte[] content = MockClient.createContent((8 * WINDOW) + 17);
+        final TrackingInputStream is = new TrackingInputStream(content);
+        final MockClient.Download download = new MockClient.Download(WINDOW);
+        final AsyncResponseWriter writer = new AsyncResponseWriter(context, download.getStream(), is);
+
+        // the container calls onWritePossible again once isReady() has flipped back to true
+        int callbacks = 0;
+        do {
+            Mockito.verify(context, Mockito.never()).complete();
+            writer.onWritePossible();
+            callbacks++;
+            download.receive(WINDOW);
+        } while (is.getClosed() == 0);
+
+        Assert.assertTrue("transfer must take several callbacks", callbacks > 1);
+        Assert.assertArrayEquals("content must match", content, download.getReceived());
+        Mockito.verify(context, Mockito.times(1)).complete();
+        Assert.assertEquals("content must be closed once", 1, is.getClosed());
+    }
+
+    @Test
+    public void writeTest_empty() throws Exception {
+        final TrackingInputStream is = new TrackingInputStream(new byte[0]);
+        final MockClient.Download download = new MockClient.Download(WINDOW);
+        final AsyncResponseWriter writer = new AsyncResponseWriter(context, download.getStream(), is);
+
+        writer.onWritePossible();
+
+        Assert.assertEquals("content must match", 0, download.getReceived().length);
+        Mockito.verify(context, Mockito.times(1)).complete();
+        Assert.assertEquals("content must be closed once", 1, is.getClosed());
+    }
+
+    @Test
+    public void writeTest_notReady() throws Exception {
+        final TrackingInputStream is = new TrackingInputStream(MockClient.createContent(WINDOW));
+        final MockClient.Download download = new MockClient.Download(0);
+        final AsyncResponseWriter writer = new AsyncResponseWriter(context, download.getStream(), is);
+
+        writer.onWritePossible();
+
+        Assert.assertEquals("content must not be consumed", WINDOW, is.available());
+        Mockito.verify(context, Mockito.never()).complete();
+        Assert.assertEquals("content must not be closed", 0, is.getClosed());
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+// simulates a client on the other side of the non-blocking servlet streams
+final class MockClient {
+
+    // only delivers the bytes the client has already sent, isReady() flips to false once they are consumed
+    static final class Upload {
+
+        private final byte[] content;
+
+        private int position = 0;
+
+        private int sent = 0;
+
+        private final ServletInputStream stream;
+
+        Upload(final byte[] content) throws IOException {
+            this.content = content;
+            stream = Mockito.mock(ServletInputStream.class);
+            Mockito.when(stream.isReady()).thenAnswer(invocation -> isReady());
+            Mockito.when(stream.read(Matchers.any(byte[].class))).thenAnswer(invocation -> read((byte[]) invocation.getArguments()[0]));
+        }
+
+        ServletInputStream getStream() {
+            return stream;
+        }
+
+        private boolean isReady() {
+            return (sent > position) || (position == content.length);
+        }
+
+        private int read(final byte[] buffer) {
+            if (position == content.length) {
+                return -1;
+            }
+            final int read = Math.min(buffer.length, sent - position);
+            System.arraycopy(content, position, buffer, 0, read);
+            position += read;
+            return read;
+        }
+
+        void send(final int bytes) {
+            sent = Math.min(content.length, sent + bytes);
+        }
+    }
+
+    // accepts writes until the window is exhausted, isReady() flips to false until the client receives more
+    static final class Download {
+
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        private final ServletOutputStream stream;
+
+        private int window;
+
+        Download(final int window) throws IOException {
+            this.window = window;
+            stream = Mockito.mock(ServletOutputStream.class);
+            Mockito.when(stream.isReady()).thenAnswer(invocation -> this.window > 0);
+            Mockito.doAnswer(invocation -> {
+                final Object[] arguments = invocation.getArguments();
+                final int length = (Integer) arguments[2];
+                received.write((byte[]) arguments[0], (Integer) arguments[1], length);
+                this.window -= length;
+                return null;
+            }).when(stream).write(Matchers.any(byte[].class), Matchers.anyInt(), Matchers.anyInt());
+        }
+
+        byte[] getReceived() {
+            return received.toByteArray();
+        }
+
+        ServletOutputStream getStream() {
+            return stream;
+        }
+
+        void receive(final int bytes) {
+            window = bytes;
+        }
+    }
+
+    static byte[] createContent(final int size) {
+        final byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+
+    private MockClient() {
+        // prevent instantiation
+    }
+}
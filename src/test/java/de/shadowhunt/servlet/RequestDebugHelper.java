@@ -43,8 +43,8 @@ final class RequestDebugHelper {
 
         private final InputStream is;
 
-        HttpServletRequestDebugWrapper(final HttpServletRequest request, final WebDavConfig config, final InputStream is) {
-            super(request, config);
+        HttpServletRequestDebugWrapper(final HttpServletRequest request, final WebDavConfig config, final String id, final InputStream is) {
+            super(request, config, id);
             this.is = is;
         }
 
@@ -56,6 +56,8 @@ final class RequestDebugHelper {
 
     static int counter = 1;
 
+    private static final RequestIdGenerator ID_GENERATOR = new SequentialRequestIdGenerator();
+
     static WebDavRequest generateAndDump(final HttpServletRequest request, final WebDavConfig config, final File dumpLocation) throws IOException {
         final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         final int size = IOUtils.copy(request.getInputStream(), buffer);
@@ -115,7 +117,7 @@ final class RequestDebugHelper {
             throw new WebDavException("can not write response", e);
         }
 
-        return new HttpServletRequestDebugWrapper(request, config, new ByteArrayInputStream(buffer.toByteArray()));
+        return new HttpServletRequestDebugWrapper(request, config, ID_GENERATOR.next(), new ByteArrayInputStream(buffer.toByteArray()));
     }
 
     private RequestDebugHelper() {
@@ -0,0 +1,87 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SequentialRequestIdGeneratorTest {
+
+    @Test
+    public void nextTest_block_boundary() throws Exception {
+        final RequestIdGenerator generator = new SequentialRequestIdGenerator("node");
+
+        final Set<String> ids = new HashSet<>();
+        for (int i = 0; i < (2 * SequentialRequestIdGenerator.BLOCK_SIZE); i++) {
+            ids.add(generator.next());
+        }
+        Assert.assertEquals("ids must be unique", 2 * SequentialRequestIdGenerator.BLOCK_SIZE, ids.size());
+    }
+
+    @Test
+    public void nextTest_concurrent() throws Exception {
+        final RequestIdGenerator generator = new SequentialRequestIdGenerator("node");
+        final int count = 3 * SequentialRequestIdGenerator.BLOCK_SIZE;
+        final Callable<List<String>> task = () -> {
+            final List<String> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(generator.next());
+            }
+            return ids;
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(task));
+            }
+
+            final Set<String> ids = new HashSet<>();
+            for (final Future<List<String>> future : futures) {
+                ids.addAll(future.get());
+            }
+            Assert.assertEquals("ids must be unique", 4 * count, ids.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void nextTest_prefix() throws Exception {
+        final RequestIdGenerator generator = new SequentialRequestIdGenerator("node");
+
+        Assert.assertEquals("id must match", "node-0", generator.next());
+        Assert.assertEquals("id must match", "node-1", generator.next());
+    }
+
+    @Test
+    public void nextTest_random_node() throws Exception {
+        final String id = new SequentialRequestIdGenerator().next();
+
+        Assert.assertTrue("id must start with node prefix: " + id, id.matches("[0-9a-f]{8}-0"));
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.servlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.Principal;
+import java.util.Optional;
+
+import de.shadowhunt.webdav.WebDavConfig;
+import de.shadowhunt.webdav.WebDavConstant.Header;
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.WebDavRequest;
+import de.shadowhunt.webdav.method.WebDavMethod.Method;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SpooledWebDavRequestTest {
+
+    @Test
+    public void delegateTest() throws Exception {
+        final WebDavConfig config = new HttpServletConfig();
+        final WebDavPath path = WebDavPath.create("/a/b");
+        final Optional<Principal> principal = Optional.of(() -> "user");
+
+        final WebDavRequest delegate = Mockito.mock(WebDavRequest.class);
+        Mockito.when(delegate.getBase()).thenReturn("http://127.0.0.1/webdav");
+        Mockito.when(delegate.getConfig()).thenReturn(config);
+        Mockito.when(delegate.getHeader(Header.DEPTH, "infinity")).thenReturn("1");
+        Mockito.when(delegate.getId()).thenReturn("42");
+        Mockito.when(delegate.getMethod()).thenReturn(Method.PUT);
+        Mockito.when(delegate.getPath()).thenReturn(path);
+        Mockito.when(delegate.getPrincipal()).thenReturn(principal);
+        Mockito.when(delegate.toPath("/a/c")).thenReturn(Optional.of(WebDavPath.create("/a/c")));
+
+        final InputStream body = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+        final WebDavRequest request = new SpooledWebDavRequest(delegate, body);
+
+        Assert.assertEquals("base must match", "http://127.0.0.1/webdav", request.getBase());
+        Assert.assertSame("config must match", config, request.getConfig());
+        Assert.assertEquals("header must match", "1", request.getHeader(Header.DEPTH, "infinity"));
+        Assert.assertEquals("id must match", "42", request.getId());
+        Assert.assertSame("input stream must match", body, request.getInputStream());
+        Assert.assertEquals("method must match", Method.PUT, request.getMethod());
+        Assert.assertEquals("path must match", path, request.getPath());
+        Assert.assertSame("principal must match", principal, request.getPrincipal());
+        Assert.assertEquals("resource must match", Optional.of(WebDavPath.create("/a/c")), request.toPath("/a/c"));
+        Mockito.verify(delegate, Mockito.never()).getInputStream();
+    }
+}
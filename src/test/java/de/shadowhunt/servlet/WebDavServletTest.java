@@ -17,19 +17,167 @@
 package de.shadowhunt.servlet;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.CheckForNull;
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.WebDavRequest;
+import de.shadowhunt.webdav.WebDavResponse;
+import de.shadowhunt.webdav.method.WebDavMethod.Method;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 
 public class WebDavServletTest {
 
+    // answers OPTIONS requests from mocked wrappers and records what the dispatch saw
+    private static final class AsyncWebDavServlet extends WebDavServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient byte[] body;
+
+        @CheckForNull
+        private transient Exception failure;
+
+        private final transient File folder;
+
+        private transient Method method = Method.OPTIONS;
+
+        private transient WebDavResponse response;
+
+        private transient int spooled = -1;
+
+        @CheckForNull
+        private final transient ExecutorService virtualThreads;
+
+        AsyncWebDavServlet(final File folder, @CheckForNull final ExecutorService virtualThreads) {
+            this.folder = folder;
+            this.virtualThreads = virtualThreads;
+        }
+
+        // stands in for the virtual thread executor, none simulates a jvm before java 21
+        @Override
+        protected Optional<ExecutorService> createVirtualThreadExecutor() {
+            return Optional.ofNullable(virtualThreads);
+        }
+
+        @Override
+        protected WebDavRequest createWebDavRequestWrapper(final HttpServletRequest request) throws IOException {
+            final WebDavRequest webDavRequest = Mockito.mock(WebDavRequest.class);
+            Mockito.when(webDavRequest.getConfig()).thenReturn(getWebDavConfig());
+            Mockito.when(webDavRequest.getId()).thenReturn("1");
+            Mockito.when(webDavRequest.getMethod()).thenReturn(method);
+            Mockito.when(webDavRequest.getPath()).thenReturn(WebDavPath.ROOT);
+            Mockito.when(webDavRequest.getPrincipal()).thenReturn(Optional.empty());
+            return webDavRequest;
+        }
+
+        @Override
+        protected WebDavResponse createWebDavResponseWrapper(final HttpServletRequest request, final HttpServletResponse response, final WebDavRequest webDavRequest) throws IOException {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+            if (webDavRequest instanceof SpooledWebDavRequest) {
+                spooled = folder.list().length;
+                body = IOUtils.toByteArray(webDavRequest.getInputStream());
+            }
+            this.response = Mockito.mock(WebDavResponse.class);
+            Mockito.when(this.response.getRequest()).thenReturn(webDavRequest);
+            return this.response;
+        }
+    }
+
+    private static final int SPOOL_THRESHOLD = 64 * 1024;
+
+    private static boolean isVirtualThreadRuntime() {
+        final String version = System.getProperty("java.specification.version");
+        return !version.startsWith("1.") && (Integer.parseInt(version) >= 21);
+    }
+
+    private File folder;
+
+    @After
+    public void after() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Before
+    public void before() {
+        folder = new File(FileUtils.getTempDirectory(), "webdav-servlet-test_" + UUID.randomUUID());
+        Assert.assertTrue("folder must be created", folder.mkdirs());
+    }
+
+    private HttpServletRequest createAsyncRequest(final AsyncContext context, final long contentLength, final MockClient.Upload upload) throws IOException {
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.isAsyncSupported()).thenReturn(true);
+        Mockito.when(request.startAsync()).thenReturn(context);
+        Mockito.when(request.isAsyncStarted()).thenReturn(true);
+        Mockito.when(request.getAsyncContext()).thenReturn(context);
+        Mockito.when(request.getContentLengthLong()).thenReturn(contentLength);
+        Mockito.when(request.getInputStream()).thenReturn(upload.getStream());
+        return request;
+    }
+
+    private AsyncWebDavServlet createAsyncServlet() throws ServletException {
+        return createAsyncServlet(WebDavServlet.ASYNC, null);
+    }
+
+    private AsyncWebDavServlet createAsyncServlet(final String mode, @CheckForNull final ExecutorService virtualThreads) throws ServletException {
+        final AsyncWebDavServlet servlet = new AsyncWebDavServlet(folder, virtualThreads);
+
+        final ServletConfig servletConfig = Mockito.mock(ServletConfig.class);
+        Mockito.when(servletConfig.getInitParameter(mode)).thenReturn("true");
+        final ServletContext servletContext = Mockito.mock(ServletContext.class);
+        Mockito.when(servletContext.getAttribute(ServletContext.TEMPDIR)).thenReturn(folder);
+        Mockito.when(servletConfig.getServletContext()).thenReturn(servletContext);
+
+        servlet.init(servletConfig);
+        return servlet;
+    }
+
+    private ReadListener startUpload(final AsyncWebDavServlet servlet, final HttpServletRequest request, final MockClient.Upload upload) throws Exception {
+        servlet.service(request, Mockito.mock(HttpServletResponse.class));
+
+        final ArgumentCaptor<ReadListener> listener = ArgumentCaptor.forClass(ReadListener.class);
+        Mockito.verify(upload.getStream()).setReadListener(listener.capture());
+        return listener.getValue();
+    }
+
+    @Test
+    public void test_createVirtualThreadExecutor() throws Exception {
+        final Optional<ExecutorService> executor = new WebDavServlet().createVirtualThreadExecutor();
+        Assert.assertEquals("virtual thread support must match", isVirtualThreadRuntime(), executor.isPresent());
+        executor.ifPresent(ExecutorService::shutdown);
+    }
+
     @Test
     public void test_createWebDavConfig_empty() throws Exception {
         final WebDavServlet servlet = new WebDavServlet();
@@ -43,6 +191,7 @@ public class WebDavServletTest {
         Assert.assertTrue("readOnly default must be false", config.isReadOnly());
         Assert.assertFalse("show collection listing default must be false", config.isShowCollectionListings());
         Assert.assertEquals("css must match", Optional.empty(), config.getCssForCollectionListings());
+        Assert.assertEquals("max request body size must match", HttpServletConfig.DEFAULT_MAX_REQUEST_BODY_SIZE, config.getMaxRequestBodySize());
     }
 
     @Test
@@ -82,6 +231,7 @@ public class WebDavServletTest {
         Mockito.when(servletConfig.getInitParameter(WebDavServlet.INFINITE)).thenReturn("true");
         Mockito.when(servletConfig.getInitParameter(WebDavServlet.LISTING)).thenReturn("true");
         Mockito.when(servletConfig.getInitParameter(WebDavServlet.LISTING_CSS)).thenReturn("/WEB-INF/test");
+        Mockito.when(servletConfig.getInitParameter(WebDavServlet.MAX_REQUEST_BODY_SIZE)).thenReturn("1024");
         Mockito.when(servletConfig.getInitParameter(WebDavServlet.WRITEABLE)).thenReturn("true");
         final ServletContext servletContext = Mockito.mock(ServletContext.class);
         Mockito.when(servletContext.getResourceAsStream(Matchers.anyString())).thenReturn(new ByteArrayInputStream("test data".getBytes()));
@@ -94,5 +244,222 @@ public class WebDavServletTest {
         Assert.assertFalse("readOnly must be false", config.isReadOnly());
         Assert.assertTrue("show collection listing  must be true", config.isShowCollectionListings());
         Assert.assertEquals("css must match", Optional.of("test data"), config.getCssForCollectionListings());
+        Assert.assertEquals("max request body size must match", 1024L, config.getMaxRequestBodySize());
+    }
+
+    @Test(expected = ServletException.class)
+    public void test_init_virtualThreadsUnavailable() throws Exception {
+        createAsyncServlet(WebDavServlet.VIRTUAL_THREADS, null);
+        Assert.fail("must not complete");
+    }
+
+    @Test(expected = ServletException.class)
+    public void test_init_virtualThreadsUnsupportedRuntime() throws Exception {
+        Assume.assumeFalse("runtime supports virtual threads", isVirtualThreadRuntime());
+
+        final ServletConfig servletConfig = Mockito.mock(ServletConfig.class);
+        Mockito.when(servletConfig.getInitParameter(WebDavServlet.VIRTUAL_THREADS)).thenReturn("true");
+
+        new WebDavServlet().init(servletConfig);
+        Assert.fail("must not complete");
+    }
+
+    @Test
+    public void test_service_asyncClientAbort() throws Exception {
+        final AsyncWebDavServlet servlet = createAsyncServlet();
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final MockClient.Upload upload = new MockClient.Upload(MockClient.createContent(4 * SPOOL_THRESHOLD));
+        final HttpServletRequest request = createAsyncRequest(context, 4 * SPOOL_THRESHOLD, upload);
+
+        final ReadListener listener = startUpload(servlet, request, upload);
+        upload.send(2 * SPOOL_THRESHOLD);
+        listener.onDataAvailable();
+        Assert.assertEquals("spool files must match", 1, folder.list().length);
+
+        listener.onError(new IOException("client aborted"));
+
+        Assert.assertNull("request must not be dispatched", servlet.response);
+        Assert.assertEquals("spool files must be removed", 0, folder.list().length);
+        Mockito.verify(context, Mockito.times(1)).complete();
+    }
+
+    @Test
+    public void test_service_asyncFailingDispatch() throws Exception {
+        final AsyncWebDavServlet servlet = createAsyncServlet();
+        servlet.failure = new IOException("dispatch failed");
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final byte[] content = MockClient.createContent(2 * SPOOL_THRESHOLD);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final HttpServletRequest request = createAsyncRequest(context, content.length, upload);
+
+        final ReadListener listener = startUpload(servlet, request, upload);
+        upload.send(content.length);
+        listener.onDataAvailable();
+        try {
+            listener.onAllDataRead();
+            Assert.fail("must not complete");
+        } catch (final IOException e) {
+            Assert.assertSame("exception must match", servlet.failure, e);
+        }
+        Mockito.verify(context, Mockito.never()).complete();
+
+        // the container reports the failure of onAllDataRead to onError
+        listener.onError(servlet.failure);
+
+        Assert.assertEquals("spool files must be removed", 0, folder.list().length);
+        Mockito.verify(context, Mockito.times(1)).complete();
+    }
+
+    @Test
+    public void test_service_asyncSpooledBody() throws Exception {
+        final AsyncWebDavServlet servlet = createAsyncServlet();
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final byte[] content = MockClient.createContent((3 * SPOOL_THRESHOLD) + 17);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final HttpServletRequest request = createAsyncRequest(context, content.length, upload);
+
+        final ReadListener listener = startUpload(servlet, request, upload);
+        Mockito.verify(context).setTimeout(0L);
+        for (int sent = 0; sent < content.length; sent += SPOOL_THRESHOLD) {
+            upload.send(SPOOL_THRESHOLD);
+            listener.onDataAvailable();
+        }
+        Assert.assertNull("request must not be dispatched before the body is complete", servlet.response);
+        Mockito.verify(context, Mockito.never()).complete();
+
+        listener.onAllDataRead();
+
+        Assert.assertEquals("spool files must match", 1, servlet.spooled);
+        Assert.assertArrayEquals("body must match", content, servlet.body);
+        Assert.assertEquals("spool files must be removed", 0, folder.list().length);
+        Mockito.verify(servlet.response).setStatus(Status.NO_CONTENT);
+        Mockito.verify(context, Mockito.times(1)).complete();
+    }
+
+    @Test
+    public void test_service_asyncTooLargeBody() throws Exception {
+        final AsyncWebDavServlet servlet = createAsyncServlet();
+        ((HttpServletConfig) servlet.getWebDavConfig()).setMaxRequestBodySize(2 * SPOOL_THRESHOLD);
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(context.getResponse()).thenReturn(response);
+        final byte[] content = MockClient.createContent(4 * SPOOL_THRESHOLD);
+        final MockClient.Upload upload = new MockClient.Upload(content);
+        final HttpServletRequest request = createAsyncRequest(context, content.length, upload);
+
+        final ReadListener listener = startUpload(servlet, request, upload);
+        upload.send(content.length);
+        listener.onDataAvailable();
+
+        Assert.assertNull("request must not be dispatched", servlet.response);
+        Assert.assertEquals("spool files must be removed", 0, folder.list().length);
+        Mockito.verify(response).sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        Mockito.verify(context, Mockito.times(1)).complete();
+    }
+
+    @Test
+    public void test_service_asyncUpload() throws Exception {
+        final AsyncWebDavServlet servlet = createAsyncServlet();
+        servlet.method = Method.PUT;
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final MockClient.Upload upload = new MockClient.Upload(MockClient.createContent(4 * SPOOL_THRESHOLD));
+        final HttpServletRequest request = createAsyncRequest(context, 4 * SPOOL_THRESHOLD, upload);
+        Mockito.when(request.isAsyncStarted()).thenReturn(false);
+
+        servlet.service(request, Mockito.mock(HttpServletResponse.class));
+
+        Mockito.verify(request, Mockito.never()).startAsync();
+        Mockito.verify(upload.getStream(), Mockito.never()).setReadListener(Matchers.any(ReadListener.class));
+        Assert.assertNotNull("request must be dispatched", servlet.response);
+        Assert.assertEquals("spool files must match", -1, servlet.spooled);
+    }
+
+    @Test
+    public void test_service_asyncWithoutBody() throws Exception {
+        final AsyncWebDavServlet servlet = createAsyncServlet();
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final MockClient.Upload upload = new MockClient.Upload(new byte[0]);
+        final HttpServletRequest request = createAsyncRequest(context, 0L, upload);
+
+        servlet.service(request, Mockito.mock(HttpServletResponse.class));
+
+        Mockito.verify(request).startAsync();
+        Mockito.verify(context).setTimeout(0L);
+        Mockito.verify(request, Mockito.never()).getInputStream();
+        Mockito.verify(servlet.response).setStatus(Status.NO_CONTENT);
+        Mockito.verify(context, Mockito.times(1)).complete();
+    }
+
+    @Test
+    public void test_service_virtualThreads() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final AsyncWebDavServlet servlet = createAsyncServlet(WebDavServlet.VIRTUAL_THREADS, executor);
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final MockClient.Upload upload = new MockClient.Upload(MockClient.createContent(SPOOL_THRESHOLD));
+        final HttpServletRequest request = createAsyncRequest(context, SPOOL_THRESHOLD, upload);
+
+        servlet.service(request, Mockito.mock(HttpServletResponse.class));
+        servlet.destroy();
+        Assert.assertTrue("executor must terminate", executor.awaitTermination(10L, TimeUnit.SECONDS));
+
+        Mockito.verify(context).setTimeout(0L);
+        Mockito.verify(upload.getStream(), Mockito.never()).setReadListener(Matchers.any(ReadListener.class));
+        Mockito.verify(servlet.response).setStatus(Status.NO_CONTENT);
+        Mockito.verify(context, Mockito.times(1)).complete();
+    }
+
+    @Test
+    public void test_service_virtualThreadsFailingDispatch() throws Exception {
+        for (final Exception failure : new Exception[] { new IOException("dispatch failed"), new IllegalStateException("dispatch failed") }) {
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            final AsyncWebDavServlet servlet = createAsyncServlet(WebDavServlet.VIRTUAL_THREADS, executor);
+            servlet.failure = failure;
+            final AsyncContext context = Mockito.mock(AsyncContext.class);
+            final HttpServletRequest request = createAsyncRequest(context, 0L, new MockClient.Upload(new byte[0]));
+
+            final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+            servlet.service(request, response);
+            servlet.destroy();
+            Assert.assertTrue("executor must terminate", executor.awaitTermination(10L, TimeUnit.SECONDS));
+
+            Assert.assertNull("response must not be created", servlet.response);
+            final InOrder order = Mockito.inOrder(response, context);
+            order.verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            order.verify(context, Mockito.times(1)).complete();
+        }
+    }
+
+    @Test
+    public void test_service_virtualThreadsFailingDispatchCommitted() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final AsyncWebDavServlet servlet = createAsyncServlet(WebDavServlet.VIRTUAL_THREADS, executor);
+        servlet.failure = new IOException("connection reset");
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final HttpServletRequest request = createAsyncRequest(context, 0L, new MockClient.Upload(new byte[0]));
+
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.isCommitted()).thenReturn(true);
+        servlet.service(request, response);
+        servlet.destroy();
+        Assert.assertTrue("executor must terminate", executor.awaitTermination(10L, TimeUnit.SECONDS));
+
+        Mockito.verify(response, Mockito.never()).sendError(Matchers.anyInt());
+        Mockito.verify(context, Mockito.times(1)).complete();
+    }
+
+    @Test
+    public void test_service_virtualThreadsRejected() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final AsyncWebDavServlet servlet = createAsyncServlet(WebDavServlet.VIRTUAL_THREADS, executor);
+        servlet.destroy(); // the executor rejects everything once the servlet is shutting down
+        final AsyncContext context = Mockito.mock(AsyncContext.class);
+        final HttpServletRequest request = createAsyncRequest(context, 0L, new MockClient.Upload(new byte[0]));
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+
+        servlet.service(request, response);
+
+        Assert.assertNull("request must not be dispatched", servlet.response);
+        Mockito.verify(response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        Mockito.verify(context, Mockito.times(1)).complete();
     }
 }
@@ -0,0 +1,86 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.TimeZone;
+
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpDateTest {
+
+    private static final Date DATE = new Date(784111777000L);
+
+    private static final String FORMATTED = "Sun, 06 Nov 1994 08:49:37 GMT";
+
+    @Test
+    public void formatTest() throws Exception {
+        Assert.assertEquals("date must match", FORMATTED, HttpDate.format(DATE));
+    }
+
+    @Test
+    public void formatTest_foreign_defaults() throws Exception {
+        final Locale locale = Locale.getDefault();
+        final TimeZone timeZone = TimeZone.getDefault();
+        try {
+            Locale.setDefault(Locale.GERMANY);
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+
+            // HttpDate may already be initialized by other tests, load it again so it sees the changed defaults
+            final URL[] urls = { HttpDate.class.getProtectionDomain().getCodeSource().getLocation(), FastDateFormat.class.getProtectionDomain().getCodeSource().getLocation() };
+            try (final URLClassLoader loader = new URLClassLoader(urls, null)) {
+                final Class<?> clazz = loader.loadClass(HttpDate.class.getName());
+                final Method format = clazz.getMethod("format", Date.class);
+                final Method parse = clazz.getMethod("parse", String.class);
+
+                final String formatted = (String) format.invoke(null, DATE);
+                Assert.assertEquals("date must match", FORMATTED, formatted);
+                Assert.assertEquals("date must match", Optional.of(DATE), parse.invoke(null, formatted));
+            }
+        } finally {
+            Locale.setDefault(locale);
+            TimeZone.setDefault(timeZone);
+        }
+    }
+
+    @Test
+    public void parseTest() throws Exception {
+        Assert.assertEquals("date must match", Optional.of(DATE), HttpDate.parse(FORMATTED));
+        Assert.assertEquals("date must match", Optional.of(DATE), HttpDate.parse(" " + FORMATTED + " "));
+    }
+
+    @Test
+    public void parseTest_invalid() throws Exception {
+        Assert.assertEquals("date must match", Optional.empty(), HttpDate.parse(null));
+        Assert.assertEquals("date must match", Optional.empty(), HttpDate.parse("yesterday"));
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        final Date now = new Date();
+        final Optional<Date> parsed = HttpDate.parse(HttpDate.format(now));
+        Assert.assertTrue("date must be parsed", parsed.isPresent());
+        Assert.assertEquals("seconds must match", HttpDate.toSeconds(now), HttpDate.toSeconds(parsed.get()));
+    }
+}
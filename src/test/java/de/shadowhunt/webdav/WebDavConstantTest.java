@@ -51,8 +51,11 @@ public class WebDavConstantTest {
         Assert.assertEquals("status code must match", HttpServletResponse.SC_NOT_FOUND, Status.NOT_FOUND.value);
         Assert.assertEquals("status code must match", HttpServletResponse.SC_NOT_IMPLEMENTED, Status.NOT_IMPLEMENTED.value);
         Assert.assertEquals("status code must match", HttpServletResponse.SC_NO_CONTENT, Status.NO_CONTENT.value);
+        Assert.assertEquals("status code must match", HttpServletResponse.SC_NOT_MODIFIED, Status.NOT_MODIFIED.value);
         Assert.assertEquals("status code must match", HttpServletResponse.SC_OK, Status.OK.value);
+        Assert.assertEquals("status code must match", HttpServletResponse.SC_PARTIAL_CONTENT, Status.PARTIAL_CONTENT.value);
         Assert.assertEquals("status code must match", HttpServletResponse.SC_PRECONDITION_FAILED, Status.PRECONDITION_FAILED.value);
+        Assert.assertEquals("status code must match", HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, Status.REQUESTED_RANGE_NOT_SATISFIABLE.value);
         Assert.assertEquals("status code must match", HttpServletResponse.SC_UNAUTHORIZED, Status.UNAUTHORIZED.value);
         Assert.assertEquals("status code must match", HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, Status.UNSUPPORTED_MEDIA_TYPE.value);
     }
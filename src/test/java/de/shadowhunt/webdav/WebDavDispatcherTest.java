@@ -0,0 +1,132 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav;
+
+import java.io.ByteArrayInputStream;
+import java.util.Date;
+import java.util.Optional;
+
+import de.shadowhunt.TestResponse;
+import de.shadowhunt.webdav.WebDavConstant.Header;
+import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.method.WebDavMethod;
+import de.shadowhunt.webdav.method.WebDavMethod.Method;
+import de.shadowhunt.webdav.store.WebDavEntity;
+import de.shadowhunt.webdav.store.WebDavStore;
+import de.shadowhunt.webdav.store.memory.MemoryStore;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+public class WebDavDispatcherTest {
+
+    private static final WebDavPath COLLECTION = WebDavPath.create("/collection");
+
+    private static final WebDavPath ITEM = WebDavPath.create("/item.txt");
+
+    private final WebDavDispatcher dispatcher = WebDavDispatcher.getInstance();
+
+    private WebDavEntity entity;
+
+    @Mock
+    private WebDavRequest request;
+
+    private final WebDavStore store = new MemoryStore();
+
+    @Before
+    public void before() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        store.createCollection(COLLECTION);
+        store.createItem(ITEM, new ByteArrayInputStream("example".getBytes()));
+        entity = store.getEntity(ITEM);
+
+        Mockito.when(request.getMethod()).thenReturn(Method.GET);
+        Mockito.when(request.getPath()).thenReturn(ITEM);
+    }
+
+    private Optional<WebDavResponseWriter> checkNotModified() {
+        final WebDavMethod method = dispatcher.determineWebDavMethod(request);
+        return dispatcher.checkNotModified(method, store, request);
+    }
+
+    @Test
+    public void checkNotModifiedTest_collection() throws Exception {
+        Mockito.when(request.getPath()).thenReturn(COLLECTION);
+        Mockito.when(request.getHeader(Header.IF_NONE_MATCH, null)).thenReturn("*");
+
+        Assert.assertFalse("response must not be present", checkNotModified().isPresent());
+    }
+
+    @Test
+    public void checkNotModifiedTest_etag_match() throws Exception {
+        final String etag = entity.getEtag().get();
+        Mockito.when(request.getHeader(Header.IF_NONE_MATCH, null)).thenReturn("\"other\", W/\"" + etag + "\"");
+
+        final Optional<WebDavResponseWriter> writer = checkNotModified();
+        Assert.assertTrue("response must be present", writer.isPresent());
+
+        final TestResponse response = new TestResponse(request);
+        writer.get().write(response);
+        Assert.assertEquals("status must match", Status.NOT_MODIFIED, response.getStatus());
+        Assert.assertEquals("etag must match", etag, response.getHeader(Header.ETAG));
+        Assert.assertNull("content must be null", response.getContent());
+    }
+
+    @Test
+    public void checkNotModifiedTest_etag_mismatch() throws Exception {
+        Mockito.when(request.getHeader(Header.IF_NONE_MATCH, null)).thenReturn("\"other\"");
+        Mockito.when(request.getHeader(Header.IF_MODIFIED_SINCE, null)).thenReturn(HttpDate.format(new Date()));
+
+        Assert.assertFalse("response must not be present", checkNotModified().isPresent());
+    }
+
+    @Test
+    public void checkNotModifiedTest_modified_since() throws Exception {
+        final Date past = new Date(entity.getLastModified().getTime() - 60000L);
+        Mockito.when(request.getHeader(Header.IF_MODIFIED_SINCE, null)).thenReturn(HttpDate.format(past));
+
+        Assert.assertFalse("response must not be present", checkNotModified().isPresent());
+    }
+
+    @Test
+    public void checkNotModifiedTest_non_existing() throws Exception {
+        Mockito.when(request.getPath()).thenReturn(WebDavPath.create("/non_existing.txt"));
+        Mockito.when(request.getHeader(Header.IF_NONE_MATCH, null)).thenReturn("*");
+
+        Assert.assertFalse("response must not be present", checkNotModified().isPresent());
+    }
+
+    @Test
+    public void checkNotModifiedTest_not_modified_since() throws Exception {
+        Mockito.when(request.getHeader(Header.IF_MODIFIED_SINCE, null)).thenReturn(HttpDate.format(entity.getLastModified()));
+
+        Assert.assertTrue("response must be present", checkNotModified().isPresent());
+    }
+
+    @Test
+    public void checkNotModifiedTest_put() throws Exception {
+        Mockito.when(request.getMethod()).thenReturn(Method.PUT);
+        Mockito.when(request.getHeader(Header.IF_NONE_MATCH, null)).thenReturn("*");
+
+        Assert.assertFalse("response must not be present", checkNotModified().isPresent());
+    }
+}
@@ -128,6 +128,10 @@ public abstract class AbstractWebDavMethodTest {
     }
 
     protected TestResponse execute(final WebDavMethod method) throws Exception {
+        return execute(method, store);
+    }
+
+    protected TestResponse execute(final WebDavMethod method, final WebDavStore store) throws Exception {
         final TestResponse response = new TestResponse(request);
 
         final WebDavResponseWriter webdavResponse = method.service(store, request);
@@ -137,11 +141,12 @@ public abstract class AbstractWebDavMethodTest {
     }
 
     @Before
-    public void initMock() {
+    public void initMock() throws Exception {
         MockitoAnnotations.initMocks(this);
 
         Mockito.when(request.getBase()).thenReturn("/webdav");
         Mockito.when(request.getConfig()).thenReturn(config);
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
     }
 
     @Before
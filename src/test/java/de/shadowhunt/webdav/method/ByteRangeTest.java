@@ -0,0 +1,81 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    private static void assertRange(final long first, final long last, final ByteRange actual) {
+        Assert.assertEquals("first must match", first, actual.first);
+        Assert.assertEquals("last must match", last, actual.last);
+    }
+
+    private static List<ByteRange> parse(final String header) {
+        final Optional<List<ByteRange>> ranges = ByteRange.parse(header, 100L);
+        Assert.assertTrue("ranges must be present", ranges.isPresent());
+        return ranges.get();
+    }
+
+    @Test
+    public void parseTest_adjacent() throws Exception {
+        final List<ByteRange> ranges = parse("bytes=10-19,20-29");
+        Assert.assertEquals("ranges size must match", 1, ranges.size());
+        assertRange(10L, 29L, ranges.get(0));
+    }
+
+    @Test
+    public void parseTest_disjoint() throws Exception {
+        final List<ByteRange> ranges = parse("bytes=50-59,-10,0-9");
+        Assert.assertEquals("ranges size must match", 3, ranges.size());
+        assertRange(0L, 9L, ranges.get(0));
+        assertRange(50L, 59L, ranges.get(1));
+        assertRange(90L, 99L, ranges.get(2));
+    }
+
+    @Test
+    public void parseTest_overlapping() throws Exception {
+        final List<ByteRange> ranges = parse("bytes=20-39,0-24,30-35,-5,94-");
+        Assert.assertEquals("ranges size must match", 2, ranges.size());
+        assertRange(0L, 39L, ranges.get(0));
+        assertRange(94L, 99L, ranges.get(1));
+    }
+
+    @Test
+    public void parseTest_repeated_complete() throws Exception {
+        final String header = "bytes=" + StringUtils.repeat("0-", ",", ByteRange.MAX_RANGES);
+        final List<ByteRange> ranges = parse(header);
+        Assert.assertEquals("ranges size must match", 1, ranges.size());
+        assertRange(0L, 99L, ranges.get(0));
+    }
+
+    @Test
+    public void parseTest_too_many() throws Exception {
+        final String header = "bytes=" + StringUtils.repeat("0-0", ",", ByteRange.MAX_RANGES + 1);
+        Assert.assertFalse("ranges must be ignored", ByteRange.parse(header, 100L).isPresent());
+    }
+
+    @Test
+    public void parseTest_unsatisfiable() throws Exception {
+        Assert.assertTrue("ranges must be empty", parse("bytes=100-,200-300").isEmpty());
+    }
+}
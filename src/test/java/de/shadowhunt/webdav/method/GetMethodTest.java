@@ -16,13 +16,26 @@
  */
 package de.shadowhunt.webdav.method;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.shadowhunt.ContentNormalizer;
 import de.shadowhunt.TestResponse;
+import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.WebDavException;
 import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.store.WebDavStore;
+import de.shadowhunt.webdav.store.filesystem.FileSystemStore;
+import de.shadowhunt.webdav.store.memory.MemoryStore;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
@@ -70,6 +83,7 @@ public class GetMethodTest extends AbstractWebDavMethodTest {
         Assert.assertEquals("contentType must match", "text/plain", response.getContentType());
         Assert.assertNull("characterEncoding must be null", response.getCharacterEncoding());
         Assert.assertEquals("content must match", content, response.getContent());
+        Assert.assertEquals("content length must match", "7", response.getHeader(Header.CONTENT_LENGTH));
     }
 
     @Test
@@ -137,4 +151,176 @@ public class GetMethodTest extends AbstractWebDavMethodTest {
         final TestResponse response = execute(method);
         assertNoContent(response, Status.FORBIDDEN);
     }
+
+    @Test
+    public void test03_existingItemRange() throws Exception {
+        final WebDavMethod method = new GetMethod();
+
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+        Mockito.when(request.getHeader(Header.RANGE, null)).thenReturn("bytes=1-3");
+
+        final TestResponse response = execute(method);
+        assertBasicRequirements(response, Status.PARTIAL_CONTENT);
+        Assert.assertEquals("contentType must match", "text/plain", response.getContentType());
+        Assert.assertEquals("content must match", "xam", response.getContent());
+        Assert.assertEquals("content length must match", "3", response.getHeader(Header.CONTENT_LENGTH));
+        Assert.assertEquals("content range must match", "bytes 1-3/7", response.getHeader(Header.CONTENT_RANGE));
+        Assert.assertEquals("accept ranges must match", "bytes", response.getHeader(Header.ACCEPT_RANGES));
+    }
+
+    @Test
+    public void test03_existingItemRangeAdjacent() throws Exception {
+        final WebDavMethod method = new GetMethod();
+
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+        Mockito.when(request.getHeader(Header.RANGE, null)).thenReturn("bytes=4-5, 1-3");
+
+        final TestResponse response = execute(method);
+        assertBasicRequirements(response, Status.PARTIAL_CONTENT);
+        Assert.assertEquals("contentType must match", "text/plain", response.getContentType());
+        Assert.assertEquals("content must match", "xampl", response.getContent());
+        Assert.assertEquals("content range must match", "bytes 1-5/7", response.getHeader(Header.CONTENT_RANGE));
+    }
+
+    @Test
+    public void test03_existingItemRangeIfRangeMismatch() throws Exception {
+        final WebDavMethod method = new GetMethod();
+
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+        Mockito.when(request.getHeader(Header.RANGE, null)).thenReturn("bytes=1-3");
+        Mockito.when(request.getHeader(Header.IF_RANGE, null)).thenReturn("\"outdated\"");
+
+        final TestResponse response = execute(method);
+        assertBasicRequirements(response, Status.OK);
+        Assert.assertEquals("content must match", "example", response.getContent());
+        Assert.assertNull("content range must be null", response.getHeader(Header.CONTENT_RANGE));
+    }
+
+    @Test
+    public void test03_existingItemRangeMultiple() throws Exception {
+        final WebDavMethod method = new GetMethod();
+
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+        Mockito.when(request.getHeader(Header.RANGE, null)).thenReturn("bytes=0-1, -2");
+
+        final TestResponse response = execute(method);
+        assertBasicRequirements(response, Status.PARTIAL_CONTENT);
+        final String contentType = response.getContentType();
+        Assert.assertTrue("contentType must be multipart", contentType.startsWith("multipart/byteranges; boundary="));
+
+        final String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        final String expected = concat("\r\n--", boundary, "\r\n", //
+                "Content-Type: text/plain\r\n", //
+                "Content-Range: bytes 0-1/7\r\n", //
+                "\r\n", //
+                "ex", //
+                "\r\n--", boundary, "\r\n", //
+                "Content-Type: text/plain\r\n", //
+                "Content-Range: bytes 5-6/7\r\n", //
+                "\r\n", //
+                "le", //
+                "\r\n--", boundary, "--\r\n");
+        Assert.assertEquals("content must match", expected, response.getContent());
+        Assert.assertEquals("content length must match", Integer.toString(expected.length()), response.getHeader(Header.CONTENT_LENGTH));
+    }
+
+    @Test
+    public void test03_existingItemRangeOverlapping() throws Exception {
+        final WebDavMethod method = new GetMethod();
+
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+        Mockito.when(request.getHeader(Header.RANGE, null)).thenReturn("bytes=0-,0-,0-,2-4");
+
+        final TestResponse response = execute(method);
+        assertBasicRequirements(response, Status.PARTIAL_CONTENT);
+        Assert.assertEquals("contentType must match", "text/plain", response.getContentType());
+        Assert.assertEquals("content must match", "example", response.getContent());
+        Assert.assertEquals("content length must match", "7", response.getHeader(Header.CONTENT_LENGTH));
+        Assert.assertEquals("content range must match", "bytes 0-6/7", response.getHeader(Header.CONTENT_RANGE));
+    }
+
+    @Test
+    public void test03_existingItemRangeNotSatisfiable() throws Exception {
+        final WebDavMethod method = new GetMethod();
+
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+        Mockito.when(request.getHeader(Header.RANGE, null)).thenReturn("bytes=7-");
+
+        final TestResponse response = execute(method);
+        assertNoContent(response, Status.REQUESTED_RANGE_NOT_SATISFIABLE);
+        Assert.assertEquals("content range must match", "bytes */7", response.getHeader(Header.CONTENT_RANGE));
+    }
+
+    @Test
+    public void test04_itemKeepsChanging() throws Exception {
+        final WebDavMethod method = new GetMethod();
+        final WebDavStore store = Mockito.spy(new MemoryStore());
+        store.createItem(EXISTING_ITEM, createContent("example"));
+        final AtomicInteger replaced = new AtomicInteger();
+        Mockito.doAnswer(invocation -> {
+            final InputStream content = (InputStream) invocation.callRealMethod();
+            store.createItem(EXISTING_ITEM, createContent(StringUtils.repeat("x", replaced.incrementAndGet())));
+            return content;
+        }).when(store).getContent(EXISTING_ITEM);
+
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+
+        try {
+            execute(method, store);
+            Assert.fail("content must not be served");
+        } catch (final WebDavException e) {
+            Assert.assertEquals("status must match", Status.SERVICE_UNAVAILABLE, e.getStatus());
+        }
+        Assert.assertEquals("attempts must match", 8, replaced.get());
+    }
+
+    @Test
+    public void test04_itemReplacedWhileOpening() throws Exception {
+        final WebDavMethod method = new GetMethod();
+        final WebDavStore store = Mockito.spy(new MemoryStore());
+        store.createItem(EXISTING_ITEM, createContent("example"));
+        Mockito.doAnswer(invocation -> {
+            final InputStream content = (InputStream) invocation.callRealMethod();
+            Mockito.doCallRealMethod().when(store).getContent(EXISTING_ITEM);
+            store.createItem(EXISTING_ITEM, createContent("replaced content"));
+            return content;
+        }).when(store).getContent(EXISTING_ITEM);
+
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+
+        final TestResponse response = execute(method, store);
+        assertBasicRequirements(response, Status.OK);
+        Assert.assertEquals("content must match", "replaced content", response.getContent());
+        Assert.assertEquals("content length must match", "16", response.getHeader(Header.CONTENT_LENGTH));
+        Assert.assertEquals("etag must match", store.getEntity(EXISTING_ITEM).getEtag().get(), response.getHeader(Header.ETAG));
+    }
+
+    @Test
+    public void test04_itemReplacedWhileOpeningFile() throws Exception {
+        final WebDavMethod method = new GetMethod();
+        final File root = new File(FileUtils.getTempDirectory(), "webdav-servlet-test_" + UUID.randomUUID());
+        try {
+            final FileSystemStore store = Mockito.spy(new FileSystemStore(root, true));
+            store.createItem(EXISTING_ITEM, createContent("example"));
+            Mockito.doAnswer(invocation -> {
+                Mockito.doCallRealMethod().when(store).getContentPath(EXISTING_ITEM);
+                store.createItem(EXISTING_ITEM, createContent("replaced content"));
+                return invocation.callRealMethod();
+            }).when(store).getContentPath(EXISTING_ITEM);
+
+            Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+            Mockito.when(request.getHeader(Header.RANGE, null)).thenReturn("bytes=0-8");
+
+            final TestResponse response = execute(method, store);
+            assertBasicRequirements(response, Status.PARTIAL_CONTENT);
+            Assert.assertEquals("content must match", "replaced ", response.getContent());
+            Assert.assertEquals("content range must match", "bytes 0-8/16", response.getHeader(Header.CONTENT_RANGE));
+        } finally {
+            FileUtils.deleteQuietly(root);
+        }
+    }
+
+    private InputStream createContent(final String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
 }
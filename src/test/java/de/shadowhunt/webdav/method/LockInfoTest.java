@@ -0,0 +1,113 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import de.shadowhunt.webdav.WebDavConfig;
+import de.shadowhunt.webdav.WebDavRequest;
+import de.shadowhunt.webdav.store.WebDavLock.LockScope;
+import de.shadowhunt.webdav.store.WebDavLock.LockType;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class LockInfoTest {
+
+    private static void assertMalformed(final String body) throws Exception {
+        Assert.assertNull("request must be rejected: " + body, parse(body));
+    }
+
+    private static LockInfo parse(final String body) throws Exception {
+        final WebDavRequest request = Mockito.mock(WebDavRequest.class);
+        Mockito.when(request.getConfig()).thenReturn(Mockito.mock(WebDavConfig.class));
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return PropertiesMessageHelper.parse(request, LockInfo::parse, LockInfo.REFRESH);
+    }
+
+    @Test
+    public void parseTest() throws Exception {
+        final LockInfo lockInfo = parse("<?xml version=\"1.0\"?><D:lockinfo xmlns:D=\"DAV:\"><D:lockscope><D:shared/></D:lockscope><D:locktype><D:write/></D:locktype><D:owner>owner</D:owner></D:lockinfo>");
+        Assert.assertNotNull("request must not be null", lockInfo);
+        Assert.assertEquals("owner must match", Optional.of("owner"), lockInfo.getOwner());
+        Assert.assertEquals("scope must match", Optional.of(LockScope.SHARED), lockInfo.getScope());
+        Assert.assertEquals("type must match", Optional.of(LockType.WRITE), lockInfo.getType());
+    }
+
+    @Test
+    public void parseTest_empty() throws Exception {
+        final LockInfo lockInfo = parse("");
+        Assert.assertSame("request must match", LockInfo.REFRESH, lockInfo);
+        Assert.assertEquals("owner must match", Optional.empty(), lockInfo.getOwner());
+        Assert.assertEquals("scope must match", Optional.empty(), lockInfo.getScope());
+        Assert.assertEquals("type must match", Optional.empty(), lockInfo.getType());
+    }
+
+    @Test
+    public void parseTest_extensionElements() throws Exception {
+        final LockInfo lockInfo = parse("<D:lockinfo xmlns:D=\"DAV:\" xmlns:x=\"urn:x\">" //
+                + "<x:ext><D:owner>ignored</D:owner></x:ext>" //
+                + "<D:lockscope><x:scope/><D:exclusive/></D:lockscope>" //
+                + "<D:locktype><x:write/></D:locktype>" //
+                + "<D:owner>first</D:owner><D:owner>second</D:owner>" //
+                + "</D:lockinfo>");
+        Assert.assertNotNull("request must not be null", lockInfo);
+        Assert.assertEquals("owner must match", Optional.of("first"), lockInfo.getOwner());
+        Assert.assertEquals("scope must match", Optional.of(LockScope.EXCLUSIVE), lockInfo.getScope());
+        Assert.assertEquals("type must match", Optional.empty(), lockInfo.getType());
+    }
+
+    @Test
+    public void parseTest_incomplete() throws Exception {
+        final LockInfo lockInfo = parse("<D:lockinfo xmlns:D=\"DAV:\"/>");
+        Assert.assertNotNull("request must not be null", lockInfo);
+        Assert.assertNotSame("request must not be a refresh", LockInfo.REFRESH, lockInfo);
+        Assert.assertEquals("owner must match", Optional.empty(), lockInfo.getOwner());
+        Assert.assertEquals("scope must match", Optional.empty(), lockInfo.getScope());
+        Assert.assertEquals("type must match", Optional.empty(), lockInfo.getType());
+    }
+
+    @Test
+    public void parseTest_malformed() throws Exception {
+        assertMalformed("lockinfo");
+        assertMalformed("<D:lockinfo xmlns:D=\"DAV:\"><D:lockscope><D:exclusive/></D:lockinfo>");
+        assertMalformed("<D:lockinfo xmlns:D=\"DAV:\"><D:owner>owner");
+        assertMalformed("<D:lockinfo xmlns:D=\"DAV:\"><D:owner><x:href>owner</x:href></D:owner></D:lockinfo>");
+    }
+
+    @Test
+    public void parseTest_mixedText() throws Exception {
+        final LockInfo lockInfo = parse("<D:lockinfo xmlns:D=\"DAV:\">text" //
+                + "<D:lockscope>text<D:exclusive>text</D:exclusive>text</D:lockscope>" //
+                + "<D:locktype>\n<D:write/>\n</D:locktype>" //
+                + "<D:owner>Jane <D:href>http://example.org/~jane</D:href> <![CDATA[<Doe>]]></D:owner>" //
+                + "text</D:lockinfo>");
+        Assert.assertNotNull("request must not be null", lockInfo);
+        Assert.assertEquals("owner must match", Optional.of("Jane http://example.org/~jane <Doe>"), lockInfo.getOwner());
+        Assert.assertEquals("scope must match", Optional.of(LockScope.EXCLUSIVE), lockInfo.getScope());
+        Assert.assertEquals("type must match", Optional.of(LockType.WRITE), lockInfo.getType());
+    }
+
+    @Test
+    public void parseTest_wrongRoot() throws Exception {
+        assertMalformed("<D:propfind xmlns:D=\"DAV:\"><D:allprop/></D:propfind>");
+        assertMalformed("<lockinfo><lockscope><exclusive/></lockscope></lockinfo>");
+    }
+}
@@ -152,7 +152,7 @@ public class LockMethodTest extends AbstractWebDavMethodTest {
                 "<D:locktype><D:write/></D:locktype>", //
                 "<D:depth>infinity</D:depth>", //
                 "<D:owner>test</D:owner>", //
-                "<D:timeout>Infinite</D:timeout>", //
+                "<D:timeout>" + Timeout.PREFIX + "3600</D:timeout>", //
                 "<D:locktoken><D:href>urn:uuid:00000000-0000-0000-0000-000000000000</D:href></D:locktoken>", //
                 "<D:lockroot><D:href>" + item.getPath() + "</D:href></D:lockroot>", //
                 "</D:activelock>", //
@@ -229,4 +229,33 @@ public class LockMethodTest extends AbstractWebDavMethodTest {
                 "\r\n");
         Assert.assertEquals("content must match", content, response.getContent(LOCK_TOKEN_NORMALIZER));
     }
+
+    @Test
+    public void test03_broken_request_body() throws Exception {
+        final WebDavMethod method = new LockMethod();
+
+        Mockito.when(request.getHeader(Matchers.eq(Header.DEPTH), Matchers.anyString())).thenReturn(Depth.INFINITY.name);
+        Mockito.when(request.getHeader(Matchers.eq(Header.TIMEOUT), Matchers.anyString())).thenReturn(Timeout.INFINITE_STRING);
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream("<?xml version=\"1.0\"?><D:lockinfo xmlns:D='DAV:'><D:lockscope>".getBytes()));
+        Mockito.when(request.getPath()).thenReturn(NON_EXISTING);
+
+        final TestResponse response = execute(method);
+        assertNoContent(response, Status.BAD_REQUEST);
+
+        // a rejected request must not leave a lock-null resource behind
+        assertNoContent(execute(new HeadMethod()), Status.NOT_FOUND);
+    }
+
+    @Test
+    public void test03_wrong_root_element() throws Exception {
+        final WebDavMethod method = new LockMethod();
+
+        Mockito.when(request.getHeader(Matchers.eq(Header.DEPTH), Matchers.anyString())).thenReturn(Depth.INFINITY.name);
+        Mockito.when(request.getHeader(Matchers.eq(Header.TIMEOUT), Matchers.anyString())).thenReturn(Timeout.INFINITE_STRING);
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream("<?xml version=\"1.0\"?><D:propfind xmlns:D='DAV:'><D:allprop/></D:propfind>".getBytes()));
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+
+        final TestResponse response = execute(method);
+        assertNoContent(response, Status.BAD_REQUEST);
+    }
 }
@@ -0,0 +1,58 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NameSpacePrefixesTest {
+
+    @Test
+    public void declareTest() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Utf8XmlWriter writer = new Utf8XmlWriter(output);
+        final NameSpacePrefixes prefixes = new NameSpacePrefixes();
+        prefixes.announce("urn:known");
+        prefixes.announce("");
+
+        writer.writeStartElement(PropertyIdentifier.DEFAULT_DAV_PREFIX, "multistatus", PropertyIdentifier.DAV_NAMESPACE);
+        prefixes.declareRoot(writer);
+        for (int i = 0; i < 2; i++) {
+            writer.writeStartElement(PropertyIdentifier.DAV_NAMESPACE, "response");
+            prefixes.declareLocal(writer, "urn:known");
+            prefixes.declareLocal(writer, "urn:unknown");
+            prefixes.declareLocal(writer, "urn:unknown");
+            writer.writeEmptyElement("urn:known", "a");
+            writer.writeEmptyElement("urn:unknown", "b");
+            writer.writeEndElement();
+            prefixes.endLocal();
+        }
+        writer.writeEndDocument();
+        writer.close();
+
+        final String expected = "<D:multistatus xmlns:D=\"DAV:\" xmlns:ns1=\"urn:known\">" //
+                + "<D:response xmlns:ns2=\"urn:unknown\"><ns1:a/><ns2:b/></D:response>" //
+                + "<D:response xmlns:ns2=\"urn:unknown\"><ns1:a/><ns2:b/></D:response>" //
+                + "</D:multistatus>";
+        Assert.assertEquals("output must match", expected, new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
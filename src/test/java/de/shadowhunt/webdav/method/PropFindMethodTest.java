@@ -26,6 +26,7 @@ import de.shadowhunt.TestResponse;
 import de.shadowhunt.webdav.WebDavConstant.Depth;
 import de.shadowhunt.webdav.WebDavConstant.Header;
 import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.WebDavException;
 import de.shadowhunt.webdav.WebDavPath;
 
 import org.junit.Assert;
@@ -85,16 +86,51 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
     }
 
     @Test
-    public void test02_missing_request_body() throws Exception {
+    public void test02_doctype_request_body() throws Exception {
         final WebDavMethod method = new PropFindMethod();
 
         Mockito.when(request.getHeader(Matchers.eq(Header.DEPTH), Matchers.anyString())).thenReturn(Depth.SELF.name);
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream("<?xml version=\"1.0\"?><!DOCTYPE propfind [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]><propfind xmlns=\"DAV:\"><allprop/>&xxe;</propfind>".getBytes()));
         Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
 
         final TestResponse response = execute(method);
         assertNoContent(response, Status.BAD_REQUEST);
     }
 
+    @Test
+    public void test02_large_request_body() throws Exception {
+        final WebDavMethod method = new PropFindMethod();
+
+        Mockito.when(config.getMaxRequestBodySize()).thenReturn(16L);
+
+        Mockito.when(request.getHeader(Matchers.eq(Header.DEPTH), Matchers.anyString())).thenReturn(Depth.SELF.name);
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream("<?xml version=\"1.0\"?><propfind xmlns=\"DAV:\"><allprop/></propfind>".getBytes()));
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+
+        try {
+            execute(method);
+            Assert.fail("must not complete");
+        } catch (final WebDavException e) {
+            Assert.assertEquals("status must match", Status.REQUEST_ENTITY_TOO_LARGE, e.getStatus());
+        }
+    }
+
+    @Test
+    public void test02_missing_request_body() throws Exception {
+        final WebDavMethod method = new PropFindMethod();
+
+        Mockito.when(request.getHeader(Matchers.eq(Header.DEPTH), Matchers.anyString())).thenReturn(Depth.SELF.name);
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+
+        final TestResponse response = execute(method);
+        assertBasicRequirements(response, Status.MULTI_STATUS);
+
+        // an empty body must be treated like <D:allprop>
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream("<?xml version=\"1.0\"?><propfind xmlns=\"DAV:\"><allprop/></propfind>".getBytes()));
+        final TestResponse allProperties = execute(method);
+        Assert.assertEquals("content must match", allProperties.getContent(NORMALIZER), response.getContent(NORMALIZER));
+    }
+
     @Test
     public void test03_no_properties() throws Exception {
         final WebDavMethod method = new PropFindMethod();
@@ -124,12 +160,12 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
         Assert.assertEquals("contentType must match", "application/xml", response.getContentType());
         Assert.assertEquals("characterEncoding must match", AbstractBasicResponse.DEFAULT_ENCODING, response.getCharacterEncoding());
         final String expected = concat("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", //
-                "<D:multistatus xmlns:D=\"DAV:\" xmlns:ns1=\"bar\" xmlns:ns2=\"foo\" xmlns:ns3=\"missing\">", //
+                "<D:multistatus xmlns:D=\"DAV:\" xmlns:ns1=\"missing\">", //
                 "<D:response>", //
                 "<D:href>/webdav/item.txt</D:href>", //
                 "<D:propstat>", //
                 "<D:prop>", //
-                "<ns3:foo/>", //
+                "<ns1:foo/>", //
                 "</D:prop>", //
                 "<D:status>HTTP/1.1 404 Not Found</D:status>", //
                 "</D:propstat>", //
@@ -152,12 +188,12 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
         Assert.assertEquals("contentType must match", "application/xml", response.getContentType());
         Assert.assertEquals("characterEncoding must match", AbstractBasicResponse.DEFAULT_ENCODING, response.getCharacterEncoding());
         final String expected = concat("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", //
-                "<D:multistatus xmlns:D=\"DAV:\" xmlns:ns1=\"bar\" xmlns:ns2=\"foo\">", //
+                "<D:multistatus xmlns:D=\"DAV:\" xmlns:ns1=\"foo\">", //
                 "<D:response>", //
                 "<D:href>/webdav/item.txt</D:href>", //
                 "<D:propstat>", //
                 "<D:prop>", //
-                "<ns2:foo>foo_foo_content</ns2:foo>", //
+                "<ns1:foo>foo_foo_content</ns1:foo>", //
                 "</D:prop>", //
                 "<D:status>HTTP/1.1 200 OK</D:status>", //
                 "</D:propstat>", //
@@ -180,8 +216,8 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
         Assert.assertEquals("contentType must match", "application/xml", response.getContentType());
         Assert.assertEquals("characterEncoding must match", AbstractBasicResponse.DEFAULT_ENCODING, response.getCharacterEncoding());
         final String expected = concat("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", //
-                "<D:multistatus xmlns:D=\"DAV:\" xmlns:ns1=\"bar\" xmlns:ns2=\"foo\">", //
-                "<D:response>", //
+                "<D:multistatus xmlns:D=\"DAV:\">", //
+                "<D:response xmlns:ns1=\"bar\" xmlns:ns2=\"foo\">", //
                 "<D:href>/webdav/item.txt</D:href>", //
                 "<D:propstat>", //
                 "<D:prop>", //
@@ -215,8 +251,8 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
         Assert.assertEquals("contentType must match", "application/xml", response.getContentType());
         Assert.assertEquals("characterEncoding must match", AbstractBasicResponse.DEFAULT_ENCODING, response.getCharacterEncoding());
         final String expected = concat("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", //
-                "<D:multistatus xmlns:D=\"DAV:\" xmlns:ns1=\"bar\" xmlns:ns2=\"foo\">", //
-                "<D:response>", //
+                "<D:multistatus xmlns:D=\"DAV:\">", //
+                "<D:response xmlns:ns1=\"bar\" xmlns:ns2=\"foo\">", //
                 "<D:href>/webdav/item.txt</D:href>", //
                 "<D:propstat>", //
                 "<D:prop>", //
@@ -252,8 +288,8 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
         Assert.assertEquals("contentType must match", "application/xml", response.getContentType());
         Assert.assertEquals("characterEncoding must match", AbstractBasicResponse.DEFAULT_ENCODING, response.getCharacterEncoding());
         final String expected = concat("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", //
-                "<D:multistatus xmlns:D=\"DAV:\" xmlns:ns1=\"bar\" xmlns:ns2=\"foo\">", //
-                "<D:response>", //
+                "<D:multistatus xmlns:D=\"DAV:\">", //
+                "<D:response xmlns:ns1=\"bar\" xmlns:ns2=\"foo\">", //
                 "<D:href>/webdav/collection</D:href>", //
                 "<D:propstat>", //
                 "<D:prop>", //
@@ -263,6 +299,16 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
                 "<D:resourcetype>", //
                 "<D:collection/>", //
                 "</D:resourcetype>", //
+                "<D:supportedlock>", //
+                "<D:lockentry>", //
+                "<D:lockscope>", //
+                "<D:exclusive/>", //
+                "</D:lockscope>", //
+                "<D:locktype>", //
+                "<D:write/>", //
+                "</D:locktype>", //
+                "</D:lockentry>", //
+                "</D:supportedlock>", //
                 "<ns1:foo>bar_foo_content</ns1:foo>", //
                 "<ns2:bar>foo_bar_content</ns2:bar>", //
                 "<ns2:foo>foo_foo_content</ns2:foo>", //
@@ -270,7 +316,7 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
                 "<D:status>HTTP/1.1 200 OK</D:status>", //
                 "</D:propstat>", //
                 "</D:response>", //
-                "<D:response>", //
+                "<D:response xmlns:ns1=\"bar\" xmlns:ns2=\"foo\">", //
                 "<D:href>/webdav/collection/item.txt</D:href>", //
                 "<D:propstat>", //
                 "<D:prop>", //
@@ -305,6 +351,16 @@ public class PropFindMethodTest extends AbstractWebDavMethodTest {
                 "<D:resourcetype>", //
                 "<D:collection/>", //
                 "</D:resourcetype>", //
+                "<D:supportedlock>", //
+                "<D:lockentry>", //
+                "<D:lockscope>", //
+                "<D:exclusive/>", //
+                "</D:lockscope>", //
+                "<D:locktype>", //
+                "<D:write/>", //
+                "</D:locktype>", //
+                "</D:lockentry>", //
+                "</D:supportedlock>", //
                 "</D:prop>", //
                 "<D:status>HTTP/1.1 200 OK</D:status>", //
                 "</D:propstat>", //
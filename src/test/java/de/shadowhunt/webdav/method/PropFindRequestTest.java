@@ -0,0 +1,125 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import de.shadowhunt.webdav.WebDavConfig;
+import de.shadowhunt.webdav.WebDavRequest;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class PropFindRequestTest {
+
+    private static final PropertyIdentifier EXTENSION = new PropertyIdentifier("urn:x", "ext");
+
+    private static final PropertyIdentifier GETETAG = new PropertyIdentifier(PropertyIdentifier.DAV_NAMESPACE, "getetag");
+
+    private static void assertMalformed(final String body) throws Exception {
+        Assert.assertNull("request must be rejected: " + body, parse(body));
+    }
+
+    private static PropFindRequest parse(final String body) throws Exception {
+        final WebDavRequest request = Mockito.mock(WebDavRequest.class);
+        Mockito.when(request.getConfig()).thenReturn(Mockito.mock(WebDavConfig.class));
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return PropertiesMessageHelper.parse(request, PropFindRequest::parse, PropFindRequest.ALL_PROPERTIES);
+    }
+
+    @Test
+    public void parseTest_allProperties() throws Exception {
+        final PropFindRequest propFind = parse("<?xml version=\"1.0\"?><D:propfind xmlns:D=\"DAV:\"><D:allprop/></D:propfind>");
+        Assert.assertNotNull("request must not be null", propFind);
+        Assert.assertTrue("all properties must match", propFind.isAllProperties());
+        Assert.assertFalse("property names must match", propFind.isPropertyNames());
+        Assert.assertEquals("properties must match", Collections.emptySet(), propFind.getProperties());
+    }
+
+    @Test
+    public void parseTest_empty() throws Exception {
+        final PropFindRequest propFind = parse("");
+        Assert.assertSame("request must match", PropFindRequest.ALL_PROPERTIES, propFind);
+        Assert.assertTrue("all properties must match", propFind.isAllProperties());
+        Assert.assertFalse("property names must match", propFind.isPropertyNames());
+        Assert.assertEquals("properties must match", Collections.emptySet(), propFind.getProperties());
+    }
+
+    @Test
+    public void parseTest_extensionElements() throws Exception {
+        final PropFindRequest propFind = parse("<D:propfind xmlns:D=\"DAV:\" xmlns:x=\"urn:x\"><x:hint><D:allprop/></x:hint><D:prop><D:getetag/><x:ext><D:displayname/></x:ext></D:prop><D:include><D:lockdiscovery/></D:include></D:propfind>");
+        Assert.assertNotNull("request must not be null", propFind);
+        Assert.assertFalse("all properties must match", propFind.isAllProperties());
+        Assert.assertFalse("property names must match", propFind.isPropertyNames());
+        Assert.assertEquals("properties must match", new HashSet<>(Arrays.asList(EXTENSION, GETETAG)), propFind.getProperties());
+    }
+
+    @Test
+    public void parseTest_malformed() throws Exception {
+        assertMalformed("propfind");
+        assertMalformed("<D:propfind xmlns:D=\"DAV:\"><D:allprop></D:propfind>");
+        assertMalformed("<D:propfind xmlns:D=\"DAV:\"><D:allprop/>");
+        assertMalformed("<D:propfind><D:allprop/></D:propfind>");
+        assertMalformed("<D:propfind xmlns:D=\"DAV:\"><D:allprop/></D:propfind><D:propfind xmlns:D=\"DAV:\"/>");
+        assertMalformed("<!DOCTYPE propfind [<!ENTITY e \"e\">]><propfind xmlns=\"DAV:\"><allprop/></propfind>");
+    }
+
+    @Test
+    public void parseTest_mixedText() throws Exception {
+        final PropFindRequest propFind = parse("<D:propfind xmlns:D=\"DAV:\" xmlns:x=\"urn:x\">text<D:prop>\n<D:getetag>value</D:getetag>text<x:ext/><![CDATA[text]]></D:prop>text</D:propfind>");
+        Assert.assertNotNull("request must not be null", propFind);
+        Assert.assertEquals("properties must match", new HashSet<>(Arrays.asList(EXTENSION, GETETAG)), propFind.getProperties());
+    }
+
+    @Test
+    public void parseTest_properties() throws Exception {
+        final PropFindRequest propFind = parse("<?xml version=\"1.0\"?><propfind xmlns=\"DAV:\"><prop xmlns:x=\"urn:x\"><x:ext/><getetag/><getetag/></prop></propfind>");
+        Assert.assertNotNull("request must not be null", propFind);
+        Assert.assertFalse("all properties must match", propFind.isAllProperties());
+        Assert.assertFalse("property names must match", propFind.isPropertyNames());
+        Assert.assertEquals("properties must match", new HashSet<>(Arrays.asList(EXTENSION, GETETAG)), propFind.getProperties());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void parseTest_properties_immutable() throws Exception {
+        final PropFindRequest propFind = parse("<propfind xmlns=\"DAV:\"><prop><getetag/></prop></propfind>");
+        propFind.getProperties().add(EXTENSION);
+        Assert.fail("must not complete");
+    }
+
+    @Test
+    public void parseTest_propertyNames() throws Exception {
+        final PropFindRequest propFind = parse("<D:propfind xmlns:D=\"DAV:\"><D:propname/></D:propfind>");
+        Assert.assertNotNull("request must not be null", propFind);
+        Assert.assertFalse("all properties must match", propFind.isAllProperties());
+        Assert.assertTrue("property names must match", propFind.isPropertyNames());
+        Assert.assertEquals("properties must match", Collections.emptySet(), propFind.getProperties());
+    }
+
+    @Test
+    public void parseTest_wrongRoot() throws Exception {
+        assertMalformed("<D:propertyupdate xmlns:D=\"DAV:\"><D:set/></D:propertyupdate>");
+        assertMalformed("<propfind><allprop/></propfind>");
+        assertMalformed("<x:propfind xmlns:x=\"urn:x\"><x:allprop/></x:propfind>");
+    }
+}
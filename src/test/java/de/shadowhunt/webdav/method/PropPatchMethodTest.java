@@ -41,6 +41,17 @@ public class PropPatchMethodTest extends AbstractWebDavMethodTest {
         assertNoContent(response, Status.NOT_FOUND);
     }
 
+    @Test
+    public void test01_broken_request_body() throws Exception {
+        final WebDavMethod method = new PropPatchMethod();
+
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream("<?xml version=\"1.0\"?><propertyupdate xmlns=\"DAV:\"><set>".getBytes(StandardCharsets.UTF_8)));
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+
+        final TestResponse response = execute(method);
+        assertNoContent(response, Status.BAD_REQUEST);
+    }
+
     @Test
     public void test01_missing_request_body() throws Exception {
         final WebDavMethod method = new PropPatchMethod();
@@ -51,6 +62,26 @@ public class PropPatchMethodTest extends AbstractWebDavMethodTest {
         assertNoContent(response, Status.BAD_REQUEST);
     }
 
+    @Test
+    public void test01_wrong_root_element() throws Exception {
+        final WebDavMethod method = new PropPatchMethod();
+
+        final String input = concat("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", //
+                "<propfind xmlns=\"DAV:\" xmlns:t=\"test\">", //
+                "<set>", //
+                "<prop>", //
+                "<t:test>test_content</t:test>", //
+                "</prop>", //
+                "</set>", //
+                "</propfind>");
+
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        Mockito.when(request.getPath()).thenReturn(EXISTING_ITEM);
+
+        final TestResponse response = execute(method);
+        assertNoContent(response, Status.BAD_REQUEST);
+    }
+
     @Test
     public void test02_add_new_property() throws Exception {
         final WebDavMethod method = new PropPatchMethod();
@@ -0,0 +1,129 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import de.shadowhunt.webdav.WebDavConfig;
+import de.shadowhunt.webdav.WebDavRequest;
+import de.shadowhunt.webdav.method.PropPatchRequest.Update;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class PropPatchRequestTest {
+
+    private static void assertMalformed(final String body) throws Exception {
+        Assert.assertNull("request must be rejected: " + body, parse(body));
+    }
+
+    private static void assertUpdate(final Update update, final String name, final Optional<String> value) {
+        Assert.assertEquals("identifier must match", new PropertyIdentifier("urn:x", name), update.getIdentifier());
+        Assert.assertEquals("value must match", value, update.getValue());
+    }
+
+    private static PropPatchRequest parse(final String body) throws Exception {
+        final WebDavRequest request = Mockito.mock(WebDavRequest.class);
+        Mockito.when(request.getConfig()).thenReturn(Mockito.mock(WebDavConfig.class));
+        Mockito.when(request.getInputStream()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        return PropertiesMessageHelper.parse(request, PropPatchRequest::parse);
+    }
+
+    @Test
+    public void parseTest() throws Exception {
+        final PropPatchRequest propPatch = parse("<?xml version=\"1.0\"?><D:propertyupdate xmlns:D=\"DAV:\" xmlns:x=\"urn:x\">" //
+                + "<D:set><D:prop><x:a>1</x:a><x:b/></D:prop></D:set>" //
+                + "<D:remove><D:prop><x:c/></D:prop></D:remove>" //
+                + "<D:set><D:prop><x:c>3</x:c></D:prop></D:set>" //
+                + "</D:propertyupdate>");
+        Assert.assertNotNull("request must not be null", propPatch);
+
+        final List<Update> updates = propPatch.getUpdates();
+        Assert.assertEquals("updates must match", 4, updates.size());
+        assertUpdate(updates.get(0), "a", Optional.of("1"));
+        assertUpdate(updates.get(1), "b", Optional.of(""));
+        assertUpdate(updates.get(2), "c", Optional.empty());
+        assertUpdate(updates.get(3), "c", Optional.of("3"));
+    }
+
+    @Test
+    public void parseTest_empty() throws Exception {
+        assertMalformed("");
+    }
+
+    @Test
+    public void parseTest_emptyUpdate() throws Exception {
+        final PropPatchRequest propPatch = parse("<D:propertyupdate xmlns:D=\"DAV:\"/>");
+        Assert.assertNotNull("request must not be null", propPatch);
+        Assert.assertTrue("updates must be empty", propPatch.getUpdates().isEmpty());
+    }
+
+    @Test
+    public void parseTest_extensionElements() throws Exception {
+        final PropPatchRequest propPatch = parse("<D:propertyupdate xmlns:D=\"DAV:\" xmlns:x=\"urn:x\">" //
+                + "<x:ext><D:prop><x:ignored>1</x:ignored></D:prop></x:ext>" //
+                + "<D:set><x:note><D:prop><x:ignored>2</x:ignored></D:prop></x:note><D:prop><x:a>3</x:a></D:prop></D:set>" //
+                + "<D:remove><x:note/><D:prop><x:b/></D:prop></D:remove>" //
+                + "</D:propertyupdate>");
+        Assert.assertNotNull("request must not be null", propPatch);
+
+        final List<Update> updates = propPatch.getUpdates();
+        Assert.assertEquals("updates must match", 2, updates.size());
+        assertUpdate(updates.get(0), "a", Optional.of("3"));
+        assertUpdate(updates.get(1), "b", Optional.empty());
+    }
+
+    @Test
+    public void parseTest_malformed() throws Exception {
+        assertMalformed("propertyupdate");
+        assertMalformed("<D:propertyupdate xmlns:D=\"DAV:\"><D:set></D:propertyupdate>");
+        assertMalformed("<D:propertyupdate xmlns:D=\"DAV:\"><D:set><D:prop><x:a/></D:prop></D:set></D:propertyupdate>");
+        assertMalformed("<D:propertyupdate xmlns:D=\"DAV:\"/><trailing/>");
+    }
+
+    @Test
+    public void parseTest_mixedText() throws Exception {
+        final PropPatchRequest propPatch = parse("<D:propertyupdate xmlns:D=\"DAV:\" xmlns:x=\"urn:x\">text" //
+                + "<D:set>text<D:prop>text<x:a>foo <x:b>bar</x:b> <![CDATA[<baz>]]></x:a>text</D:prop>text</D:set>" //
+                + "<D:remove>text<D:prop>text<x:c>text<x:d/>text</x:c></D:prop>text</D:remove>" //
+                + "text</D:propertyupdate>");
+        Assert.assertNotNull("request must not be null", propPatch);
+
+        final List<Update> updates = propPatch.getUpdates();
+        Assert.assertEquals("updates must match", 2, updates.size());
+        assertUpdate(updates.get(0), "a", Optional.of("foo bar <baz>"));
+        assertUpdate(updates.get(1), "c", Optional.empty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void parseTest_updates_immutable() throws Exception {
+        final PropPatchRequest propPatch = parse("<D:propertyupdate xmlns:D=\"DAV:\"/>");
+        propPatch.getUpdates().add(new Update(new PropertyIdentifier("urn:x", "a"), Optional.empty()));
+        Assert.fail("must not complete");
+    }
+
+    @Test
+    public void parseTest_wrongRoot() throws Exception {
+        assertMalformed("<D:propfind xmlns:D=\"DAV:\"><D:set><D:prop><x:a xmlns:x=\"urn:x\">1</x:a></D:prop></D:set></D:propfind>");
+        assertMalformed("<propertyupdate><set><prop><a>1</a></prop></set></propertyupdate>");
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+import de.shadowhunt.webdav.WebDavConfig;
+import de.shadowhunt.webdav.WebDavConstant.Status;
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavRequest;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class PropertiesMessageHelperTest {
+
+    private static final String BODY = "<?xml version=\"1.0\"?><D:propfind xmlns:D=\"DAV:\"><D:allprop/></D:propfind>";
+
+    private static WebDavRequest createRequest(final InputStream body, final long limit) throws IOException {
+        final WebDavConfig config = Mockito.mock(WebDavConfig.class);
+        Mockito.when(config.getMaxRequestBodySize()).thenReturn(limit);
+
+        final WebDavRequest request = Mockito.mock(WebDavRequest.class);
+        Mockito.when(request.getConfig()).thenReturn(config);
+        Mockito.when(request.getId()).thenReturn("1");
+        Mockito.when(request.getInputStream()).thenReturn(body);
+        return request;
+    }
+
+    private static InputStream stream(final String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parseTest() throws Exception {
+        final PropFindRequest propFind = PropertiesMessageHelper.parse(createRequest(stream(BODY), 0L), PropFindRequest::parse);
+        Assert.assertNotNull("request must not be null", propFind);
+        Assert.assertTrue("all properties must match", propFind.isAllProperties());
+    }
+
+    @Test
+    public void parseTest_limit() throws Exception {
+        try {
+            PropertiesMessageHelper.parse(createRequest(stream(BODY), 16L), PropFindRequest::parse);
+            Assert.fail("must not complete");
+        } catch (final WebDavException e) {
+            Assert.assertEquals("status must match", Status.REQUEST_ENTITY_TOO_LARGE, e.getStatus());
+        }
+
+        final PropFindRequest propFind = PropertiesMessageHelper.parse(createRequest(stream(BODY), BODY.length()), PropFindRequest::parse);
+        Assert.assertNotNull("request within the limit must not be null", propFind);
+    }
+
+    @Test
+    public void parseTest_malformed() throws Exception {
+        Assert.assertNull("request must be rejected", PropertiesMessageHelper.parse(createRequest(stream("<D:propfind xmlns:D=\"DAV:\">"), 0L), PropFindRequest::parse));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parseTest_parserFailure() throws Exception {
+        PropertiesMessageHelper.parse(createRequest(stream(BODY), 0L), reader -> {
+            throw new IllegalStateException("parser failed");
+        });
+        Assert.fail("must not complete");
+    }
+
+    @Test
+    public void parseTest_streamFailure() throws Exception {
+        final InputStream broken = new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        };
+        final InputStream body = new SequenceInputStream(stream("<D:propfind xmlns:D=\"DAV:\">"), broken);
+
+        try {
+            PropertiesMessageHelper.parse(createRequest(body, 0L), PropFindRequest::parse);
+            Assert.fail("must not complete");
+        } catch (final IOException e) {
+            Assert.assertEquals("message must match", "connection reset", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.method;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Utf8XmlWriterTest {
+
+    private static void write(final XMLStreamWriter writer, final String text) throws XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.setPrefix("D", "DAV:");
+        writer.writeStartElement("DAV:", "multistatus");
+        writer.writeNamespace("D", "DAV:");
+        writer.writeStartElement("DAV:", "response");
+        writer.setPrefix("ns1", "urn:custom");
+        writer.writeNamespace("ns1", "urn:custom");
+        writer.writeStartElement("DAV:", "href");
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+        writer.writeStartElement("urn:custom", "value");
+        writer.writeAttribute("name", text);
+        writer.writeEmptyElement("DAV:", "collection");
+        writer.writeEndElement();
+        writer.writeEmptyElement("plain");
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.writeCharacters("\r\n");
+        writer.close();
+    }
+
+    @Test
+    public void writeTest_buffer_boundary() throws Exception {
+        final String text = StringUtils.repeat("\u00e4\u20ac\ud83d\ude00", Utf8XmlWriter.BUFFER_SIZE);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        write(XMLOutputFactory.newFactory().createXMLStreamWriter(expected, "UTF-8"), text);
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        write(new Utf8XmlWriter(actual), text);
+        Assert.assertArrayEquals("output must match", expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void writeTest_client_names() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Utf8XmlWriter writer = new Utf8XmlWriter(output);
+        writer.setPrefix("D", "DAV:");
+        writer.setPrefix("ns1", "urn:custom");
+        writer.writeStartElement("DAV:", "prop");
+        writer.writeEmptyElement("DAV:", "unknown");
+        writer.writeStartElement("urn:custom", "name");
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.close();
+
+        final String expected = "<D:prop><D:unknown/><ns1:name></ns1:name></D:prop>";
+        Assert.assertEquals("output must match", expected, new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writeTest_escaping() throws Exception {
+        final String text = "a&b<c>d\"e'f \u00e4\u20ac\ud83d\ude00";
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        write(XMLOutputFactory.newFactory().createXMLStreamWriter(expected, "UTF-8"), text);
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        write(new Utf8XmlWriter(actual), text);
+        Assert.assertEquals("output must match", new String(expected.toByteArray(), StandardCharsets.UTF_8), new String(actual.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void writeTest_unbound_namespace() throws Exception {
+        final Utf8XmlWriter writer = new Utf8XmlWriter(new ByteArrayOutputStream());
+        writer.writeStartElement("urn:unknown", "value");
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.precondition;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import de.shadowhunt.webdav.precondition.CompiledPrecondition.Condition;
+import de.shadowhunt.webdav.precondition.CompiledPrecondition.ResourceList;
+import de.shadowhunt.webdav.precondition.PreconditionParser.MalformedPreconditionException;
+import de.shadowhunt.webdav.store.WebDavLock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PreconditionParserTest {
+
+    private static final UUID TOKEN = UUID.fromString("4a7f2c66-a0a2-4cf5-9d4c-2d0a0d3b6a11");
+
+    private static final String LOCK_TOKEN = WebDavLock.PREFIX + TOKEN;
+
+    private static void assertEtag(final boolean not, final String etag, final Condition actual) {
+        Assert.assertEquals("not must match", not, actual.isNot());
+        Assert.assertEquals("etag must match", etag, actual.getEtag());
+        Assert.assertNull("lock token must be null", actual.getLockToken());
+    }
+
+    private static void assertLock(final boolean not, final UUID lockToken, final Condition actual) {
+        Assert.assertEquals("not must match", not, actual.isNot());
+        Assert.assertNull("etag must be null", actual.getEtag());
+        Assert.assertEquals("lock token must match", lockToken, actual.getLockToken());
+    }
+
+    private static void assertMalformed(final String precondition) {
+        try {
+            PreconditionParser.parse(precondition);
+            Assert.fail("must not complete: " + precondition);
+        } catch (final MalformedPreconditionException e) {
+            Assert.assertEquals("stack trace must be empty", 0, e.getStackTrace().length);
+        }
+    }
+
+    private static List<List<Condition>> assertResourceList(@Nullable final String resource, final int lists, final ResourceList actual) {
+        Assert.assertEquals("resource must match", resource, actual.getResource());
+        Assert.assertEquals("lists size must match", lists, actual.getLists().size());
+        return actual.getLists();
+    }
+
+    @Test
+    public void parseTest_empty() throws Exception {
+        Assert.assertTrue("resource lists must be empty", PreconditionParser.parse("").getResourceLists().isEmpty());
+        Assert.assertTrue("resource lists must be empty", PreconditionParser.parse(" \t\r\n").getResourceLists().isEmpty());
+    }
+
+    @Test
+    public void parseTest_explicit() throws Exception {
+        final CompiledPrecondition precondition = PreconditionParser.parse("(<DAV:no-lock>) <http://127.0.0.1/item.txt> ([abc]) (<" + LOCK_TOKEN + ">) <http://127.0.0.1/other.txt> (Not [abc])");
+        final List<ResourceList> resourceLists = precondition.getResourceLists();
+        Assert.assertEquals("resource lists size must match", 3, resourceLists.size());
+
+        final List<List<Condition>> implicit = assertResourceList(null, 1, resourceLists.get(0));
+        Assert.assertEquals("conditions size must match", 1, implicit.get(0).size());
+        assertLock(false, CompiledPrecondition.UUID_ZERO, implicit.get(0).get(0));
+
+        final List<List<Condition>> item = assertResourceList("http://127.0.0.1/item.txt", 2, resourceLists.get(1));
+        Assert.assertEquals("conditions size must match", 1, item.get(0).size());
+        assertEtag(false, "abc", item.get(0).get(0));
+        Assert.assertEquals("conditions size must match", 1, item.get(1).size());
+        assertLock(false, TOKEN, item.get(1).get(0));
+
+        final List<List<Condition>> other = assertResourceList("http://127.0.0.1/other.txt", 1, resourceLists.get(2));
+        Assert.assertEquals("conditions size must match", 1, other.get(0).size());
+        assertEtag(true, "abc", other.get(0).get(0));
+    }
+
+    @Test
+    public void parseTest_implicit() throws Exception {
+        final CompiledPrecondition precondition = PreconditionParser.parse(" ( NOT < DAV:no-lock > [ abc ] ) \t\r\n(<" + LOCK_TOKEN + ">)");
+        final List<ResourceList> resourceLists = precondition.getResourceLists();
+        Assert.assertEquals("resource lists size must match", 1, resourceLists.size());
+
+        final List<List<Condition>> lists = assertResourceList(null, 2, resourceLists.get(0));
+        Assert.assertEquals("conditions size must match", 2, lists.get(0).size());
+        assertLock(true, CompiledPrecondition.UUID_ZERO, lists.get(0).get(0));
+        assertEtag(false, "abc", lists.get(0).get(1));
+        Assert.assertEquals("conditions size must match", 1, lists.get(1).size());
+        assertLock(false, TOKEN, lists.get(1).get(0));
+    }
+
+    @Test
+    public void parseTest_malformed() throws Exception {
+        assertMalformed("(");
+        assertMalformed("()");
+        assertMalformed("(<DAV:no-lock>");
+        assertMalformed("(<>)");
+        assertMalformed("([abc)");
+        assertMalformed("(Nothing<DAV:no-lock>)");
+        assertMalformed("(Not)");
+        assertMalformed("([a-b])");
+        assertMalformed("<http://127.0.0.1/item.txt>");
+        assertMalformed("<http://127.0.0.1/item.txt> (<DAV:no-lock>) (");
+    }
+
+    @Test
+    public void parseTest_not_keyword() throws Exception {
+        final List<Condition> conditions = PreconditionParser.parse("(not[a]NoT[b] nOt <DAV:no-lock>)").getResourceLists().get(0).getLists().get(0);
+        Assert.assertEquals("conditions size must match", 3, conditions.size());
+        assertEtag(true, "a", conditions.get(0));
+        assertEtag(true, "b", conditions.get(1));
+        assertLock(true, CompiledPrecondition.UUID_ZERO, conditions.get(2));
+    }
+
+    @Test
+    public void parseTest_trailing_garbage() throws Exception {
+        assertMalformed("(<DAV:no-lock>) garbage");
+        assertMalformed("(<DAV:no-lock>)x");
+        assertMalformed("(<DAV:no-lock>) [abc]");
+        assertMalformed("<http://127.0.0.1/item.txt> ([abc]) Not");
+        assertMalformed("<http://127.0.0.1/item.txt> ([abc]) <http://127.0.0.1/other.txt>");
+    }
+
+    @Test
+    public void parseTest_unbalanced_brackets() throws Exception {
+        assertMalformed(")");
+        assertMalformed("(<DAV:no-lock>))");
+        assertMalformed("((<DAV:no-lock>)");
+        assertMalformed("(<DAV:no-lock>");
+        assertMalformed("(<DAV:no-lock)");
+        assertMalformed("(DAV:no-lock>)");
+        assertMalformed("([abc)");
+        assertMalformed("(abc])");
+        assertMalformed("([abc]]");
+        assertMalformed("(<[abc]>)");
+        assertMalformed("<http://127.0.0.1/item.txt ([abc])");
+        assertMalformed("http://127.0.0.1/item.txt> ([abc])");
+    }
+}
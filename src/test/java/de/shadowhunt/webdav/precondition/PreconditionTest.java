@@ -365,4 +365,19 @@ public class PreconditionTest {
 
         Assert.assertEquals("tokens must match", TOKENS, Precondition.getTokens(request));
     }
+
+    @Test
+    public void test_06_compiled_shared_between_requests() throws Exception {
+        final WebDavEntity entity = store.getEntity(LOCKED_ITEM);
+        final String etag = entity.getEtag().get();
+
+        final String precondition = "([" + etag + "])";
+        Assert.assertSame("compiled precondition must be cached", Precondition.compile(precondition).get(), Precondition.compile(precondition).get());
+
+        Mockito.when(request.getHeader(Header.PRECONDITION, "")).thenReturn(precondition);
+        Mockito.when(request.getPath()).thenReturn(LOCKED_ITEM);
+        Assert.assertTrue(Precondition.verify(store, request));
+        Mockito.when(request.getPath()).thenReturn(NON_EXISTING);
+        Assert.assertFalse(Precondition.verify(store, request));
+    }
 }
@@ -18,11 +18,14 @@ package de.shadowhunt.webdav.store;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import de.shadowhunt.webdav.WebDavException;
 import de.shadowhunt.webdav.WebDavPath;
@@ -32,6 +35,7 @@ import de.shadowhunt.webdav.property.StringWebDavProperty;
 import de.shadowhunt.webdav.property.WebDavProperty;
 import de.shadowhunt.webdav.store.WebDavEntity.Type;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -46,6 +50,87 @@ public abstract class AbstractWebDavStoreTest {
 
     private static final WebDavPath ITEM_CHILD = WebDavPath.create("collection/item.txt");
 
+    @Test
+    public void copyTest_collection() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createCollection(COLLECTION);
+        store.createCollection(COLLECTION_CHILD);
+        store.createItem(ITEM_CHILD, new ByteArrayInputStream("data".getBytes()));
+        final StringWebDavProperty foo = new StringWebDavProperty(new PropertyIdentifier("foo", "bar"), "foo:bar");
+        store.setProperties(ITEM_CHILD, Arrays.asList(foo));
+
+        final WebDavLockBuilder builder = store.createLockBuilder();
+        builder.setRoot(ITEM_CHILD);
+        final WebDavLock lock = builder.build();
+        store.lock(ITEM_CHILD, lock);
+
+        final WebDavPath target = WebDavPath.create("copy");
+        Assert.assertTrue("must be copied", store.copy(COLLECTION, target, Integer.MAX_VALUE));
+
+        final WebDavPath copiedCollection = WebDavPath.create("copy/collection");
+        Assert.assertEquals("type must match", Type.COLLECTION, store.getEntity(copiedCollection).getType());
+
+        final WebDavPath copiedItem = WebDavPath.create("copy/item.txt");
+        final WebDavEntity entity = store.getEntity(copiedItem);
+        Assert.assertEquals("path must match", copiedItem, entity.getPath());
+        Assert.assertEquals("lock must match", Optional.empty(), entity.getLock());
+        Assert.assertEquals("hash must match", Optional.of(DigestUtils.md5Hex("data")), entity.getHash());
+        Assert.assertEquals("properties must match", Collections.singletonList(foo), new ArrayList<>(store.getProperties(copiedItem)));
+
+        // copies are independent of each other
+        store.unlock(ITEM_CHILD);
+        store.createItem(ITEM_CHILD, new ByteArrayInputStream("modified".getBytes()));
+        Assert.assertEquals("content must match", "data", IOUtils.toString(store.getContent(copiedItem)));
+        store.delete(ITEM_CHILD);
+        Assert.assertEquals("content must match", "data", IOUtils.toString(store.getContent(copiedItem)));
+    }
+
+    @Test
+    public void copyTest_collection_shallow() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createCollection(COLLECTION);
+        store.createItem(ITEM_CHILD, new ByteArrayInputStream("data".getBytes()));
+
+        final WebDavPath target = WebDavPath.create("copy");
+        Assert.assertTrue("must be copied", store.copy(COLLECTION, target, 0));
+        Assert.assertEquals("type must match", Type.COLLECTION, store.getEntity(target).getType());
+        Assert.assertEquals("children must match", Collections.emptyList(), store.list(target));
+        Assert.assertTrue("must exist", store.exists(ITEM_CHILD));
+    }
+
+    @Test(expected = WebDavException.class)
+    public void copyTest_existing_target() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createCollection(COLLECTION);
+        store.createItem(ITEM, new ByteArrayInputStream("data".getBytes()));
+
+        store.copy(ITEM, COLLECTION, 0);
+        Assert.fail("must not complete");
+    }
+
+    @Test
+    public void copyTest_item() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createCollection(COLLECTION);
+        store.createItem(ITEM, new ByteArrayInputStream("data".getBytes()));
+
+        Assert.assertTrue("must be copied", store.copy(ITEM, ITEM_CHILD, 0));
+        Assert.assertEquals("content must match", "data", IOUtils.toString(store.getContent(ITEM)));
+        Assert.assertEquals("content must match", "data", IOUtils.toString(store.getContent(ITEM_CHILD)));
+    }
+
+    @Test(expected = WebDavException.class)
+    public void copyTest_non_existing() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.copy(ITEM, WebDavPath.create("copy.txt"), 0);
+        Assert.fail("must not complete");
+    }
+
     @Test
     public void createCollectionTest() throws Exception {
         final WebDavStore store = getStore();
@@ -152,6 +237,9 @@ public abstract class AbstractWebDavStoreTest {
         final InputStream content = store.getContent(ITEM);
         Assert.assertNotNull("content must not be null", content);
         Assert.assertEquals("content must match", second, IOUtils.toString(content));
+
+        final WebDavEntity entity = store.getEntity(ITEM);
+        Assert.assertEquals("hash must match", Optional.of(DigestUtils.md5Hex(second)), entity.getHash());
     }
 
     @Test
@@ -328,6 +416,23 @@ public abstract class AbstractWebDavStoreTest {
         Assert.assertEquals("content must match", data, IOUtils.toString(content));
     }
 
+    @Test
+    public void getContentTest_item_range() throws Exception {
+        final WebDavStore store = getStore();
+
+        Assert.assertFalse("must not exist", store.exists(ITEM));
+
+        store.createItem(ITEM, new ByteArrayInputStream("0123456789".getBytes()));
+        Assert.assertTrue("must exist", store.exists(ITEM));
+
+        try (final InputStream content = store.getContent(ITEM, 3L, 4L)) {
+            Assert.assertEquals("content must match", "3456", IOUtils.toString(content));
+        }
+        try (final InputStream content = store.getContent(ITEM, 8L, 10L)) {
+            Assert.assertEquals("content must match", "89", IOUtils.toString(content));
+        }
+    }
+
     @Test(expected = WebDavException.class)
     public void getContentTest_non_existing() throws Exception {
         final WebDavStore store = getStore();
@@ -365,6 +470,7 @@ public abstract class AbstractWebDavStoreTest {
         final WebDavEntity entity = store.getEntity(ITEM);
         Assert.assertNotNull("entity must not be null", entity);
         Assert.assertEquals("type must match", Type.ITEM, entity.getType());
+        Assert.assertEquals("hash must match", Optional.of(DigestUtils.md5Hex(data)), entity.getHash());
     }
 
     @Test(expected = WebDavException.class)
@@ -414,6 +520,22 @@ public abstract class AbstractWebDavStoreTest {
         Assert.fail("must not complete");
     }
 
+    @Test
+    public void getPropertiesTest_requested() throws Exception {
+        final WebDavStore store = getStore();
+
+        final String data = "data";
+        store.createItem(ITEM, new ByteArrayInputStream(data.getBytes()));
+
+        final StringWebDavProperty foo = new StringWebDavProperty(new PropertyIdentifier("foo", "bar"), "foo:bar");
+        final StringWebDavProperty bar = new StringWebDavProperty(new PropertyIdentifier("bar", "foo"), "bar:foo");
+        store.setProperties(ITEM, Arrays.asList(foo, bar));
+
+        final Set<PropertyIdentifier> requested = new TreeSet<>(Arrays.asList(foo.getIdentifier(), PropertyIdentifier.ETAG_IDENTIFIER));
+        final Collection<WebDavProperty> actual = store.getProperties(ITEM, requested);
+        Assert.assertEquals("properties must match", Collections.singletonList(foo), new ArrayList<>(actual));
+    }
+
     protected abstract WebDavStore getStore();
 
     @Test
@@ -430,6 +552,62 @@ public abstract class AbstractWebDavStoreTest {
         Assert.assertNotNull("access must not be null", store.grantAccess(new GetMethod(), WebDavPath.ROOT, Optional.empty()));
     }
 
+    @Test
+    public void listEntitiesTest_collection_children() throws Exception {
+        final WebDavStore store = getStore();
+
+        Assert.assertFalse("must not exist", store.exists(COLLECTION));
+
+        store.createCollection(COLLECTION);
+        Assert.assertTrue("must exist", store.exists(COLLECTION));
+        store.createItem(ITEM_CHILD, new ByteArrayInputStream("data".getBytes()));
+        Assert.assertTrue("must exist", store.exists(ITEM_CHILD));
+        store.createCollection(COLLECTION_CHILD);
+        Assert.assertTrue("must exist", store.exists(COLLECTION_CHILD));
+
+        final WebDavLockBuilder builder = store.createLockBuilder();
+        builder.setRoot(ITEM_CHILD);
+        final WebDavLock lock = builder.build();
+        store.lock(ITEM_CHILD, lock);
+
+        final List<WebDavEntity> list = store.listEntities(COLLECTION);
+        Assert.assertNotNull("list must not be null", list);
+        Assert.assertEquals("list size must match", 2, list.size());
+        for (final WebDavEntity entity : list) {
+            final WebDavEntity expected = store.getEntity(entity.getPath());
+            Assert.assertEquals("entity must match", expected, entity);
+            Assert.assertEquals("etag must match", expected.getEtag(), entity.getEtag());
+            Assert.assertEquals("hash must match", expected.getHash(), entity.getHash());
+            Assert.assertEquals("lock must match", expected.getLock(), entity.getLock());
+            Assert.assertEquals("mimetype must match", expected.getMimeType(), entity.getMimeType());
+            Assert.assertEquals("size must match", expected.getSize(), entity.getSize());
+        }
+    }
+
+    @Test
+    public void listEntitiesTest_item() throws Exception {
+        final WebDavStore store = getStore();
+
+        Assert.assertFalse("must not exist", store.exists(ITEM));
+
+        store.createItem(ITEM, new ByteArrayInputStream("data".getBytes()));
+        Assert.assertTrue("must exist", store.exists(ITEM));
+
+        final List<WebDavEntity> list = store.listEntities(ITEM);
+        Assert.assertNotNull("list must not be null", list);
+        Assert.assertTrue("list must be empty", list.isEmpty());
+    }
+
+    @Test(expected = WebDavException.class)
+    public void listEntitiesTest_non_existing() throws Exception {
+        final WebDavStore store = getStore();
+
+        Assert.assertFalse("must not exist", store.exists(ITEM));
+
+        store.listEntities(ITEM);
+        Assert.fail("must not complete");
+    }
+
     @Test
     public void listTest_collection() throws Exception {
         final WebDavStore store = getStore();
@@ -538,6 +716,82 @@ public abstract class AbstractWebDavStoreTest {
         Assert.fail("must not complete");
     }
 
+    @Test(expected = WebDavException.class)
+    public void moveTest_below_itself() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createCollection(COLLECTION);
+
+        store.move(COLLECTION, COLLECTION_CHILD);
+        Assert.fail("must not complete");
+    }
+
+    @Test
+    public void moveTest_collection() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createCollection(COLLECTION);
+        store.createCollection(COLLECTION_CHILD);
+        store.createItem(ITEM_CHILD, new ByteArrayInputStream("data".getBytes()));
+        final StringWebDavProperty foo = new StringWebDavProperty(new PropertyIdentifier("foo", "bar"), "foo:bar");
+        store.setProperties(ITEM_CHILD, Arrays.asList(foo));
+
+        final WebDavLockBuilder builder = store.createLockBuilder();
+        builder.setRoot(ITEM_CHILD);
+        store.lock(ITEM_CHILD, builder.build());
+
+        final WebDavPath target = WebDavPath.create("moved");
+        Assert.assertTrue("must be moved", store.move(COLLECTION, target));
+        Assert.assertFalse("must not exist", store.exists(COLLECTION));
+        Assert.assertFalse("must not exist", store.exists(ITEM_CHILD));
+
+        final WebDavPath movedCollection = WebDavPath.create("moved/collection");
+        Assert.assertEquals("type must match", Type.COLLECTION, store.getEntity(movedCollection).getType());
+
+        final WebDavPath movedItem = WebDavPath.create("moved/item.txt");
+        final WebDavEntity entity = store.getEntity(movedItem);
+        Assert.assertEquals("path must match", movedItem, entity.getPath());
+        Assert.assertEquals("lock must match", Optional.empty(), entity.getLock());
+        Assert.assertEquals("content must match", "data", IOUtils.toString(store.getContent(movedItem)));
+        Assert.assertEquals("properties must match", Collections.singletonList(foo), new ArrayList<>(store.getProperties(movedItem)));
+        Assert.assertTrue("locks must be empty", store.getLocks(WebDavPath.ROOT).isEmpty());
+    }
+
+    @Test(expected = WebDavException.class)
+    public void moveTest_existing_target() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createCollection(COLLECTION);
+        store.createItem(ITEM, new ByteArrayInputStream("data".getBytes()));
+
+        store.move(ITEM, COLLECTION);
+        Assert.fail("must not complete");
+    }
+
+    @Test
+    public void moveTest_item() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createCollection(COLLECTION);
+        store.createItem(ITEM, new ByteArrayInputStream("data".getBytes()));
+
+        Assert.assertTrue("must be moved", store.move(ITEM, ITEM_CHILD));
+        Assert.assertFalse("must not exist", store.exists(ITEM));
+
+        final WebDavEntity entity = store.getEntity(ITEM_CHILD);
+        Assert.assertEquals("path must match", ITEM_CHILD, entity.getPath());
+        Assert.assertEquals("hash must match", Optional.of(DigestUtils.md5Hex("data")), entity.getHash());
+        Assert.assertEquals("content must match", "data", IOUtils.toString(store.getContent(ITEM_CHILD)));
+    }
+
+    @Test(expected = WebDavException.class)
+    public void moveTest_non_existing() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.move(ITEM, WebDavPath.create("moved.txt"));
+        Assert.fail("must not complete");
+    }
+
     @Test
     public void setPropertiesTest_collection() throws Exception {
         final WebDavStore store = getStore();
@@ -0,0 +1,146 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.store.WebDavLock.Timeout;
+import de.shadowhunt.webdav.store.memory.MemoryStore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LockTableTest {
+
+    private static final WebDavPath COLLECTION = WebDavPath.create("/a");
+
+    private static final WebDavPath ITEM = WebDavPath.create("/a/b");
+
+    private static final WebDavPath SIBLING = WebDavPath.create("/a-b");
+
+    private static WebDavLock createLock(final WebDavPath root, final Timeout timeout) {
+        final WebDavLockBuilder builder = new MemoryStore().createLockBuilder();
+        builder.setRoot(root);
+        builder.setTimeout(timeout);
+        return builder.build();
+    }
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void getSubtreeTest() throws Exception {
+        final LockTable table = new LockTable(clock::get);
+        final WebDavLock collection = createLock(COLLECTION, Timeout.INFINITE);
+        final WebDavLock item = createLock(ITEM, Timeout.INFINITE);
+        final WebDavLock sibling = createLock(SIBLING, Timeout.INFINITE);
+        table.put(COLLECTION, collection);
+        table.put(ITEM, item);
+        table.put(SIBLING, sibling);
+
+        final Map<WebDavPath, WebDavLock> expected = new TreeMap<>();
+        expected.put(COLLECTION, collection);
+        expected.put(ITEM, item);
+        Assert.assertEquals("locks must match", expected, table.getSubtree(COLLECTION));
+        Assert.assertEquals("locks must match", Collections.singletonMap(ITEM, item), table.getSubtree(ITEM));
+
+        expected.put(SIBLING, sibling);
+        Assert.assertEquals("locks must match", expected, table.getSubtree(WebDavPath.ROOT));
+    }
+
+    @Test
+    public void getTest_expired() throws Exception {
+        final LockTable table = new LockTable(clock::get);
+        final WebDavLock lock = createLock(ITEM, Timeout.parse("Seconds-10"));
+        table.put(ITEM, lock);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        Assert.assertEquals("lock must match", Optional.of(lock), table.get(ITEM));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assert.assertEquals("lock must match", Optional.empty(), table.get(ITEM));
+        Assert.assertTrue("locks must be empty", table.getSubtree(WebDavPath.ROOT).isEmpty());
+    }
+
+    @Test
+    public void getTest_infinite() throws Exception {
+        final LockTable table = new LockTable(clock::get);
+        final WebDavLock lock = createLock(ITEM, Timeout.INFINITE);
+        table.put(ITEM, lock);
+
+        clock.addAndGet(TimeUnit.DAYS.toNanos(365));
+        Assert.assertEquals("lock must match", Optional.of(lock), table.get(ITEM));
+    }
+
+    @Test
+    public void putTest_refresh() throws Exception {
+        final LockTable table = new LockTable(clock::get);
+        final WebDavLock lock = createLock(ITEM, Timeout.parse("Seconds-10"));
+        table.put(ITEM, lock);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        table.put(ITEM, lock);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        Assert.assertEquals("lock must match", Optional.of(lock), table.get(ITEM));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        Assert.assertEquals("lock must match", Optional.empty(), table.get(ITEM));
+    }
+
+    @Test
+    public void putTest_remaining() throws Exception {
+        final LockTable table = new LockTable(clock::get);
+        final WebDavLock lock = createLock(ITEM, Timeout.parse("Seconds-10"));
+        table.put(ITEM, lock, 1000L);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assert.assertEquals("lock must match", Optional.empty(), table.get(ITEM));
+
+        table.put(ITEM, lock, -1L);
+        clock.addAndGet(TimeUnit.DAYS.toNanos(365));
+        Assert.assertEquals("lock must match", Optional.of(lock), table.get(ITEM));
+    }
+
+    @Test
+    public void removeSubtreeTest() throws Exception {
+        final LockTable table = new LockTable(clock::get);
+        final WebDavLock sibling = createLock(SIBLING, Timeout.INFINITE);
+        table.put(COLLECTION, createLock(COLLECTION, Timeout.INFINITE));
+        table.put(ITEM, createLock(ITEM, Timeout.INFINITE));
+        table.put(SIBLING, sibling);
+
+        table.removeSubtree(COLLECTION);
+        Assert.assertEquals("locks must match", Collections.singletonMap(SIBLING, sibling), table.getSubtree(WebDavPath.ROOT));
+    }
+
+    @Test
+    public void removeTest() throws Exception {
+        final LockTable table = new LockTable(clock::get);
+        final WebDavLock lock = createLock(ITEM, Timeout.INFINITE);
+        table.put(ITEM, lock);
+
+        Assert.assertEquals("lock must match", Optional.of(lock), table.remove(ITEM));
+        Assert.assertEquals("lock must match", Optional.empty(), table.remove(ITEM));
+        Assert.assertEquals("lock must match", Optional.empty(), table.get(ITEM));
+    }
+}
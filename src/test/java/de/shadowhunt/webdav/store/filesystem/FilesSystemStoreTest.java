@@ -16,15 +16,51 @@
  */
 package de.shadowhunt.webdav.store.filesystem;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import de.shadowhunt.webdav.WebDavConstant.Depth;
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+import de.shadowhunt.webdav.property.WebDavProperty;
 import de.shadowhunt.webdav.store.AbstractWebDavStoreTest;
+import de.shadowhunt.webdav.store.WebDavEntity;
+import de.shadowhunt.webdav.store.WebDavLock;
+import de.shadowhunt.webdav.store.WebDavLock.LockScope;
+import de.shadowhunt.webdav.store.WebDavLock.LockType;
+import de.shadowhunt.webdav.store.WebDavLock.Timeout;
 import de.shadowhunt.webdav.store.WebDavStore;
+import de.shadowhunt.webdav.store.filesystem.FileSystemStore.Durability;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BrokenInputStream;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
 
 public class FilesSystemStoreTest extends AbstractWebDavStoreTest {
 
@@ -40,6 +76,188 @@ public class FilesSystemStoreTest extends AbstractWebDavStoreTest {
         root = new File(FileUtils.getTempDirectory(), "webdav-servlet-test_" + UUID.randomUUID());
     }
 
+    @Test
+    public void copyTest_transfer_threads() throws Exception {
+        final Set<String> threads = Collections.synchronizedSet(new TreeSet<>());
+        final FileSystemStore store = new FileSystemStore(root, true, x -> {
+            final MetaStore delegate = new LogMetaStore(new File(x, "meta.log"));
+            final MetaStore metaStore = Mockito.mock(MetaStore.class, AdditionalAnswers.delegatesTo(delegate));
+            Mockito.doAnswer(invocation -> {
+                threads.add(Thread.currentThread().getName());
+                return delegate.get((WebDavPath) invocation.getArguments()[0]);
+            }).when(metaStore).get(Matchers.any(WebDavPath.class));
+            return metaStore;
+        });
+
+        final WebDavPath source = WebDavPath.create("source");
+        store.createCollection(source);
+        for (int i = 0; i < 16; i++) {
+            store.createItem(source.append("item-" + i + ".txt"), new ByteArrayInputStream(("data-" + i).getBytes()));
+        }
+        threads.clear();
+
+        final WebDavPath target = WebDavPath.create("target");
+        Assert.assertTrue("copy must succeed", store.copy(source, target, Integer.MAX_VALUE));
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals("content must match", "data-" + i, IOUtils.toString(store.getContent(target.append("item-" + i + ".txt")), StandardCharsets.UTF_8));
+        }
+
+        // meta data of every item is read by the thread that copies its content
+        threads.remove(Thread.currentThread().getName());
+        Assert.assertFalse("transfer threads must be used", threads.isEmpty());
+        for (final String thread : threads) {
+            Assert.assertTrue("thread " + thread + " must belong to the store", thread.startsWith("webdav-transfer-"));
+        }
+    }
+
+    @Test
+    public void createItemTest_durability_full() throws Exception {
+        final FileSystemStore store = new FileSystemStore(root, true, x -> new LogMetaStore(new File(x, "meta.log"), Durability.FULL), Durability.FULL);
+
+        final WebDavPath item = WebDavPath.create("item.txt");
+        store.createItem(item, new ByteArrayInputStream("data".getBytes()));
+        Assert.assertEquals("content must match", "data", IOUtils.toString(store.getContent(item), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void createItemTest_failed_upload() throws Exception {
+        final FileSystemStore store = new FileSystemStore(root, true);
+
+        final WebDavPath item = WebDavPath.create("item.txt");
+        store.createItem(item, new ByteArrayInputStream("first".getBytes()));
+
+        final InputStream broken = new SequenceInputStream(new ByteArrayInputStream("second".getBytes()), new BrokenInputStream());
+        try {
+            store.createItem(item, broken);
+            Assert.fail("must not complete");
+        } catch (final WebDavException e) {
+            // expected
+        }
+
+        Assert.assertEquals("content must match", "first", IOUtils.toString(store.getContent(item), StandardCharsets.UTF_8));
+        Assert.assertEquals("uploads must be removed", 0, new File(root, "upload").list().length);
+    }
+
+    @Test
+    public void getContentPathTest_item() throws Exception {
+        final FileSystemStore store = new FileSystemStore(root, true);
+
+        final WebDavPath item = WebDavPath.create("item.txt");
+        store.createItem(item, new ByteArrayInputStream("data".getBytes()));
+
+        final Path path = store.getContentPath(item);
+        Assert.assertEquals("content must match", "data", new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = WebDavException.class)
+    public void getContentPathTest_collection() throws Exception {
+        final FileSystemStore store = new FileSystemStore(root, true);
+
+        final WebDavPath collection = WebDavPath.create("collection");
+        store.createCollection(collection);
+
+        store.getContentPath(collection);
+        Assert.fail("must not complete");
+    }
+
+    @Test
+    public void getEntityTest_item_modified_externally() throws Exception {
+        final WebDavStore store = getStore();
+
+        final WebDavPath item = WebDavPath.create("item.txt");
+        store.createItem(item, new ByteArrayInputStream("data".getBytes()));
+
+        final WebDavEntity before = store.getEntity(item);
+        Assert.assertEquals("hash must match", Optional.of(DigestUtils.md5Hex("data")), before.getHash());
+
+        final String modified = "modified outside of the store";
+        FileUtils.writeStringToFile(new File(root, "content/item.txt"), modified, StandardCharsets.UTF_8);
+
+        final WebDavEntity after = store.getEntity(item);
+        Assert.assertEquals("hash must match", Optional.of(DigestUtils.md5Hex(modified)), after.getHash());
+    }
+
+    @Test
+    public void getEntityTest_item_replaced_while_hashing() throws Exception {
+        final AtomicBoolean replace = new AtomicBoolean();
+        final File content = new File(root, "content/item.txt");
+        final List<MetaData> stored = Collections.synchronizedList(new ArrayList<>());
+        final FileSystemStore store = new FileSystemStore(root, true, x -> {
+            final MetaStore delegate = new LogMetaStore(new File(x, "meta.log"));
+            final MetaStore metaStore = Mockito.mock(MetaStore.class, AdditionalAnswers.delegatesTo(delegate));
+            Mockito.doAnswer(invocation -> {
+                // the size and modification time of the content have been recorded, but it has not been opened yet
+                if (replace.getAndSet(false)) {
+                    FileUtils.writeStringToFile(content, "replaced content", StandardCharsets.UTF_8);
+                }
+                return delegate.get((WebDavPath) invocation.getArguments()[0]);
+            }).when(metaStore).get(Matchers.any(WebDavPath.class));
+            Mockito.doAnswer(invocation -> {
+                stored.add((MetaData) invocation.getArguments()[1]);
+                delegate.put((WebDavPath) invocation.getArguments()[0], (MetaData) invocation.getArguments()[1]);
+                return null;
+            }).when(metaStore).put(Matchers.any(WebDavPath.class), Matchers.any(MetaData.class));
+            return metaStore;
+        });
+
+        final WebDavPath item = WebDavPath.create("item.txt");
+        store.createItem(item, new ByteArrayInputStream("data".getBytes()));
+        Assert.assertTrue("content must exist", content.setLastModified(content.lastModified() - 10000L));
+
+        final WebDavEntity entity = store.getEntity(item);
+        stored.clear();
+        replace.set(true);
+        Assert.assertEquals("hash must match", Optional.of(DigestUtils.md5Hex("replaced content")), entity.getHash());
+        Assert.assertTrue("hash of replaced content must not be stored", stored.isEmpty());
+
+        Assert.assertEquals("hash must match", Optional.of(DigestUtils.md5Hex("replaced content")), store.getEntity(item).getHash());
+        Assert.assertEquals("hash must be stored", 1, stored.size());
+    }
+
+    @Test
+    public void migrateTest_xml_layout() throws Exception {
+        final File content = new File(root, "content/collection/item.txt");
+        FileUtils.writeStringToFile(content, "data", StandardCharsets.UTF_8);
+
+        final File meta = new File(root, "meta/collection");
+        Assert.assertTrue("meta folder must be created", meta.mkdirs());
+
+        final Properties properties = new Properties();
+        properties.put("urn:test name", "value");
+        try (final OutputStream os = new FileOutputStream(new File(meta, "item.txt_dead-properties"))) {
+            properties.storeToXML(os, "", "UTF-8");
+        }
+
+        final UUID token = UUID.randomUUID();
+        final Properties lock = new Properties();
+        lock.put("depth", Depth.SELF.name);
+        lock.put("owner", "owner");
+        lock.put("root", "/collection/item.txt");
+        lock.put("scope", LockScope.EXCLUSIVE.name());
+        lock.put("timeout", Timeout.INFINITE.toString());
+        lock.put("token", token.toString());
+        lock.put("type", LockType.WRITE.name());
+        try (final OutputStream os = new FileOutputStream(new File(meta, "item.txt_lock"))) {
+            lock.storeToXML(os, "", "UTF-8");
+        }
+
+        final FileSystemStore store = new FileSystemStore(root, false);
+        final WebDavPath item = WebDavPath.create("/collection/item.txt");
+
+        final Collection<WebDavProperty> migrated = store.getProperties(item);
+        Assert.assertEquals("properties must match", 1, migrated.size());
+        final WebDavProperty property = migrated.iterator().next();
+        Assert.assertEquals("identifier must match", new PropertyIdentifier("urn:test", "name"), property.getIdentifier());
+        Assert.assertEquals("value must match", "value", property.getValue());
+
+        final Optional<WebDavLock> entityLock = store.getEntity(item).getLock();
+        Assert.assertTrue("lock must exist", entityLock.isPresent());
+        Assert.assertEquals("token must match", token, entityLock.get().getToken());
+
+        Assert.assertFalse("xml files must be removed", meta.exists());
+        Assert.assertTrue("meta log must exist", new File(root, "meta/meta.log").isFile());
+    }
+
     @Override
     protected WebDavStore getStore() {
         return new FileSystemStore(root, true);
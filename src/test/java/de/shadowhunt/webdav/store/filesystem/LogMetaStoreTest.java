@@ -0,0 +1,276 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.filesystem;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import de.shadowhunt.webdav.WebDavConstant.Depth;
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.property.PropertyIdentifier;
+import de.shadowhunt.webdav.property.StringWebDavProperty;
+import de.shadowhunt.webdav.property.WebDavProperty;
+import de.shadowhunt.webdav.store.WebDavLock;
+import de.shadowhunt.webdav.store.WebDavLock.LockScope;
+import de.shadowhunt.webdav.store.WebDavLock.LockType;
+import de.shadowhunt.webdav.store.WebDavLock.Timeout;
+import de.shadowhunt.webdav.store.filesystem.FileSystemStore.Durability;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogMetaStoreTest {
+
+    private static final WebDavPath COLLECTION = WebDavPath.create("/a");
+
+    private static final WebDavPath ITEM = WebDavPath.create("/a/b");
+
+    private static final WebDavPath SIBLING = WebDavPath.create("/a-b");
+
+    private static void assertMetaData(final MetaData expected, final MetaData actual) {
+        Assert.assertEquals("hash must match", expected.getHash().get().getValue(), actual.getHash().get().getValue());
+        Assert.assertEquals("hash size must match", expected.getHash().get().getSize(), actual.getHash().get().getSize());
+        Assert.assertEquals("hash modified must match", expected.getHash().get().getModified(), actual.getHash().get().getModified());
+        Assert.assertEquals("lock must match", expected.getLock(), actual.getLock());
+        Assert.assertEquals("lock timeout must match", expected.getLock().get().getTimeout(), actual.getLock().get().getTimeout());
+        Assert.assertEquals("lock expires must match", expected.getLockExpires(), actual.getLockExpires());
+        Assert.assertEquals("modified must match", expected.getModified(), actual.getModified());
+        final WebDavProperty expectedProperty = expected.getProperties().iterator().next();
+        final WebDavProperty actualProperty = actual.getProperties().iterator().next();
+        Assert.assertEquals("property identifier must match", expectedProperty.getIdentifier(), actualProperty.getIdentifier());
+        Assert.assertEquals("property value must match", expectedProperty.getValue(), actualProperty.getValue());
+    }
+
+    private static MetaData createMetaData(final String value) {
+        final WebDavLock lock = new FileSystemLock(UUID.randomUUID(), ITEM, Depth.SELF, LockScope.EXCLUSIVE, LockType.WRITE, Timeout.parse("Seconds-60"), "owner");
+        final WebDavProperty property = new StringWebDavProperty(new PropertyIdentifier("urn:test", "name"), value);
+        final MetaData.Hash hash = new MetaData.Hash("hash-" + value, 4L, 42L);
+        return new MetaData(Optional.of(hash), Optional.of(lock), 1234L, Collections.singletonList(property), 4711L);
+    }
+
+    private File folder;
+
+    private File log;
+
+    @After
+    public void after() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Before
+    public void before() {
+        folder = new File(FileUtils.getTempDirectory(), "webdav-servlet-test_" + UUID.randomUUID());
+        Assert.assertTrue("folder must be created", folder.mkdirs());
+        log = new File(folder, "meta.log");
+    }
+
+    private List<WebDavPath> collectPaths(final MetaStore store) {
+        final List<WebDavPath> paths = new ArrayList<>();
+        store.forEach((path, data) -> paths.add(path));
+        return paths;
+    }
+
+    @Test
+    public void compactTest() throws Exception {
+        final LogMetaStore store = new LogMetaStore(log, Durability.CONTENT, 4);
+        store.put(SIBLING, createMetaData("sibling"));
+        final long single = log.length();
+
+        MetaData last = null;
+        for (int i = 0; i < 16; i++) {
+            last = createMetaData("value" + i);
+            store.put(ITEM, last);
+        }
+        Assert.assertTrue("log must be compacted", log.length() < (single * 8));
+        Assert.assertFalse("compaction file must not remain", new File(folder, "meta.log.compact").exists());
+
+        final LogMetaStore reopened = new LogMetaStore(log, Durability.CONTENT, 4);
+        assertMetaData(last, reopened.get(ITEM));
+        Assert.assertTrue("sibling must exist", reopened.get(SIBLING).getLock().isPresent());
+    }
+
+    @Test
+    public void closeTest() throws Exception {
+        final LogMetaStore store = new LogMetaStore(log);
+        store.put(ITEM, createMetaData("value"));
+        store.close();
+
+        try {
+            store.put(SIBLING, createMetaData("sibling"));
+            Assert.fail("closed log must not be written");
+        } catch (final WebDavException e) {
+            Assert.assertTrue("cause must match", e.getCause() instanceof ClosedChannelException);
+        }
+        Assert.assertFalse("item must exist", new LogMetaStore(log).get(ITEM).isEmpty());
+    }
+
+    @Test
+    public void compactTest_durability() throws Exception {
+        for (final Durability durability : Durability.values()) {
+            FileUtils.deleteQuietly(log);
+            try (final LogMetaStore store = new LogMetaStore(log, durability, 4)) {
+                for (int i = 0; i < 16; i++) {
+                    store.put(ITEM, createMetaData("value" + i));
+                }
+                // appended after the last compaction
+                store.put(SIBLING, createMetaData("sibling"));
+            }
+
+            try (final LogMetaStore reopened = new LogMetaStore(log, durability, 4)) {
+                Assert.assertEquals("hash of " + durability + " must match", "hash-value15", reopened.get(ITEM).getHash().get().getValue());
+                Assert.assertEquals("hash of " + durability + " must match", "hash-sibling", reopened.get(SIBLING).getHash().get().getValue());
+            }
+        }
+    }
+
+    @Test
+    public void getTest_missing() throws Exception {
+        final LogMetaStore store = new LogMetaStore(log);
+        Assert.assertSame("meta data must match", MetaData.EMPTY, store.get(ITEM));
+    }
+
+    @Test
+    public void moveTest_replay() throws Exception {
+        final MetaData collection = createMetaData("collection");
+        final MetaData item = createMetaData("item");
+        final MetaData sibling = createMetaData("sibling");
+        final LogMetaStore store = new LogMetaStore(log);
+        store.put(COLLECTION, collection);
+        store.put(ITEM, item);
+        store.put(SIBLING, sibling);
+
+        final WebDavPath target = WebDavPath.create("/c");
+        store.move(COLLECTION, target);
+
+        for (final MetaStore current : Arrays.asList(store, new LogMetaStore(log))) {
+            Assert.assertEquals("paths must match", Arrays.asList(SIBLING, target, target.append("b")), collectPaths(current));
+            assertMetaData(collection, current.get(target));
+            assertMetaData(item, current.get(target.append("b")));
+            assertMetaData(sibling, current.get(SIBLING));
+        }
+    }
+
+    @Test
+    public void putTest_replay() throws Exception {
+        final MetaData data = createMetaData("value");
+        final LogMetaStore store = new LogMetaStore(log);
+        store.put(ITEM, createMetaData("first"));
+        store.put(ITEM, data);
+        assertMetaData(data, store.get(ITEM));
+
+        final LogMetaStore reopened = new LogMetaStore(log);
+        assertMetaData(data, reopened.get(ITEM));
+    }
+
+    @Test
+    public void removeTest_subtree() throws Exception {
+        final LogMetaStore store = new LogMetaStore(log);
+        store.put(COLLECTION, createMetaData("collection"));
+        store.put(ITEM, createMetaData("item"));
+        store.put(SIBLING, createMetaData("sibling"));
+
+        store.remove(COLLECTION);
+        Assert.assertSame("meta data must match", MetaData.EMPTY, store.get(COLLECTION));
+        Assert.assertSame("meta data must match", MetaData.EMPTY, store.get(ITEM));
+        Assert.assertFalse("sibling must exist", store.get(SIBLING).isEmpty());
+
+        final LogMetaStore reopened = new LogMetaStore(log);
+        Assert.assertSame("meta data must match", MetaData.EMPTY, reopened.get(COLLECTION));
+        Assert.assertSame("meta data must match", MetaData.EMPTY, reopened.get(ITEM));
+        Assert.assertFalse("sibling must exist", reopened.get(SIBLING).isEmpty());
+    }
+
+    @Test
+    public void replayTest_corrupt_checksum() throws Exception {
+        final LogMetaStore store = new LogMetaStore(log);
+        store.put(ITEM, createMetaData("value"));
+        final long valid = log.length();
+        store.put(SIBLING, createMetaData("sibling"));
+
+        try (final RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.seek(log.length() - 1);
+            final int last = file.read();
+            file.seek(log.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        final LogMetaStore reopened = new LogMetaStore(log);
+        Assert.assertFalse("item must exist", reopened.get(ITEM).isEmpty());
+        Assert.assertSame("meta data must match", MetaData.EMPTY, reopened.get(SIBLING));
+        Assert.assertEquals("log must be truncated", valid, log.length());
+        Assert.assertEquals("paths must match", Arrays.asList(ITEM), collectPaths(reopened));
+    }
+
+    @Test
+    public void replayTest_damaged_record() throws Exception {
+        final MetaData data = createMetaData("value");
+        final LogMetaStore store = new LogMetaStore(log);
+        store.put(ITEM, data);
+        final long valid = log.length();
+        store.put(SIBLING, createMetaData("sibling"));
+
+        // simulate a crash in the middle of writing the last record
+        try (final RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(log.length() - 3);
+        }
+
+        final LogMetaStore reopened = new LogMetaStore(log);
+        assertMetaData(data, reopened.get(ITEM));
+        Assert.assertSame("meta data must match", MetaData.EMPTY, reopened.get(SIBLING));
+        Assert.assertEquals("log must be truncated", valid, log.length());
+
+        reopened.put(SIBLING, data);
+        final LogMetaStore again = new LogMetaStore(log);
+        assertMetaData(data, again.get(SIBLING));
+    }
+
+    @Test
+    public void replayTest_torn_header() throws Exception {
+        for (int stray = 1; stray < 4; stray++) {
+            FileUtils.deleteQuietly(log);
+            final MetaData data = createMetaData("value");
+            final LogMetaStore store = new LogMetaStore(log);
+            store.put(ITEM, data);
+            final long valid = log.length();
+
+            // simulate a crash while the length of the next record was written
+            try (final RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.setLength(valid + stray);
+            }
+
+            final LogMetaStore reopened = new LogMetaStore(log);
+            assertMetaData(data, reopened.get(ITEM));
+            Assert.assertEquals("log must be truncated after " + stray + " stray bytes", valid, log.length());
+
+            reopened.put(SIBLING, data);
+            final LogMetaStore again = new LogMetaStore(log);
+            assertMetaData(data, again.get(ITEM));
+            assertMetaData(data, again.get(SIBLING));
+        }
+    }
+}
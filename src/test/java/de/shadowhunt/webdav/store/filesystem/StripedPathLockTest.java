@@ -0,0 +1,111 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.filesystem;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.store.filesystem.StripedPathLock.Handle;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StripedPathLockTest {
+
+    private static final WebDavPath CHILD = WebDavPath.create("/a/b");
+
+    private static final WebDavPath PARENT = WebDavPath.create("/a");
+
+    private static final WebDavPath SIBLING = WebDavPath.create("/a/c");
+
+    private ExecutorService executor;
+
+    private final StripedPathLock pathLock = new StripedPathLock(1024);
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    private void assertBlocked(final Future<?> future) throws Exception {
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            Assert.fail("lock must not be acquired");
+        } catch (final TimeoutException e) {
+            // expected
+        }
+    }
+
+    @Before
+    public void before() {
+        Assert.assertNotEquals("stripes must differ", pathLock.index(CHILD), pathLock.index(SIBLING));
+        Assert.assertNotEquals("stripes must differ", pathLock.index(CHILD), pathLock.index(PARENT));
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    private Future<?> exclusive(final WebDavPath path) {
+        return executor.submit(() -> pathLock.exclusive(path).close());
+    }
+
+    @Test
+    public void exclusiveAncestorWaitsForShared() throws Exception {
+        final Future<?> future;
+        try (final Handle handle = pathLock.shared(CHILD)) {
+            future = exclusive(PARENT);
+            assertBlocked(future);
+        }
+        future.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void exclusiveSamePathWaits() throws Exception {
+        final Future<?> future;
+        try (final Handle handle = pathLock.exclusive(CHILD)) {
+            future = exclusive(CHILD);
+            assertBlocked(future);
+        }
+        future.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void exclusiveSiblingsProceed() throws Exception {
+        try (final Handle handle = pathLock.exclusive(CHILD)) {
+            exclusive(SIBLING).get(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidStripes() {
+        new StripedPathLock(100);
+    }
+
+    @Test
+    public void sharedDuringExclusiveOfSameThread() throws Exception {
+        try (final Handle outer = pathLock.exclusive(CHILD)) {
+            try (final Handle inner = pathLock.shared(CHILD)) {
+                Assert.assertNotNull("handle must not be null", inner);
+            }
+        }
+        exclusive(CHILD).get(1, TimeUnit.SECONDS);
+    }
+}
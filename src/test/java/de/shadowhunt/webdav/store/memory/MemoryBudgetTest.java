@@ -0,0 +1,175 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.shadowhunt.webdav.WebDavException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MemoryBudgetTest {
+
+    private static final long BUDGET = 16L;
+
+    private static MemoryContent createContent(final int index) throws IOException {
+        return HeapContent.read(new ByteArrayInputStream(String.format("content-%02d", index).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String read(final MemoryContent content) throws IOException {
+        try (final InputStream input = content.open(0L, content.getSize())) {
+            return IOUtils.toString(input, StandardCharsets.UTF_8);
+        }
+    }
+
+    private ExecutorService executor;
+
+    private final CountDownLatch loading = new CountDownLatch(1);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final CountDownLatch proceed = new CountDownLatch(1);
+
+    private File spillDirectory;
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+        FileUtils.deleteQuietly(spillDirectory);
+    }
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(2);
+        spillDirectory = new File(FileUtils.getTempDirectory(), "webdav-servlet-test_" + UUID.randomUUID());
+    }
+
+    // blocks every load until the test lets it proceed
+    private MemoryBudget createBudget() {
+        return new MemoryBudget(BUDGET, spillDirectory, input -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                Assert.assertTrue("load must proceed", proceed.await(10L, TimeUnit.SECONDS));
+            } catch (final InterruptedException e) {
+                throw new IOException(e);
+            }
+            return HeapContent.read(input);
+        });
+    }
+
+    @Test
+    public void admitTest_spill() throws Exception {
+        final MemoryBudget budget = createBudget();
+
+        final MemoryContent first = budget.admit(createContent(0));
+        Assert.assertEquals("resident bytes must match", 10L, budget.getResidentBytes());
+        Assert.assertEquals("spilled items must match", 0, spillDirectory.list().length);
+
+        final MemoryContent second = budget.admit(createContent(1));
+        Assert.assertEquals("resident bytes must match", 10L, budget.getResidentBytes());
+        Assert.assertEquals("spilled items must match", 1, spillDirectory.list().length);
+
+        proceed.countDown();
+        Assert.assertEquals("content must match", "content-00", read(first));
+        Assert.assertEquals("resident bytes must match", 10L, budget.getResidentBytes());
+        Assert.assertEquals("content must match", "content-01", read(second));
+        Assert.assertEquals("loads must match", 2, loads.get());
+
+        // an earlier spill file is reused
+        Assert.assertEquals("spilled items must match", 2, spillDirectory.list().length);
+        first.release();
+        second.release();
+        Assert.assertEquals("resident bytes must match", 0L, budget.getResidentBytes());
+        Assert.assertEquals("spilled items must match", 0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void openTest_concurrent_loads() throws Exception {
+        final MemoryBudget budget = createBudget();
+        final MemoryContent spilled = budget.admit(createContent(0));
+        budget.admit(createContent(1));
+
+        final Future<String> first = executor.submit(() -> read(spilled));
+        Assert.assertTrue("load must start", loading.await(10L, TimeUnit.SECONDS));
+        final Future<String> second = executor.submit(() -> read(spilled));
+
+        proceed.countDown();
+        Assert.assertEquals("content must match", "content-00", first.get(10L, TimeUnit.SECONDS));
+        Assert.assertEquals("content must match", "content-00", second.get(10L, TimeUnit.SECONDS));
+        Assert.assertEquals("loads must match", 1, loads.get());
+    }
+
+    @Test
+    public void openTest_resident_while_loading() throws Exception {
+        final MemoryBudget budget = createBudget();
+        final MemoryContent spilled = budget.admit(createContent(0));
+        final MemoryContent resident = budget.admit(createContent(1));
+
+        final Future<String> load = executor.submit(() -> read(spilled));
+        Assert.assertTrue("load must start", loading.await(10L, TimeUnit.SECONDS));
+
+        // neither reading resident content nor spilling waits for the load
+        Assert.assertEquals("content must match", "content-01", read(resident));
+        budget.admit(createContent(2));
+        Assert.assertEquals("spilled items must match", 2, spillDirectory.list().length);
+        Assert.assertFalse("load must still be running", load.isDone());
+
+        proceed.countDown();
+        Assert.assertEquals("content must match", "content-00", load.get(10L, TimeUnit.SECONDS));
+        Assert.assertEquals("resident bytes must match", 10L, budget.getResidentBytes());
+    }
+
+    @Test
+    public void releaseTest_while_loading() throws Exception {
+        final MemoryBudget budget = createBudget();
+        final MemoryContent spilled = budget.admit(createContent(0));
+        budget.admit(createContent(1));
+
+        final Future<String> load = executor.submit(() -> read(spilled));
+        Assert.assertTrue("load must start", loading.await(10L, TimeUnit.SECONDS));
+        spilled.release();
+        Assert.assertEquals("spilled items must match", 1, spillDirectory.list().length);
+
+        proceed.countDown();
+        try {
+            load.get(10L, TimeUnit.SECONDS);
+            Assert.fail("released content must not be loaded");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue("exception must match", e.getCause() instanceof WebDavException);
+        }
+        Assert.assertEquals("spilled items must match", 0, spillDirectory.list().length);
+        Assert.assertEquals("resident bytes must match", 10L, budget.getResidentBytes());
+    }
+}
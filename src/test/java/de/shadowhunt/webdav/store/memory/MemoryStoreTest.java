@@ -16,14 +16,95 @@
  */
 package de.shadowhunt.webdav.store.memory;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import de.shadowhunt.webdav.WebDavException;
+import de.shadowhunt.webdav.WebDavPath;
 import de.shadowhunt.webdav.store.AbstractWebDavStoreTest;
+import de.shadowhunt.webdav.store.WebDavEntity;
 import de.shadowhunt.webdav.store.WebDavStore;
 
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
 public class MemoryStoreTest extends AbstractWebDavStoreTest {
 
+    private static final WebDavPath STRESS = WebDavPath.create("stress");
+
+    private static final int STRESS_ITERATIONS = 200;
+
+    private static final int STRESS_THREADS = 8;
+
     @Override
     protected WebDavStore getStore() {
         return new MemoryStore();
     }
 
+    @Test
+    public void stressTest_concurrent_modifications() throws Exception {
+        final WebDavStore store = getStore();
+        store.createCollection(STRESS);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(STRESS_THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < STRESS_THREADS; t++) {
+                final int thread = t;
+                final Callable<Integer> worker = () -> {
+                    start.await();
+                    int created = 0;
+                    for (int i = 0; i < STRESS_ITERATIONS; i++) {
+                        final WebDavPath item = STRESS.append("item-" + thread + "-" + i + ".txt");
+                        store.createItem(item, new ByteArrayInputStream(item.getValue().getBytes(StandardCharsets.UTF_8)));
+
+                        // all threads race for the same collection, only one may win
+                        try {
+                            store.createCollection(STRESS.append("shared-" + i));
+                            created++;
+                        } catch (final WebDavException e) {
+                            // expected for all but one thread
+                        }
+
+                        for (final WebDavEntity entity : store.listEntities(STRESS)) {
+                            Assert.assertNotNull("entity must not be null", entity);
+                        }
+                    }
+                    return created;
+                };
+                futures.add(executor.submit(worker));
+            }
+            start.countDown();
+
+            int created = 0;
+            for (final Future<Integer> future : futures) {
+                created += future.get(1, TimeUnit.MINUTES);
+            }
+            Assert.assertEquals("created collections must match", STRESS_ITERATIONS, created);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final List<WebDavEntity> entities = store.listEntities(STRESS);
+        Assert.assertEquals("list size must match", (STRESS_THREADS + 1) * STRESS_ITERATIONS, entities.size());
+        for (int t = 0; t < STRESS_THREADS; t++) {
+            for (int i = 0; i < STRESS_ITERATIONS; i++) {
+                final WebDavPath item = STRESS.append("item-" + t + "-" + i + ".txt");
+                try (final InputStream content = store.getContent(item)) {
+                    Assert.assertEquals("content must match", item.getValue(), IOUtils.toString(content, StandardCharsets.UTF_8));
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,92 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.store.AbstractWebDavStoreTest;
+import de.shadowhunt.webdav.store.WebDavStore;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffHeapMemoryStoreTest extends AbstractWebDavStoreTest {
+
+    private static final WebDavPath ITEM = WebDavPath.create("item.txt");
+
+    @Test
+    public void copyTest_item_shares_content() throws Exception {
+        final WebDavStore store = getStore();
+        final WebDavPath copy = WebDavPath.create("copy.txt");
+
+        store.createItem(ITEM, new ByteArrayInputStream("0123456789".getBytes()));
+        store.copy(ITEM, copy, 0);
+        store.delete(ITEM);
+        store.createItem(ITEM, new ByteArrayInputStream("abcdefghij".getBytes())); // would reuse wrongly released chunks
+
+        try (final InputStream content = store.getContent(copy)) {
+            Assert.assertEquals("content must match", "0123456789", IOUtils.toString(content));
+        }
+    }
+
+    @Test
+    public void getContentTest_item_replaced_while_reading() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createItem(ITEM, new ByteArrayInputStream("0123456789".getBytes()));
+        try (final InputStream content = store.getContent(ITEM)) {
+            store.createItem(ITEM, new ByteArrayInputStream("abcdefghij".getBytes()));
+            store.createItem(ITEM, new ByteArrayInputStream("ABCDEFGHIJ".getBytes())); // reuses released chunks
+            Assert.assertEquals("content must match", "0123456789", IOUtils.toString(content));
+        }
+        try (final InputStream content = store.getContent(ITEM)) {
+            Assert.assertEquals("content must match", "ABCDEFGHIJ", IOUtils.toString(content));
+        }
+    }
+
+    @Test
+    public void getContentTest_single_bytes() throws Exception {
+        final WebDavStore store = getStore();
+
+        store.createItem(ITEM, new ByteArrayInputStream("0123456789".getBytes()));
+        try (final InputStream content = store.getContent(ITEM)) {
+            final StringBuilder read = new StringBuilder();
+            int b;
+            while ((b = content.read()) >= 0) {
+                read.append((char) b);
+            }
+            Assert.assertEquals("content must match", "0123456789", read.toString());
+            Assert.assertEquals("end of content must match", -1, content.read());
+        }
+
+        store.createItem(ITEM, new ByteArrayInputStream(new byte[] { -1, 0, 1, -128, 127 }));
+        try (final InputStream content = store.getContent(ITEM, 1L, 3L)) {
+            Assert.assertEquals("byte must match", 0, content.read());
+            Assert.assertEquals("byte must match", 1, content.read());
+            Assert.assertEquals("byte must match", 128, content.read());
+            Assert.assertEquals("end of range must match", -1, content.read());
+        }
+    }
+
+    @Override
+    protected WebDavStore getStore() {
+        return new MemoryStore(4); // tiny chunks, so content spans several of them
+    }
+}
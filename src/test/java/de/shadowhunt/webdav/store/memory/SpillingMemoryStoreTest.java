@@ -0,0 +1,92 @@
+/**
+ * This file is part of Shadowhunt WebDav Servlet.
+ *
+ * Shadowhunt WebDav Servlet is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Shadowhunt WebDav Servlet is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Shadowhunt WebDav Servlet.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.shadowhunt.webdav.store.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import de.shadowhunt.webdav.WebDavPath;
+import de.shadowhunt.webdav.store.AbstractWebDavStoreTest;
+import de.shadowhunt.webdav.store.WebDavStore;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpillingMemoryStoreTest extends AbstractWebDavStoreTest {
+
+    private static final long BUDGET = 16L;
+
+    private File spillDirectory;
+
+    @After
+    public void after() {
+        FileUtils.deleteQuietly(spillDirectory);
+    }
+
+    @Before
+    public void before() {
+        spillDirectory = new File(FileUtils.getTempDirectory(), "webdav-servlet-test_" + UUID.randomUUID());
+    }
+
+    private WebDavPath createItem(final WebDavStore store, final int index) {
+        final WebDavPath item = WebDavPath.create("item-" + index + ".txt");
+        store.createItem(item, new ByteArrayInputStream(String.format("content-%02d", index).getBytes(StandardCharsets.UTF_8)));
+        return item;
+    }
+
+    @Test
+    public void deleteTest_spilled_item() throws Exception {
+        final WebDavStore store = getStore();
+
+        final WebDavPath first = createItem(store, 0);
+        createItem(store, 1);
+        createItem(store, 2);
+        Assert.assertEquals("spilled items must match", 2, spillDirectory.list().length);
+
+        store.delete(first);
+        Assert.assertEquals("spilled items must match", 1, spillDirectory.list().length);
+    }
+
+    @Test
+    public void getContentTest_spilled_items() throws Exception {
+        final WebDavStore store = getStore();
+
+        for (int i = 0; i < 10; i++) {
+            createItem(store, i);
+        }
+        Assert.assertTrue("content must have been spilled", spillDirectory.list().length >= 8);
+
+        for (int i = 0; i < 10; i++) {
+            final WebDavPath item = WebDavPath.create("item-" + i + ".txt");
+            try (final InputStream content = store.getContent(item)) {
+                Assert.assertEquals("content must match", String.format("content-%02d", i), IOUtils.toString(content, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Override
+    protected WebDavStore getStore() {
+        return new MemoryStore(4, BUDGET, spillDirectory);
+    }
+}